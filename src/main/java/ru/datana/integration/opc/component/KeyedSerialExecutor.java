@@ -0,0 +1,240 @@
+package ru.datana.integration.opc.component;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Executes tasks of the same key one by one in submission order (FIFO lane per
+ * key), tasks of different keys run in parallel.
+ * <p>
+ * A lane holds at most {@code depth} queued tasks, {@link OverflowPolicy}
+ * decides what happens to a task submitted to a full lane. A lane has no
+ * thread of its own: the drain loop is started on {@code executor} when the
+ * first task arrives and ends when the lane is empty. An empty lane is dropped,
+ * so keys of removed models do not keep lanes.
+ */
+@Slf4j
+public final class KeyedSerialExecutor {
+	public enum OverflowPolicy {
+		/**
+		 * Submitter waits for free space
+		 */
+		BLOCK,
+		/**
+		 * Queued task with the same conflation key is dropped and the new one is
+		 * queued at the tail, the oldest task is dropped if there is none. Tasks
+		 * without conflation key are never replaced
+		 */
+		CONFLATE,
+		/**
+		 * Oldest queued task is dropped
+		 */
+		DROP_OLDEST
+	}
+
+	private final ConcurrentMap<String, Lane> lanes = new ConcurrentHashMap<>();
+	private final Executor executor;
+	private final int depth;
+	private final OverflowPolicy policy;
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder conflated = new LongAdder();
+
+	public KeyedSerialExecutor(Executor executor, int depth, OverflowPolicy policy) {
+		if (depth < 1) {
+			throw new IllegalArgumentException("Lane depth must be positive: " + depth);
+		}
+		this.executor = executor;
+		this.depth = depth;
+		this.policy = policy;
+	}
+
+	/**
+	 * @param key          lane key
+	 * @param conflationKey identity of the task for {@link OverflowPolicy#CONFLATE},
+	 *                      {@code null} if the task must not be replaced
+	 */
+	public void execute(String key, String conflationKey, Runnable task) {
+		var queued = new Task(conflationKey, task);
+		for (;;) {
+			var lane = lanes.get(key);
+			if (lane == null) {
+				lane = lanes.computeIfAbsent(key, Lane::new);
+			}
+			if (lane.offer(queued)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return lanes holding or running tasks
+	 */
+	public int lanes() {
+		return lanes.size();
+	}
+
+	/**
+	 * @return tasks waiting in all lanes
+	 */
+	public int queued() {
+		return lanes.values().stream().mapToInt(Lane::size).sum();
+	}
+
+	/**
+	 * @return lanes running a drain loop
+	 */
+	public int active() {
+		return (int) lanes.values().stream().filter(Lane::isRunning).count();
+	}
+
+	/**
+	 * @return tasks dropped from full lanes since start
+	 */
+	public long dropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * @return tasks dropped by {@link OverflowPolicy#CONFLATE} in favour of a
+	 *         newer task with the same conflation key since start
+	 */
+	public long conflated() {
+		return conflated.sum();
+	}
+
+	private record Task(String conflationKey, Runnable runnable) {
+	}
+
+	private final class Lane {
+		private final String key;
+		private final ArrayDeque<Task> queue = new ArrayDeque<>();
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition notFull = lock.newCondition();
+		private boolean running;
+		/**
+		 * Drained and dropped from {@link KeyedSerialExecutor#lanes}, offers go to
+		 * a new lane
+		 */
+		private boolean removed;
+
+		private Lane(String key) {
+			this.key = key;
+		}
+
+		private int size() {
+			lock.lock();
+			try {
+				return queue.size();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private boolean isRunning() {
+			lock.lock();
+			try {
+				return running;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * @return {@code false} if the lane was dropped, the task has to be offered
+		 *         to the current lane of the key
+		 */
+		private boolean offer(Task task) {
+			boolean start;
+			lock.lock();
+			try {
+				if (queue.size() >= depth && !overflow(task)) {
+					return true;
+				}
+				// checked after overflow: a blocked submitter may wake up on a drained lane
+				if (removed) {
+					return false;
+				}
+				queue.addLast(task);
+				start = !running;
+				running = true;
+			} finally {
+				lock.unlock();
+			}
+			if (start) {
+				executor.execute(this::drain);
+			}
+			return true;
+		}
+
+		/**
+		 * @return {@code true} if the task has to be queued
+		 */
+		private boolean overflow(Task task) {
+			if (policy == OverflowPolicy.BLOCK) {
+				while (queue.size() >= depth) {
+					notFull.awaitUninterruptibly();
+				}
+				return true;
+			}
+			if (policy == OverflowPolicy.CONFLATE && conflate(task)) {
+				conflated.increment();
+				log.debug("[{}] conflated task [{}]", key, task.conflationKey());
+				return true;
+			}
+			var oldest = queue.pollFirst();
+			dropped.increment();
+			log.warn("[{}] lane is full ({} tasks), dropped oldest task [{}]", key, depth, oldest.conflationKey());
+			return true;
+		}
+
+		/**
+		 * Removes the queued task with the same conflation key, the new task is
+		 * queued at the tail so it never overtakes tasks submitted before it
+		 *
+		 * @return {@code true} if a queued task was removed
+		 */
+		private boolean conflate(Task task) {
+			if (task.conflationKey() == null) {
+				return false;
+			}
+			for (var queued = queue.iterator(); queued.hasNext();) {
+				if (task.conflationKey().equals(queued.next().conflationKey())) {
+					queued.remove();
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private void drain() {
+			for (;;) {
+				Task task;
+				lock.lock();
+				try {
+					task = queue.pollFirst();
+					if (task == null) {
+						running = false;
+						removed = true;
+						lanes.remove(key, this);
+						return;
+					}
+					notFull.signal();
+				} finally {
+					lock.unlock();
+				}
+				try {
+					task.runnable().run();
+				} catch (RuntimeException e) {
+					log.error("[{}] task [{}] failed", key, task.conflationKey(), e);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,261 @@
+package ru.datana.integration.opc.component;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ru.datana.integration.opc.config.RegistryProperties;
+import ru.datana.integration.opc.dto.SubscriptionSettings;
+import ru.datana.integration.opc.request.MappingDesc;
+
+/**
+ * Append-only journal of the model mappings and subscriptions, one JSON record
+ * per line.
+ * <p>
+ * The journal is loaded at startup, a torn last record of an interrupted write
+ * is skipped. It is compacted to the live models at startup and once the
+ * records appended since the last compaction reach the threshold and outnumber
+ * the live ones. Write failures are logged and do not fail the caller.
+ */
+@Slf4j
+@Component
+public class ModelJournal {
+
+	enum Op {
+		MAPPINGS, SUBSCRIBE, UNSUBSCRIBE, REMOVE
+	}
+
+	@JsonInclude(NON_NULL)
+	record Entry(Op op, String name, String env, Set<MappingDesc> mappings, Set<String> keys,
+			SubscriptionSettings settings) {
+	}
+
+	/**
+	 * Journaled model of an environment
+	 *
+	 * @param keys subscribed keys, {@code null} if not subscribed
+	 */
+	public record Model(String name, String env, Set<MappingDesc> mappings, Set<String> keys,
+			SubscriptionSettings settings) {
+	}
+
+	private final ObjectMapper mapper;
+	private final Path path;
+	private final int compactionThreshold;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Map<String, Map<String, Model>> models = new LinkedHashMap<>();
+	private FileChannel channel;
+	private int appended;
+
+	public ModelJournal(ObjectMapper mapper, RegistryProperties properties) {
+		this.mapper = mapper;
+		this.path = isBlank(properties.getJournal()) ? null : Path.of(properties.getJournal());
+		this.compactionThreshold = properties.getCompactionThreshold();
+	}
+
+	/**
+	 * Loads and compacts the journal
+	 */
+	@PostConstruct
+	public void open() throws IOException {
+		if (path == null) {
+			log.info("Model journal is disabled");
+			return;
+		}
+		lock.lock();
+		try {
+			if (Files.exists(path)) {
+				load();
+			} else if (path.getParent() != null) {
+				Files.createDirectories(path.getParent());
+			}
+			compact();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@PreDestroy
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			if (channel != null) {
+				channel.close();
+				channel = null;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return journaled models in registration order
+	 */
+	public List<Model> models() {
+		lock.lock();
+		try {
+			var res = new ArrayList<Model>();
+			models.values().forEach(envModels -> res.addAll(envModels.values()));
+			return res;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return journaled model, {@code null} if absent
+	 */
+	public Model find(String name, String env) {
+		lock.lock();
+		try {
+			var envModels = models.get(name);
+			return envModels == null ? null : envModels.get(env);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Mappings replaced, the subscription is dropped
+	 */
+	public void mappings(String name, String env, Set<MappingDesc> mappings) {
+		append(new Entry(Op.MAPPINGS, name, env, Set.copyOf(mappings), null, null));
+	}
+
+	public void subscribe(String name, String env, Set<String> keys, SubscriptionSettings settings) {
+		append(new Entry(Op.SUBSCRIBE, name, env, null, Set.copyOf(keys), settings));
+	}
+
+	public void unsubscribe(String name, String env) {
+		append(new Entry(Op.UNSUBSCRIBE, name, env, null, null, null));
+	}
+
+	/**
+	 * All environments of the model removed
+	 */
+	public void remove(String name) {
+		append(new Entry(Op.REMOVE, name, null, null, null, null));
+	}
+
+	private void append(Entry entry) {
+		if (path == null) {
+			return;
+		}
+		lock.lock();
+		try {
+			apply(entry);
+			if (channel == null) {
+				channel = FileChannel.open(path, CREATE, WRITE, APPEND);
+			}
+			write(channel, entry);
+			channel.force(false);
+			if (++appended >= compactionThreshold && appended >= liveRecords()) {
+				compact();
+			}
+		} catch (IOException e) {
+			log.error("Failure to journal {} of [{}@{}] to {}", entry.op(), entry.name(), entry.env(), path, e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void apply(Entry entry) {
+		switch (entry.op()) {
+		case MAPPINGS -> models.computeIfAbsent(entry.name(), __ -> new LinkedHashMap<>()).put(entry.env(),
+				new Model(entry.name(), entry.env(), entry.mappings(), null, null));
+		case SUBSCRIBE, UNSUBSCRIBE -> {
+			var envModels = models.get(entry.name());
+			var model = envModels == null ? null : envModels.get(entry.env());
+			if (model != null) {
+				envModels.put(entry.env(),
+						new Model(model.name(), model.env(), model.mappings(), entry.keys(), entry.settings()));
+			}
+		}
+		case REMOVE -> models.remove(entry.name());
+		}
+	}
+
+	private void load() throws IOException {
+		var lines = Files.readAllLines(path, UTF_8);
+		var skipped = 0;
+		for (var line : lines) {
+			if (line.isBlank()) {
+				continue;
+			}
+			try {
+				apply(mapper.readValue(line, Entry.class));
+			} catch (JsonProcessingException | RuntimeException e) {
+				skipped++;
+				log.warn("Skip unreadable model journal record [{}]: {}", line, e.getMessage());
+			}
+		}
+		log.info("Model journal {} loaded: {} records, {} skipped, {} live", path, lines.size(), skipped,
+				liveRecords());
+	}
+
+	private void compact() throws IOException {
+		var compacted = path.resolveSibling(path.getFileName() + ".compact");
+		try (var out = FileChannel.open(compacted, CREATE, WRITE, TRUNCATE_EXISTING)) {
+			for (var envModels : models.values()) {
+				for (var model : envModels.values()) {
+					write(out, new Entry(Op.MAPPINGS, model.name(), model.env(), model.mappings(), null, null));
+					if (model.keys() != null) {
+						write(out, new Entry(Op.SUBSCRIBE, model.name(), model.env(), null, model.keys(),
+								model.settings()));
+					}
+				}
+			}
+			out.force(true);
+		}
+		close();
+		Files.move(compacted, path, ATOMIC_MOVE, REPLACE_EXISTING);
+		channel = FileChannel.open(path, CREATE, WRITE, APPEND);
+		log.debug("Model journal {} compacted after {} records", path, appended);
+		appended = 0;
+	}
+
+	private int liveRecords() {
+		var res = 0;
+		for (var envModels : models.values()) {
+			for (var model : envModels.values()) {
+				res += model.keys() == null ? 1 : 2;
+			}
+		}
+		return res;
+	}
+
+	private void write(FileChannel out, Entry entry) throws IOException {
+		var bytes = mapper.writeValueAsBytes(entry);
+		var buffer = ByteBuffer.allocate(bytes.length + 1).put(bytes).put((byte) '\n').flip();
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+	}
+}
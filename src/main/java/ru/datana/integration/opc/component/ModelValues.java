@@ -0,0 +1,554 @@
+package ru.datana.integration.opc.component;
+
+import static ru.datana.integration.opc.util.TagValues.NO_TIME;
+import static ru.datana.integration.opc.util.TagValues.epochMillis;
+import static ru.datana.integration.opc.util.TagValues.status;
+import static ru.datana.integration.opc.util.TagValues.statusCode;
+import static ru.datana.integration.opc.util.TagValues.timestamp;
+import static ru.datana.integration.opc.util.TagValues.utcTime;
+
+import java.lang.invoke.VarHandle;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import ru.datana.integration.opc.component.ValueHistory.Samples;
+import ru.datana.integration.opc.config.HistoryProperties;
+import ru.datana.integration.opc.dto.HistoryPoint;
+import ru.datana.integration.opc.dto.ModelIndex;
+import ru.datana.integration.opc.dto.TagValue;
+import ru.datana.integration.opc.service.ControllerUpdateService;
+import ru.datana.integration.opc.util.TagValues;
+
+/**
+ * Value slots of a single model at a single environment.
+ * <p>
+ * Every distinct address of the {@link ModelIndex} is a dense integer handle
+ * (slot).
+ * Samples are kept in primitive arrays (value, UtcTime ticks, raw status code,
+ * local receive time) guarded by a per-slot sequence lock: writers of the same slot spin on the
+ * version, readers never block writers. {@link TagValue} objects are built
+ * only when a value is read. Every newer sample is also appended to the slot
+ * ring of {@link ValueHistory} (if enabled). Values restored from {@link ValueSnapshot}
+ * are served as {@link TagValue#SOURCE_SNAPSHOT} and do not count as received
+ * samples until the first live write. Instances are replaced (never mutated
+ * structurally) when mappings change; writers still holding the replaced
+ * instance are forwarded to its successor.
+ */
+public final class ModelValues {
+	private static final byte PRESENT = 1;
+	private static final byte HAS_VALUE = 2;
+	private static final byte RESTORED = 4;
+	private static final byte MOVED = 8;
+
+	/**
+	 * Consistent copy of a slot
+	 */
+	@FunctionalInterface
+	public interface SlotVisitor {
+		/**
+		 * @param handle   slot handle, {@code -1} for a value of an unmapped node
+		 * @param present  {@code false} if no sample was received yet
+		 * @param restored sample of the previous run (see {@link ValueSnapshot})
+		 */
+		void visit(int handle, boolean present, boolean hasValue, boolean restored, double value, long sourceTime,
+				long serverTime, long status);
+	}
+
+	private final ModelIndex index;
+	private final HistoryProperties historyProperties;
+	private final ValueHistory history;
+	private final boolean[] updates;
+	private final AtomicLongArray versions;
+	private final byte[] flags;
+	private final double[] values;
+	private final long[] sourceTimes;
+	private final long[] serverTimes;
+	private final long[] statuses;
+	/**
+	 * Epoch millis of the last write, {@code 0} if unknown
+	 */
+	private final long[] receivedTimes;
+	private final ConcurrentMap<String, TagValue> unmapped = new ConcurrentHashMap<>();
+	/**
+	 * Instance built by {@link #remap(ModelIndex)}, receives the writes of moved
+	 * slots
+	 */
+	private volatile ModelValues successor;
+
+	private ModelValues(ModelIndex index, HistoryProperties historyProperties) {
+		var size = index.slotCount();
+		this.index = index;
+		this.historyProperties = historyProperties;
+		this.history = historyProperties.getCapacity() > 0 && size > 0
+				? new ValueHistory(size, historyProperties.getCapacity())
+				: null;
+		this.updates = new boolean[size];
+		for (int i = 0; i < size; i++) {
+			updates[i] = index.slotKey(i).endsWith(ControllerUpdateService.UPDATE_SUFFIX);
+		}
+		this.versions = new AtomicLongArray(size);
+		this.flags = new byte[size];
+		this.values = new double[size];
+		this.sourceTimes = new long[size];
+		this.serverTimes = new long[size];
+		this.statuses = new long[size];
+		this.receivedTimes = new long[size];
+	}
+
+	static ModelValues empty(HistoryProperties historyProperties) {
+		return new ModelValues(ModelIndex.EMPTY, historyProperties);
+	}
+
+	/**
+	 * @return empty slots (and history) for the same index
+	 */
+	ModelValues cleared() {
+		return new ModelValues(index, historyProperties);
+	}
+
+	/**
+	 * Builds slots for {@code newIndex} and carries over every value and history
+	 * sample known to this instance. Slots are moved one by one under their
+	 * sequence lock, writes that still reach this instance afterwards are
+	 * forwarded to the new one.
+	 */
+	ModelValues remap(ModelIndex newIndex) {
+		var res = new ModelValues(newIndex, historyProperties);
+		successor = res;
+		unmapped.forEach(res::carry);
+		for (int handle = 0; handle < index.slotCount(); handle++) {
+			move(handle, res);
+		}
+		return res;
+	}
+
+	public ModelIndex index() {
+		return index;
+	}
+
+	boolean isEmpty() {
+		return index.slotCount() == 0;
+	}
+
+	/**
+	 * @return value slots and cached values of unmapped nodes
+	 */
+	int size() {
+		return index.slotCount() + unmapped.size();
+	}
+
+	/**
+	 * @return slot handle of the node or {@code -1} if the node is not mapped
+	 */
+	public int handle(String nodeId) {
+		return index.slotOf(nodeId);
+	}
+
+	String nodeId(int handle) {
+		return index.slotAddress(handle);
+	}
+
+	String key(int handle) {
+		return index.slotKey(handle);
+	}
+
+	/**
+	 * @return slot version, changed by every write (odd while a write is in
+	 *         progress)
+	 */
+	public long version(int handle) {
+		return versions.get(handle);
+	}
+
+	/**
+	 * @return {@code true} if changes of the slot are forwarded to the controller
+	 */
+	boolean isUpdate(int handle) {
+		return updates[handle];
+	}
+
+	/**
+	 * Stores sample into the slot.
+	 *
+	 * @return {@code true} if the slot already had a sample
+	 */
+	boolean write(int handle, boolean hasValue, double value, long sourceTime, long serverTime, long status) {
+		var model = this;
+		var version = lock(handle);
+		// iterative: a stale writer may trail a long chain of remapped instances
+		while (model.isMoved(handle, version)) {
+			var next = model.successor;
+			var moved = next.handle(model.nodeId(handle));
+			if (moved < 0) {
+				return next.setUnmapped(model.nodeId(handle),
+						tagValue(hasValue, value, sourceTime, serverTime, status)) != null;
+			}
+			model = next;
+			handle = moved;
+			version = model.lock(handle);
+		}
+		return model.update(handle, version, hasValue, value, sourceTime, serverTime, status);
+	}
+
+	private boolean update(int handle, long version, boolean hasValue, double value, long sourceTime, long serverTime,
+			long status) {
+		var present = (flags[handle] & (PRESENT | RESTORED)) == PRESENT;
+		record(handle, hasValue, value, sourceTime, serverTime, status);
+		store(handle, hasValue, value, sourceTime, serverTime, status);
+		versions.set(handle, version + 1);
+		return present;
+	}
+
+	/**
+	 * Stores sample into the slot.
+	 *
+	 * @return previous slot value
+	 */
+	TagValue exchange(int handle, boolean hasValue, double value, long sourceTime, long serverTime, long status) {
+		var model = this;
+		var version = lock(handle);
+		while (model.isMoved(handle, version)) {
+			var next = model.successor;
+			var moved = next.handle(model.nodeId(handle));
+			if (moved < 0) {
+				next.setUnmapped(model.nodeId(handle), tagValue(hasValue, value, sourceTime, serverTime, status));
+				return null;
+			}
+			model = next;
+			handle = moved;
+			version = model.lock(handle);
+		}
+		return model.exchange(handle, version, hasValue, value, sourceTime, serverTime, status);
+	}
+
+	private TagValue exchange(int handle, long version, boolean hasValue, double value, long sourceTime,
+			long serverTime, long status) {
+		var previous = (flags[handle] & (PRESENT | RESTORED)) == PRESENT
+				? tagValue((flags[handle] & HAS_VALUE) != 0, values[handle], sourceTimes[handle], serverTimes[handle],
+						statuses[handle])
+				: null;
+		record(handle, hasValue, value, sourceTime, serverTime, status);
+		store(handle, hasValue, value, sourceTime, serverTime, status);
+		versions.set(handle, version + 1);
+		return previous;
+	}
+
+	/**
+	 * Stores sample of the previous run into an empty slot.
+	 *
+	 * @return {@code false} if the slot already has a sample
+	 */
+	boolean restore(int handle, boolean hasValue, double value, long sourceTime, long serverTime, long status) {
+		var version = lock(handle);
+		var empty = (flags[handle] & PRESENT) == 0;
+		if (empty) {
+			store(handle, hasValue, value, sourceTime, serverTime, status);
+			flags[handle] |= RESTORED;
+			receivedTimes[handle] = 0;
+		}
+		versions.set(handle, version + 1);
+		return empty;
+	}
+
+	/**
+	 * Visits consistent copies of all slots in handle order
+	 */
+	void forEachSlot(SlotVisitor visitor) {
+		for (int handle = 0; handle < index.slotCount(); handle++) {
+			visit(handle, visitor);
+		}
+	}
+
+	/**
+	 * Visits consistent copy of the mapping value without building a
+	 * {@link TagValue}
+	 *
+	 * @param position mapping position at {@code positionIndex}
+	 */
+	public void visit(ModelIndex positionIndex, int position, SlotVisitor visitor) {
+		if (positionIndex == index) {
+			visit(index.slot(position), visitor);
+			return;
+		}
+		var address = positionIndex.address(position);
+		var handle = handle(address);
+		if (handle >= 0) {
+			visit(handle, visitor);
+			return;
+		}
+		var value = unmapped.get(address);
+		if (value == null) {
+			visitor.visit(-1, false, false, false, 0, NO_TIME, NO_TIME, TagValues.NO_STATUS);
+		} else {
+			var number = value.getValue();
+			visitor.visit(-1, true, number != null, false, number == null ? 0 : number.doubleValue(),
+					utcTime(value.getSourceTimestamp()), utcTime(value.getServerTimestamp()),
+					statusCode(value.getStatus()));
+		}
+	}
+
+	private void visit(int handle, SlotVisitor visitor) {
+		for (;;) {
+			var version = versions.get(handle);
+			if ((version & 1) != 0) {
+				Thread.onSpinWait();
+				continue;
+			}
+			var flag = flags[handle];
+			var value = values[handle];
+			var sourceTime = sourceTimes[handle];
+			var serverTime = serverTimes[handle];
+			var status = statuses[handle];
+			VarHandle.acquireFence();
+			if (versions.get(handle) == version) {
+				visitor.visit(handle, (flag & PRESENT) != 0, (flag & HAS_VALUE) != 0, (flag & RESTORED) != 0, value,
+						sourceTime, serverTime, status);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return consistent slot value or {@code null} if no sample was received yet
+	 */
+	TagValue get(int handle) {
+		return get(handle, Long.MIN_VALUE);
+	}
+
+	/**
+	 * @return consistent slot value or {@code null} if no sample was received
+	 *         since {@code receivedSince} (epoch millis)
+	 */
+	private TagValue get(int handle, long receivedSince) {
+		for (;;) {
+			var version = versions.get(handle);
+			if ((version & 1) != 0) {
+				Thread.onSpinWait();
+				continue;
+			}
+			var flag = flags[handle];
+			var value = values[handle];
+			var sourceTime = sourceTimes[handle];
+			var serverTime = serverTimes[handle];
+			var status = statuses[handle];
+			var receivedTime = receivedTimes[handle];
+			VarHandle.acquireFence();
+			if (versions.get(handle) == version) {
+				if ((flag & PRESENT) == 0 || receivedTime < receivedSince) {
+					return null;
+				}
+				var res = tagValue((flag & HAS_VALUE) != 0, value, sourceTime, serverTime, status);
+				return (flag & RESTORED) == 0 ? res : res.toBuilder().source(TagValue.SOURCE_SNAPSHOT).build();
+			}
+		}
+	}
+
+	/**
+	 * Stores value of a node without registered mapping key.
+	 *
+	 * @return previous value
+	 */
+	TagValue setUnmapped(String nodeId, TagValue value) {
+		var res = unmapped.put(nodeId, value);
+		for (var next = successor; next != null; next = next.successor) {
+			var handle = next.handle(nodeId);
+			if (handle >= 0) {
+				var number = value.getValue();
+				next.write(handle, number != null, number == null ? 0 : number.doubleValue(),
+						utcTime(value.getSourceTimestamp()), utcTime(value.getServerTimestamp()),
+						statusCode(value.getStatus()));
+				break;
+			}
+			next.unmapped.put(nodeId, value);
+		}
+		return res;
+	}
+
+	/**
+	 * @param position mapping position at {@code positionIndex}
+	 * @return value of the mapping, {@code null} if there is no value yet
+	 */
+	public TagValue get(ModelIndex positionIndex, int position) {
+		if (positionIndex == index) {
+			return get(index.slot(position));
+		}
+		var address = positionIndex.address(position);
+		var handle = handle(address);
+		return handle < 0 ? unmapped.get(address) : get(handle);
+	}
+
+	/**
+	 * @param position      mapping position at {@code positionIndex}
+	 * @param receivedSince epoch millis
+	 * @return value of the mapping received since {@code receivedSince},
+	 *         {@code null} if there is none
+	 */
+	public TagValue getFresh(ModelIndex positionIndex, int position, long receivedSince) {
+		var handle = positionIndex == index ? index.slot(position) : handle(positionIndex.address(position));
+		return handle < 0 ? null : get(handle, receivedSince);
+	}
+
+	/**
+	 * @param position mapping position at {@code positionIndex}
+	 * @param from     epoch millis, inclusive; start of the first bucket
+	 * @param to       epoch millis, exclusive
+	 * @param step     bucket length in millis, raw samples if not positive
+	 * @return history of the mapping within retention, oldest first
+	 */
+	public List<HistoryPoint> history(ModelIndex positionIndex, int position, long from, long to, long step) {
+		return samples(positionIndex, position, from, to).points(from, step);
+	}
+
+	private Samples samples(ModelIndex positionIndex, int position, long from, long to) {
+		var handle = positionIndex == index ? index.slot(position) : handle(positionIndex.address(position));
+		if (history == null || handle < 0) {
+			return Samples.EMPTY;
+		}
+		var start = Math.max(from, System.currentTimeMillis() - historyProperties.getRetention().toMillis());
+		for (;;) {
+			var version = versions.get(handle);
+			if ((version & 1) != 0) {
+				Thread.onSpinWait();
+				continue;
+			}
+			var samples = history.read(handle, start, to);
+			VarHandle.acquireFence();
+			if (versions.get(handle) == version) {
+				return samples;
+			}
+		}
+	}
+
+	/**
+	 * @return node identifier -> value copy of all known values
+	 */
+	Map<String, TagValue> snapshot() {
+		var res = new HashMap<String, TagValue>(unmapped);
+		for (int i = 0; i < index.slotCount(); i++) {
+			var value = get(i);
+			if (value != null) {
+				res.put(index.slotAddress(i), value);
+			}
+		}
+		return res;
+	}
+
+	static TagValue tagValue(boolean hasValue, double value, long sourceTime, long serverTime, long status) {
+		return TagValue.builder().value(hasValue ? value : null).sourceTimestamp(timestamp(sourceTime))
+				.serverTimestamp(timestamp(serverTime)).status(status(status)).build();
+	}
+
+	/**
+	 * Stores value carried over from the replaced instance unless a newer one
+	 * was already forwarded
+	 */
+	private void carry(String nodeId, TagValue value) {
+		var handle = handle(nodeId);
+		if (handle < 0) {
+			unmapped.putIfAbsent(nodeId, value);
+			return;
+		}
+		var version = lock(handle);
+		if ((flags[handle] & PRESENT) == 0) {
+			var number = value.getValue();
+			store(handle, number != null, number == null ? 0 : number.doubleValue(), utcTime(value.getSourceTimestamp()),
+					utcTime(value.getServerTimestamp()), statusCode(value.getStatus()));
+			if (TagValue.SOURCE_SNAPSHOT.equals(value.getSource())) {
+				flags[handle] |= RESTORED;
+			}
+			receivedTimes[handle] = 0;
+		}
+		versions.set(handle, version + 1);
+	}
+
+	/**
+	 * Moves the slot (value, receive time and history) to {@code target} under
+	 * the slot lock, later writes of the slot go to {@code target}
+	 */
+	private void move(int handle, ModelValues target) {
+		var version = lock(handle);
+		var flag = flags[handle];
+		var targetHandle = target.handle(nodeId(handle));
+		if (targetHandle < 0) {
+			if ((flag & PRESENT) != 0) {
+				var value = tagValue((flag & HAS_VALUE) != 0, values[handle], sourceTimes[handle], serverTimes[handle],
+						statuses[handle]);
+				target.carry(nodeId(handle), (flag & RESTORED) == 0 ? value
+						: value.toBuilder().source(TagValue.SOURCE_SNAPSHOT).build());
+			}
+		} else {
+			var targetVersion = target.lock(targetHandle);
+			target.flags[targetHandle] = flag;
+			target.values[targetHandle] = values[handle];
+			target.sourceTimes[targetHandle] = sourceTimes[handle];
+			target.serverTimes[targetHandle] = serverTimes[handle];
+			target.statuses[targetHandle] = statuses[handle];
+			target.receivedTimes[targetHandle] = receivedTimes[handle];
+			if (history != null && target.history != null) {
+				target.history.copy(history, handle, targetHandle);
+			}
+			target.versions.set(targetHandle, targetVersion + 1);
+		}
+		flags[handle] = (byte) (flag | MOVED);
+		versions.set(handle, version + 1);
+	}
+
+	/**
+	 * Releases the locked slot if it was moved to the successor
+	 *
+	 * @return {@code true} if the write belongs to the successor
+	 */
+	private boolean isMoved(int handle, long version) {
+		if ((flags[handle] & MOVED) == 0) {
+			return false;
+		}
+		versions.set(handle, version + 1);
+		return true;
+	}
+
+	private long lock(int handle) {
+		for (;;) {
+			var version = versions.get(handle);
+			if ((version & 1) == 0 && versions.compareAndSet(handle, version, version + 1)) {
+				return version + 1;
+			}
+			Thread.onSpinWait();
+		}
+	}
+
+	/**
+	 * Appends sample to the slot history, called before the sample is stored.
+	 * Reads and write echoes repeat the sample of the slot, so a sample whose
+	 * source time (server time if there is none) is not newer than the stored
+	 * one is skipped.
+	 */
+	private void record(int handle, boolean hasValue, double value, long sourceTime, long serverTime, long status) {
+		if (history != null && isNewer(handle, sourceTime, serverTime)) {
+			var time = sourceTime != NO_TIME ? epochMillis(sourceTime)
+					: serverTime != NO_TIME ? epochMillis(serverTime) : System.currentTimeMillis();
+			history.append(handle, time, hasValue ? value : Double.NaN, status);
+		}
+	}
+
+	private boolean isNewer(int handle, long sourceTime, long serverTime) {
+		if ((flags[handle] & PRESENT) == 0) {
+			return true;
+		}
+		var time = sourceTime != NO_TIME ? sourceTime : serverTime;
+		var last = sourceTime != NO_TIME ? sourceTimes[handle] : serverTimes[handle];
+		return time == NO_TIME || last == NO_TIME || time > last;
+	}
+
+	private void store(int handle, boolean hasValue, double value, long sourceTime, long serverTime, long status) {
+		flags[handle] = hasValue ? PRESENT | HAS_VALUE : PRESENT;
+		values[handle] = value;
+		sourceTimes[handle] = sourceTime;
+		serverTimes[handle] = serverTime;
+		statuses[handle] = status;
+		receivedTimes[handle] = System.currentTimeMillis();
+	}
+}
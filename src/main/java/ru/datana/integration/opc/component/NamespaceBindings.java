@@ -0,0 +1,86 @@
+package ru.datana.integration.opc.component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.milo.opcua.stack.core.NamespaceTable;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Namespace index requested by a mapping to the actual index at a server, by
+ * environment.
+ * <p>
+ * A requested index is bound to the namespace URI it had when first resolved,
+ * later resolutions follow the URI if the server namespace array is reordered.
+ * An index unknown to the server is used as is.
+ */
+@Slf4j
+public final class NamespaceBindings {
+	private final ConcurrentMap<String, ConcurrentMap<Integer, Binding>> bindings = new ConcurrentHashMap<>();
+
+	private static record Binding(String uri, int index) {
+	}
+
+	/**
+	 * @return actual namespace index of {@code requestedIndex} at {@code table}
+	 */
+	public int resolve(String env, int requestedIndex, NamespaceTable table) {
+		var cache = bindings.computeIfAbsent(env, __ -> new ConcurrentHashMap<>());
+		var binding = cache.compute(requestedIndex, (idx, existing) -> {
+			if (existing == null || existing.uri() == null) {
+				var uri = safeResolveUri(table, idx);
+				if (uri != null) {
+					var actual = safeResolveIndex(table, uri);
+					if (actual >= 0) {
+						return new Binding(uri, actual);
+					}
+				}
+				return new Binding(null, idx);
+			} else {
+				var actual = safeResolveIndex(table, existing.uri());
+				if (actual >= 0) {
+					return new Binding(existing.uri(), actual);
+				}
+				var uri = safeResolveUri(table, idx);
+				if (uri != null) {
+					actual = safeResolveIndex(table, uri);
+					if (actual >= 0) {
+						return new Binding(uri, actual);
+					}
+				}
+				return new Binding(existing.uri(), idx);
+			}
+		});
+		return binding.index();
+	}
+
+	/**
+	 * Drops the bindings of the environment
+	 */
+	public void clear(String env) {
+		bindings.remove(env);
+	}
+
+	private static String safeResolveUri(NamespaceTable table, int index) {
+		try {
+			return table.getUri(index);
+		} catch (Exception e) {
+			log.warn("Failed to resolve namespace URI for index [{}]: {}", index, e.getMessage());
+			return null;
+		}
+	}
+
+	private static int safeResolveIndex(NamespaceTable table, String uri) {
+		if (uri == null) {
+			return -1;
+		}
+		try {
+			var resolved = table.getIndex(uri);
+			return resolved != null ? resolved.intValue() : -1;
+		} catch (Exception e) {
+			log.warn("Failed to resolve namespace index for URI [{}]: {}", uri, e.getMessage());
+			return -1;
+		}
+	}
+}
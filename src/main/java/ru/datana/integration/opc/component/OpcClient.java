@@ -5,14 +5,16 @@ import static java.nio.file.Files.createDirectories;
 import static java.nio.file.Files.exists;
 import static java.time.Duration.between;
 import static java.time.Instant.now;
+import static java.util.Collections.synchronizedMap;
 import static java.util.Objects.requireNonNull;
 import static java.util.Optional.ofNullable;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static org.apache.commons.lang3.StringUtils.isBlank;
-import static org.eclipse.milo.opcua.stack.client.DiscoveryClient.getEndpoints;
 import static org.eclipse.milo.opcua.stack.core.AttributeId.Value;
 import static org.eclipse.milo.opcua.stack.core.StatusCodes.lookup;
 import static org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText.english;
@@ -31,25 +33,36 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.sdk.client.api.config.OpcUaClientConfig;
 import org.eclipse.milo.opcua.sdk.client.api.identity.AnonymousProvider;
+import org.eclipse.milo.opcua.sdk.client.api.identity.IdentityProvider;
 import org.eclipse.milo.opcua.sdk.client.api.identity.UsernameProvider;
+import org.eclipse.milo.opcua.sdk.client.api.subscriptions.UaSubscription;
 import org.eclipse.milo.opcua.sdk.client.nodes.UaNode;
 import org.eclipse.milo.opcua.sdk.client.subscriptions.ManagedDataItem;
 import org.eclipse.milo.opcua.sdk.client.subscriptions.ManagedSubscription;
 import org.eclipse.milo.opcua.sdk.client.subscriptions.ManagedSubscription.StatusListener;
 import org.eclipse.milo.opcua.stack.client.security.DefaultClientCertificateValidator;
 import org.eclipse.milo.opcua.stack.core.Identifiers;
-import org.eclipse.milo.opcua.stack.core.NamespaceTable;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
 import org.eclipse.milo.opcua.stack.core.UaException;
 import org.eclipse.milo.opcua.stack.core.security.DefaultTrustListManager;
 import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
@@ -59,7 +72,10 @@ import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
 import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
 import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.EndpointDescription;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadResponse;
 import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.eclipse.milo.opcua.stack.core.types.structured.WriteResponse;
 import org.eclipse.milo.opcua.stack.core.types.structured.WriteValue;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -70,20 +86,34 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import ru.datana.integration.opc.dto.TagValue;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import ru.datana.integration.opc.component.ServerMetadataCache.OperationLimits;
+import ru.datana.integration.opc.component.SessionPool.Role;
+import ru.datana.integration.opc.component.SharedSubscription.Created;
+import ru.datana.integration.opc.component.SharedSubscription.ItemKey;
 import ru.datana.integration.opc.config.OpcEndpointsConfiguraiton;
 import ru.datana.integration.opc.config.OpcEndpointsConfiguraiton.OpcEndpoint;
+import ru.datana.integration.opc.dto.ItemSampling;
 import ru.datana.integration.opc.dto.Mapping;
+import ru.datana.integration.opc.dto.ModelIndex;
+import ru.datana.integration.opc.dto.SubscriptionSettings;
 import ru.datana.integration.opc.exception.InitializationException;
 import ru.datana.integration.opc.exception.InternalErrorException;
 import ru.datana.integration.opc.exception.ResourceNotFoundException;
+import ru.datana.integration.opc.exception.ServiceUnavailableException;
 import ru.datana.integration.opc.exception.SubscriptionException;
 import ru.datana.integration.opc.listener.OpcSubscriptionListener;
-import ru.datana.integration.opc.request.MappingDesc;
 
 /**
+ * Only connection lifecycle (connect / reconnect / client swap) of an
+ * environment is exclusive. Reads and writes use the current client without
+ * locking, so requests of different callers are pipelined on the session;
+ * subscription changes of a model serialize against themselves only.
+ *
  * @see https://documentation.unified-automation.com/uasdkcpp/1.7.0/html/L1OpcUaFundamentals.html
  */
 @Component
@@ -99,6 +129,23 @@ public class OpcClient implements StatusListener {
                 }
         }
 
+        public enum ConnectionState {
+                CONNECTING, CONNECTED, FAILED
+        }
+
+        /**
+         * @param startupMs duration of the initial connection attempt, {@code null}
+         *                  while it is running
+         */
+        public static record EnvironmentStatus(ConnectionState state, Long startupMs) {
+        }
+
+        /**
+         * Compiled mappings of a subscribed model, used to rebuild its subscription
+         */
+        private static record SubscribedModel(ModelIndex index, int[] positions, SubscriptionSettings settings) {
+        }
+
         public static final String IOT_HUB = "IOT";
         private static final String ENV = "ENVIRONMENT";
         private static final String APP_NAME = "datana-opc-client";
@@ -108,15 +155,38 @@ public class OpcClient implements StatusListener {
 	private final KeyStoreLoader keyStoreLoader;
 
 	private final OpcEndpointsConfiguraiton opcConfig;
-        private final ConcurrentMap<String, ConcurrentMap<String, ManagedSubscription>> subscriptions = new ConcurrentHashMap<>();
+        /**
+         * Monitored items of an environment shared by its models, by publishing
+         * interval
+         */
+        private final ConcurrentMap<String, ConcurrentMap<Double, SharedSubscription>> subscriptions = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, ConcurrentMap<String, SubscribedModel>> subscribedModels = new ConcurrentHashMap<>();
         private final ValueManager valueManager;
+        private final MeterRegistry meterRegistry;
+        private final ServerMetadataCache metadataCache;
         private Set<OpcEndpoint> resolvedProviders = Set.of();
 
         private DefaultClientCertificateValidator certificateValidator;
+        /**
+         * Primary client of an environment, holds its subscriptions
+         */
         private final ConcurrentMap<String, OpcUaClient> clients = new ConcurrentHashMap<>();
-        private final ConcurrentMap<String, ConcurrentMap<Integer, NamespaceBinding>> namespaceCache = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, SessionPool> sessionPools = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, ReadCoalescer> readCoalescers = new ConcurrentHashMap<>();
+        private final NamespaceBindings namespaceBindings = new NamespaceBindings();
+        private final ConcurrentMap<String, Map<ModelIndex, NodeId[]>> resolvedNodes = new ConcurrentHashMap<>();
         private final ConcurrentMap<String, OpcEndpoint> failedEndpoints = new ConcurrentHashMap<>();
-        private final ConcurrentMap<String, ReentrantLock> envLocks = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, EnvironmentStatus> statuses = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, CompletableFuture<Boolean>> startups = new ConcurrentHashMap<>();
+        /**
+         * Connection lifecycle (connect / reconnect / client swap) of an environment
+         */
+        private final ConcurrentMap<String, ReentrantLock> connectionLocks = new ConcurrentHashMap<>();
+        /**
+         * Subscription lifecycle of a model at an environment, taken before the
+         * connection lock of the environment when both are needed
+         */
+        private final ConcurrentMap<String, ConcurrentMap<String, ReentrantLock>> modelLocks = new ConcurrentHashMap<>();
 
         @Value("${subscriptionIntervalInMs:100}")
         private int subscriptionIntervalInMs;
@@ -128,6 +198,30 @@ public class OpcClient implements StatusListener {
         private long opcRequestTimeoutMs;
         @Value("${opc.client.disconnect-threshold-seconds:30}")
         private int disconnectionThresholdSeconds;
+        @Value("${opc.client.startup-deadline-ms:10000}")
+        private long startupDeadlineMs;
+        /**
+         * Upper bound of a single service call size, the server operation limits
+         * may lower it; non-positive means no client limit
+         */
+        @Value("${opc.client.max-items-per-call:1000}")
+        private int maxItemsPerCall;
+        @Value("${opc.client.parallel-calls:4}")
+        private int parallelCalls;
+        @Value("${opc.client.sessions.interactive:1}")
+        private int interactiveSessions;
+        @Value("${opc.client.sessions.bulk:2}")
+        private int bulkSessions;
+        /**
+         * Reads of more nodes go to the bulk sessions
+         */
+        @Value("${opc.client.sessions.bulk-threshold:100}")
+        private int bulkThreshold;
+        /**
+         * Value reads of an environment arriving within this window are merged
+         */
+        @Value("${opc.client.read-coalesce-window-ms:5}")
+        private long readCoalesceWindowMs;
 
 	@PostConstruct
 	public void init() throws Exception {
@@ -159,27 +253,51 @@ public class OpcClient implements StatusListener {
 		}
 
                 resolvedProviders = Set.copyOf(providers);
+                resolvedProviders.forEach(this::startup);
+        }
+
+        /**
+         * @return environment -> connection state and startup timing
+         */
+        public Map<String, EnvironmentStatus> getEnvironmentStatuses() {
+                return Map.copyOf(statuses);
+        }
 
-                resolvedProviders.stream().filter(p -> p.getType().equals(IOTHUB)).forEach(this::connectIoTHub);
-                resolvedProviders.stream().filter(p -> p.getType().equals(SIMULATOR)).forEach(this::connectSimulator);
-                connectAll();
+        /**
+         * @return operation limits of the environment server,
+         *         {@link OperationLimits#UNLIMITED} if not known yet
+         */
+        public OperationLimits getOperationLimits(String env) {
+                return resolvedProviders.stream().filter(p -> env.equals(p.getName())).findAny()
+                                .map(p -> metadataCache.limits(p.getUrl())).orElse(OperationLimits.UNLIMITED);
         }
 
         @Scheduled(cron = "${opc.client.availability-cron:0 0/1 * * * *}")
         public void checkAvailability() {
                 log.debug("Checking ENV availabilities");
+                var failed = List.copyOf(failedEndpoints.values());
                 resolvedProviders.stream().forEach(this::checkAvailability);
-                failedEndpoints.values().stream().forEach(this::connectEndpoint);
+                failed.forEach(this::recover);
+                sessionPools.values().forEach(pool -> pool.check(SECONDS.toMillis(disconnectionThresholdSeconds)));
+        }
+
+        public void subscribe(String name, String env, ModelIndex index, int[] positions) {
+                subscribe(name, env, index, positions, SubscriptionSettings.DEFAULT);
         }
 
-        public void subscribe(String name, String env, Set<MappingDesc> descriptions) {
-                log.debug(IN_3, name, env, descriptions);
-                var lock = lockFor(env);
+        /**
+         * Subscribes mappings at {@code positions}, monitored item settings of a
+         * mapping override the model ones from {@code settings}. The model moves to
+         * the shared subscription of its publishing interval.
+         */
+        public void subscribe(String name, String env, ModelIndex index, int[] positions,
+                        SubscriptionSettings settings) {
+                log.debug(IN_3, name, env, positions.length);
+                var lock = modelLock(name, env);
                 lock.lock();
                 try {
-                        var envSubscriptions = subscriptions.computeIfAbsent(env, __ -> new ConcurrentHashMap<>());
-                        ofNullable(envSubscriptions.get(name)).ifPresent(s -> unsubscribe(env, name));
                         try {
+                                awaitStartup(env);
                                 var client = clients.get(env);
                                 if (client == null) {
                                         var endpoint = ofNullable(failedEndpoints.get(env))
@@ -192,26 +310,34 @@ public class OpcClient implements StatusListener {
                                         }
                                 }
 
-                                var subscription = ManagedSubscription.createAsync(client, subscriptionIntervalInMs)
-                                                .get(opcTimeoutMs, MILLISECONDS);
+                                var interval = publishingInterval(settings);
+                                var shared = sharedSubscription(env, client, interval);
                                 var clientRef = client;
-                                var mappings = descriptions.stream().map(desc -> toMapping(env, clientRef, desc))
+                                var mappings = Arrays.stream(positions).mapToObj(i -> toMapping(env, clientRef, index, i))
                                                 .collect(toList());
                                 mappings.forEach(mapping -> log.info("Subscribing [{}@{}] tag [{}] with path [{}]", name, env,
                                                 mapping.getKey(), mapping.buildAddress()));
-                                var errors = mappings.stream().map(m -> addItem(m, subscription))
+                                var keys = IntStream.range(0, positions.length)
+                                                .mapToObj(i -> new ItemKey(mappings.get(i).getNodeId(), ItemSampling.resolve(
+                                                                index.desc(positions[i]).getSampling(), settings.sampling(), interval)))
+                                                .toList();
+                                var codes = shared.acquire(name, new OpcSubscriptionListener(valueManager, name, env, meterRegistry), keys);
+                                var errors = IntStream.range(0, codes.length)
+                                                .mapToObj(i -> lateValidationError(mappings.get(i), codes[i]))
                                                 .filter(Objects::nonNull)
                                                 .map(ed -> new SubscriptionException.ErrorDescription(ed.message, "MAPPING",
                                                                 ed.address()))
                                                 .collect(toSet());
                                 if (!errors.isEmpty()) {
+                                        sharedSubscriptions(env).forEach(s -> s.release(name));
+                                        ofNullable(subscribedModels.get(env)).ifPresent(models -> models.remove(name));
                                         throw new SubscriptionException(errors);
                                 }
-                                subscription.addChangeListener(new OpcSubscriptionListener(valueManager, name, env));
-                                subscription.addStatusListener(this);
-                                envSubscriptions.put(name, subscription);
-                                valueManager.registerMappings(name, env, descriptions);
-                                getAllValues(name, env, descriptions);
+                                sharedSubscriptions(env).stream().filter(s -> s != shared && s.contains(name))
+                                                .forEach(s -> s.release(name));
+                                subscribedModels.computeIfAbsent(env, __ -> new ConcurrentHashMap<>()).put(name,
+                                                new SubscribedModel(index, positions, settings));
+                                getAllValues(name, env, index, positions);
                         } catch (InterruptedException | ExecutionException | TimeoutException e) {
                                 var message = "Failure to create [%s] subscription at [%s] environment".formatted(name, env);
                                 log.error(message, e);
@@ -225,32 +351,23 @@ public class OpcClient implements StatusListener {
 
         public boolean unsubscribe(String name, String env) {
                 log.debug(IN_2, name, env);
-                var lock = lockFor(env);
+                var lock = modelLock(name, env);
                 lock.lock();
                 try {
-                        var envSubscriptions = subscriptions.get(env);
-                        if (envSubscriptions == null) {
+                        var owners = sharedSubscriptions(env).stream().filter(s -> s.contains(name)).toList();
+                        if (owners.isEmpty()) {
                                 log.warn("Unknown subscription: {}@{}", name, env);
                                 log.debug(OUT_1, true);
                                 return true;
                         }
-                        var subscription = envSubscriptions.remove(name);
-                        if (subscription != null) {
-                                try {
-                                        subscription.deleteAsync().get(opcTimeoutMs, MILLISECONDS);
-                                        valueManager.remove(name, env);
-                                        log.debug(OUT_1, true);
-                                        return true;
-                                } catch (InterruptedException | ExecutionException | TimeoutException e) {
-                                        log.error("Failure to delete [%s] subscription at [%s] environment".formatted(name, env),
-                                                        e);
-                                        envSubscriptions.put(name, subscription);
-                                }
-                        } else {
-                                log.warn("Unknown subscription: {}@{}", name, env);
+                        var released = owners.stream().map(s -> s.release(name)).toList();
+                        if (!released.contains(false)) {
+                                ofNullable(subscribedModels.get(env)).ifPresent(models -> models.remove(name));
+                                valueManager.clear(name, env);
                                 log.debug(OUT_1, true);
                                 return true;
                         }
+                        log.error("Failure to delete [{}] subscription items at [{}] environment", name, env);
                         log.debug(OUT_1, false);
                         return false;
                 } finally {
@@ -258,101 +375,87 @@ public class OpcClient implements StatusListener {
                 }
         }
 
-        public Map<String, TagValue> getValues(String name, String env) {
-                log.debug(IN_2, name, env);
-                var res = valueManager.getValues(name, env);
-                log.debug(OUT_1, res);
-                return res;
-        }
+        public Map<String, TagValue> getAllValues(String name, String env, ModelIndex index, int[] positions) {
+                log.debug(IN_3, name, env, positions.length);
+                var values = new HashMap<String, TagValue>();
+                var client = getClient(env);
+                // Do not treat Bad status as missing mapping; return it with status="Bad"
+                var nodeIds = new ArrayList<NodeId>(positions.length);
+                for (var position : positions) {
+                        nodeIds.add(resolveNodeId(env, client, index, position));
+                }
 
-        public Map<String, TagValue> getAllValues(String name, String env, Set<MappingDesc> descriptions) {
-                log.debug(IN_3, name, env, descriptions);
-                var lock = lockFor(env);
-                lock.lock();
                 try {
-                        var values = new HashMap<String, TagValue>();
-                        var client = getClient(env);
-                        // Do not treat Bad status as missing mapping; return it with status="Bad"
-                        var mappings = descriptions.stream().map(desc -> toMapping(env, client, desc)).collect(toSet());
-                        List<ReadValueId> readValueIds = new ArrayList<>();
-                        mappings.forEach(m -> readValueIds.add(ReadValueId.builder().nodeId(m.getNodeId()).attributeId(Value.uid())
-                                        .indexRange(null).dataEncoding(NULL_VALUE).build()));
-
-                        try {
-                                var results = client.read(0.0, TimestampsToReturn.Both, readValueIds)
-                                                .get(opcTimeoutMs, MILLISECONDS).getResults();
-                                int i = 0;
-                                for (var it = mappings.iterator(); it.hasNext();) {
-                                        var mapping = it.next();
-                                        var key = mapping.getKey();
-                                        var dv = results[i];
-                                        var statusCode = dv.getStatusCode();
-                                        var tv = toTagValue(dv);
-                                        values.put(key, tv);
-                                        if (statusCode.isGood()) {
-                                                valueManager.setValue(name, env,
-                                                                mapping.getNodeId().getIdentifier().toString(), tv);
-                                        } else if (!statusCode.isUncertain()) {
-                                                // Keep returning the value with status="Bad" but log it for observability
-                                                log.warn("Tag [{}] returned non-good status: {}", key, statusCode);
-                                        }
-                                        i++;
+                        var results = readCoalescers.computeIfAbsent(env,
+                                        __ -> new ReadCoalescer(env, readCoalesceWindowMs, ids -> readValues(env, ids)))
+                                        .read(nodeIds);
+                        for (int i = 0; i < positions.length; i++) {
+                                var position = positions[i];
+                                var key = index.key(position);
+                                var dv = results[i];
+                                var statusCode = dv.getStatusCode();
+                                var tv = toTagValue(dv);
+                                values.put(key, tv);
+                                if (statusCode.isGood()) {
+                                        valueManager.setValue(name, env, index.address(position), tv);
+                                } else if (!statusCode.isUncertain()) {
+                                        // Keep returning the value with status="Bad" but log it for observability
+                                        log.warn("Tag [{}] returned non-good status: {}", key, statusCode);
                                 }
-                                log.debug(OUT_1, values);
-                                return values;
-                        } catch (InterruptedException | ExecutionException | TimeoutException e) {
-                                var message = e.getMessage();
-                                log.error("Failure to get all values for [{}@{}]: {}", name, env, message);
-                                throw new InternalErrorException(
-                                                "Failure to load data for [%s@%s]: %s".formatted(name, env, message));
                         }
-                } finally {
-                        lock.unlock();
+                        log.debug(OUT_1, values);
+                        return values;
+                } catch (ExecutionException | TimeoutException e) {
+                        var message = e.getMessage();
+                        log.error("Failure to get all values for [{}@{}]: {}", name, env, message);
+                        throw new InternalErrorException(
+                                        "Failure to load data for [%s@%s]: %s".formatted(name, env, message));
                 }
         }
 
-        public void setValues(String name, String env, Map<MappingDesc, Float> values) {
+        /**
+         * @param values mapping position at {@code index} -> value
+         */
+        public void setValues(String name, String env, ModelIndex index, Map<Integer, Float> values) {
                 log.debug(IN_3, name, env, values);
-                var lock = lockFor(env);
-                lock.lock();
+                var client = getClient(env);
+                var positions = new ArrayList<Integer>(values.size());
+                var res = new ArrayList<WriteValue>(values.size());
+                values.forEach((position, value) -> {
+                        // TODO: remove filter when all tags will support "AllowNulls" prop
+                        if (value != null) {
+                                positions.add(position);
+                                res.add(buildWriteValue(env, client, index, position, value));
+                        }
+                });
                 try {
-                        var client = getClient(env);
-                        var res = values.entrySet().stream()
-                                        // TODO: remove filter when all tags will support "AllowNulls" prop
-                                        .filter(e -> e.getValue() != null)
-                                        .map(e -> buildWriteValue(env, client, e)).toList();
-                        try {
-                                var response = client.write(res).get(opcTimeoutMs, MILLISECONDS);
-                                var statusCodes = response.getResults();
-                                for (int i = 0; i < statusCodes.length; i++) {
-                                        var wv = res.get(i);
-                                        var code = statusCodes[i];
-                                        if (code.isGood()) {
-                                                valueManager.setValue(name, env, wv.getNodeId().getIdentifier().toString(),
-                                                                TagValue.builder()
-                                                                                .value(Double.parseDouble(wv.getValue().getValue().getValue().toString()))
-                                                                                .status("Good")
-                                                                                .build());
-                                                log.debug("success: [{}] => [{}]", wv.getNodeId().getIdentifier(), wv.getValue());
-                                        } else {
-                                                log.error("failure: [{}] =!> [{}]. code: [{}]", wv.getNodeId().getIdentifier(), wv.getValue(),
-                                                                Arrays.toString(lookup(code.getValue()).get()));
-                                        }
+                        var statusCodes = write(env, session(env, Role.INTERACTIVE, client), res);
+                        for (int i = 0; i < statusCodes.length; i++) {
+                                var wv = res.get(i);
+                                var code = statusCodes[i];
+                                if (code.isGood()) {
+                                        valueManager.setValue(name, env, index.address(positions.get(i)),
+                                                        TagValue.builder()
+                                                                        .value(((Number) wv.getValue().getValue().getValue()).doubleValue())
+                                                                        .status("Good")
+                                                                        .build());
+                                        log.debug("success: [{}] => [{}]", wv.getNodeId().getIdentifier(), wv.getValue());
+                                } else {
+                                        log.error("failure: [{}] =!> [{}]. code: [{}]", wv.getNodeId().getIdentifier(), wv.getValue(),
+                                                        Arrays.toString(lookup(code.getValue()).get()));
                                 }
-                        } catch (InterruptedException | ExecutionException | TimeoutException e) {
-                                var message = e.getMessage();
-                                log.error("Failure to set values for [{}@{}]: {}", name, env, message);
-                                throw new InternalErrorException(
-                                                "Failure to set values for [%s@%s]: %s".formatted(name, env, message));
                         }
-                } finally {
-                        lock.unlock();
+                } catch (ExecutionException | TimeoutException e) {
+                        var message = e.getMessage();
+                        log.error("Failure to set values for [{}@{}]: {}", name, env, message);
+                        throw new InternalErrorException(
+                                        "Failure to set values for [%s@%s]: %s".formatted(name, env, message));
                 }
                 log.debug(OUT_0);
         }
 
 	public boolean isEnvironmentDeclared(String env) {
-		return (null != clients.get(env)) || (null != failedEndpoints.get(env));
+		return (null != clients.get(env)) || (null != failedEndpoints.get(env)) || statuses.containsKey(env);
 	}
 
 	public void browse(String env) {
@@ -362,27 +465,20 @@ public class OpcClient implements StatusListener {
 
         private void checkAvailability(OpcEndpoint cfg) {
                 String env = cfg.getName();
-                var lock = lockFor(env);
+                if (failedEndpoints.containsKey(env)) {
+                        // recovered with the failed endpoints
+                        return;
+                }
+                var stale = false;
+                var lock = connectionLock(env);
                 lock.lock();
                 try {
                         Instant lastUpdated = valueManager.getUpdateTS(env);
-                        var envSubscriptions = subscriptions.get(env);
-                        if (envSubscriptions != null && !envSubscriptions.isEmpty()) {
+                        if (sharedSubscriptions(env).stream().anyMatch(s -> !s.isEmpty())) {
                                 if (between(lastUpdated, now()).getSeconds() > disconnectionThresholdSeconds) {
                                         log.warn("Reconnecting to [{}], last data were received at {}", cfg.getName(),
                                                         lastUpdated.toString());
-                                        boolean isConnected = switch (cfg.getType()) {
-                                        case IOTHUB -> connectIoTHub(cfg);
-                                        case SIMULATOR -> connectSimulator(cfg);
-                                        default -> throw new IllegalArgumentException(
-                                                        "Unesupported endpoingt type: " + cfg.getType());
-                                        };
-                                        if (isConnected) {
-                                                log.warn("Recreating [{}] subscriptions at [{}]", envSubscriptions.size(), env);
-                                                envSubscriptions.entrySet().forEach(entry -> recreateSubscription(env, entry));
-                                        } else {
-                                                log.warn("Connection failure to [{}] environment", env);
-                                        }
+                                        stale = true;
                                 } else {
                                         log.debug("Env [{}] is assumed healthy: last update time at {}", env, lastUpdated);
                                 }
@@ -392,54 +488,301 @@ public class OpcClient implements StatusListener {
                 } finally {
                         lock.unlock();
                 }
+                if (stale) {
+                        // models are restored under their own locks, never inside the connection one
+                        recover(cfg);
+                }
+        }
+
+        /**
+         * Restores the environment connection and all its subscriptions: the
+         * current client is given a chance to reactivate its session, Milo transfers
+         * subscriptions to a new session by itself. If the shared subscription is
+         * lost, the environment is reconnected and every model is re-acquired on a
+         * new shared subscription from its compiled mappings, then refilled by a
+         * single read.
+         * <p>
+         * Time to recover is reported as {@code opc.env.recovery} timer (tags
+         * {@code env}, {@code result}).
+         * <p>
+         * The connection lock is released before models are re-acquired: a model
+         * rebuild takes the model lock, which {@link #subscribe} holds while it
+         * connects.
+         */
+        private void recover(OpcEndpoint cfg) {
+                var env = cfg.getName();
+                var start = System.nanoTime();
+                String result = null;
+                OpcUaClient previous = null;
+                Rebuild rebuild = null;
+                var lock = connectionLock(env);
+                lock.lock();
+                try {
+                        if (transferred(env)) {
+                                failedEndpoints.remove(env);
+                                setState(env, ConnectionState.CONNECTED);
+                                result = "transferred";
+                        } else {
+                                previous = clients.get(env);
+                                rebuild = connectEndpoint(cfg) ? replaceSubscriptions(env) : null;
+                                if (rebuild == null) {
+                                        result = "failed";
+                                }
+                        }
+                } finally {
+                        lock.unlock();
+                }
+                if (rebuild != null) {
+                        result = restore(rebuild) ? "rebuilt" : "failed";
+                }
+                var current = clients.get(env);
+                if (previous != null && previous != current) {
+                        previous.disconnect();
+                }
+                var elapsed = System.nanoTime() - start;
+                meterRegistry.timer("opc.env.recovery", "env", env, "result", result).record(elapsed, NANOSECONDS);
+                log.info("[{}] environment recovery: {} in {} ms", env, result, NANOSECONDS.toMillis(elapsed));
+        }
+
+        /**
+         * @return {@code true} if the current client has an active session (checked
+         *         by a round trip) holding every shared subscription of the
+         *         environment
+         */
+        private boolean transferred(String env) {
+                var client = clients.get(env);
+                var shared = sharedSubscriptions(env).stream().filter(s -> !s.isEmpty()).toList();
+                if (client == null || shared.isEmpty()) {
+                        return false;
+                }
+                try {
+                        client.getSession().get(opcTimeoutMs, MILLISECONDS);
+                        client.readValue(0.0, TimestampsToReturn.Neither, Identifiers.Server_ServerStatus_CurrentTime)
+                                        .get(opcTimeoutMs, MILLISECONDS);
+                } catch (InterruptedException | ExecutionException | TimeoutException e) {
+                        log.warn("[{}] session is not reactivated: {}", env, e.getMessage());
+                        return false;
+                }
+                var alive = client.getSubscriptionManager().getSubscriptions().stream()
+                                .map(UaSubscription::getSubscriptionId).collect(toSet());
+                var lost = shared.stream().filter(s -> s.client() != client
+                                || !alive.contains(s.subscription().getSubscription().getSubscriptionId())).count();
+                if (lost > 0) {
+                        log.warn("[{}] {} of {} subscriptions are lost", env, lost, shared.size());
+                }
+                return lost == 0;
+        }
+
+        /**
+         * Shared subscriptions of an environment replaced at {@code client}, the
+         * {@code models} are still to be re-acquired on them
+         */
+        private record Rebuild(String env, OpcUaClient client, Map<String, SubscribedModel> models,
+                        Map<Double, SharedSubscription> subscriptions) {
+        }
+
+        /**
+         * Replaces shared subscriptions of the environment by new ones at the
+         * current client, called under the connection lock
+         *
+         * @return models to {@link #restore} on the new subscriptions or
+         *         {@code null} if a subscription is not created
+         */
+        private Rebuild replaceSubscriptions(String env) {
+                var client = clients.get(env);
+                var previous = sharedSubscriptions(env);
+                var models = Map.copyOf(subscribedModels.getOrDefault(env, new ConcurrentHashMap<>()));
+                var rebuilt = new ConcurrentHashMap<Double, SharedSubscription>();
+                try {
+                        for (var interval : models.values().stream().map(m -> publishingInterval(m.settings())).collect(toSet())) {
+                                rebuilt.put(interval, createSharedSubscription(env, client, interval));
+                        }
+                } catch (InterruptedException | ExecutionException | TimeoutException e) {
+                        log.error("Failure to create [{}] subscription: {}", env, e.getMessage());
+                        rebuilt.values().forEach(s -> s.subscription().deleteAsync());
+                        return null;
+                }
+                subscriptions.put(env, rebuilt);
+                previous.stream().filter(s -> s.client() == client).forEach(s -> s.subscription().deleteAsync());
+                return new Rebuild(env, client, models, rebuilt);
+        }
+
+        /**
+         * Re-acquires models on the replaced subscriptions in parallel, called
+         * outside the connection lock
+         *
+         * @return {@code true} if all models are restored
+         */
+        private boolean restore(Rebuild rebuild) {
+                var env = rebuild.env();
+                var client = rebuild.client();
+                var models = rebuild.models();
+                var rebuilt = rebuild.subscriptions();
+                log.warn("Recreating [{}] subscriptions at [{}]", models.size(), env);
+                var rebuilds = models.keySet().stream()
+                                .map(name -> CompletableFuture.supplyAsync(() -> rebuild(name, env, client, rebuilt),
+                                                task -> Thread.ofVirtual().name("opc-recover-" + env).start(task)))
+                                .toList();
+                var restored = rebuilds.stream().allMatch(CompletableFuture::join);
+                refill(env, client, models);
+                return restored;
+        }
+
+        private boolean rebuild(String name, String env, OpcUaClient client, Map<Double, SharedSubscription> rebuilt) {
+                var lock = modelLock(name, env);
+                lock.lock();
+                try {
+                        var model = ofNullable(subscribedModels.get(env)).map(models -> models.get(name)).orElse(null);
+                        if (model == null) {
+                                log.debug("[{}@{}] model is unsubscribed", name, env);
+                                return true;
+                        }
+                        var interval = publishingInterval(model.settings());
+                        var shared = rebuilt.get(interval);
+                        if (shared == null || shared.contains(name)) {
+                                log.debug("[{}@{}] subscription is already rebuilt", name, env);
+                                return true;
+                        }
+                        var index = model.index();
+                        var keys = Arrays.stream(model.positions())
+                                        .mapToObj(i -> new ItemKey(resolveNodeId(env, client, index, i), ItemSampling
+                                                        .resolve(index.desc(i).getSampling(), model.settings().sampling(), interval)))
+                                        .toList();
+                        var codes = shared.acquire(name, new OpcSubscriptionListener(valueManager, name, env, meterRegistry), keys);
+                        var failed = Arrays.stream(codes).filter(code -> !code.isGood()).count();
+                        if (failed > 0) {
+                                log.warn("[{}@{}] {} of {} items are not created", name, env, failed, codes.length);
+                        }
+                        return true;
+                } finally {
+                        lock.unlock();
+                }
+        }
+
+        private double publishingInterval(SubscriptionSettings settings) {
+                return settings.publishingIntervalMs() != null ? settings.publishingIntervalMs()
+                                : (double) subscriptionIntervalInMs;
+        }
+
+        private List<SharedSubscription> sharedSubscriptions(String env) {
+                var envSubscriptions = subscriptions.get(env);
+                return envSubscriptions == null ? List.of() : List.copyOf(envSubscriptions.values());
+        }
+
+        /**
+         * @return shared subscription of the environment at {@code client} and the
+         *         publishing {@code interval}, created if absent or bound to another
+         *         client
+         */
+        private SharedSubscription sharedSubscription(String env, OpcUaClient client, double interval)
+                        throws InterruptedException, ExecutionException, TimeoutException {
+                var current = subscriptions.getOrDefault(env, new ConcurrentHashMap<>()).get(interval);
+                if (current != null && current.client() == client) {
+                        return current;
+                }
+                var lock = connectionLock(env);
+                lock.lock();
+                try {
+                        var envSubscriptions = subscriptions.computeIfAbsent(env, __ -> new ConcurrentHashMap<>());
+                        current = envSubscriptions.get(interval);
+                        if (current != null && current.client() == client) {
+                                return current;
+                        }
+                        var created = createSharedSubscription(env, client, interval);
+                        envSubscriptions.put(interval, created);
+                        return created;
+                } finally {
+                        lock.unlock();
+                }
+        }
+
+        private SharedSubscription createSharedSubscription(String env, OpcUaClient client, double interval)
+                        throws InterruptedException, ExecutionException, TimeoutException {
+                var subscription = ManagedSubscription.createAsync(client, interval).get(opcTimeoutMs, MILLISECONDS);
+                var shared = new SharedSubscription(env, subscription, new SharedSubscription.ItemService() {
+                        @Override
+                        public Created[] create(ManagedSubscription target, ItemSampling sampling, List<NodeId> nodeIds) {
+                                return createItems(env, target, sampling, nodeIds);
+                        }
+
+                        @Override
+                        public List<ManagedDataItem> delete(ManagedSubscription target, List<ManagedDataItem> items) {
+                                return deleteItems(env, target, items);
+                        }
+                });
+                subscription.addChangeListener(shared);
+                subscription.addStatusListener(this);
+                return shared;
         }
 
-        private void recreateSubscription(String env, Map.Entry<String, ManagedSubscription> e) {
-                String name = e.getKey();
-                var subscription = e.getValue();
-                log.warn("FAKE IMPLEMENTATION: recreating {} with [id: {}] for env [{}]", name,
-                                subscription.getSubscription().getSubscriptionId(), env);
+        /**
+         * Reads current values of all models in one (chunked) read
+         */
+        private void refill(String env, OpcUaClient client, Map<String, SubscribedModel> models) {
+                var names = new ArrayList<String>();
+                var addresses = new ArrayList<String>();
+                var readValueIds = new ArrayList<ReadValueId>();
+                models.forEach((name, model) -> {
+                        for (var position : model.positions()) {
+                                names.add(name);
+                                addresses.add(model.index().address(position));
+                                readValueIds.add(ReadValueId.builder()
+                                                .nodeId(resolveNodeId(env, client, model.index(), position))
+                                                .attributeId(Value.uid()).indexRange(null).dataEncoding(NULL_VALUE).build());
+                        }
+                });
+                if (readValueIds.isEmpty()) {
+                        return;
+                }
+                try {
+                        var results = read(env, session(env, Role.BULK, client), readValueIds);
+                        for (int i = 0; i < results.length; i++) {
+                                if (results[i].getStatusCode().isGood()) {
+                                        valueManager.setValue(names.get(i), env, addresses.get(i), toTagValue(results[i]));
+                                }
+                        }
+                } catch (ExecutionException | TimeoutException e) {
+                        log.error("Failure to refill [{}] values: {}", env, e.getMessage());
+                }
         }
 
         private boolean connectIoTHub(OpcEndpoint config) {
                 var name = config.getName();
                 log.debug("Connecting IoTHub: [{}]", name);
-                var lock = lockFor(name);
+                var lock = connectionLock(name);
                 lock.lock();
                 try {
                         var provider = new UsernameProvider(config.getUser(), config.getPassword());
                         var url = config.getUrl();
+                        List<EndpointDescription> endpoints;
                         try {
-                                logEndPoints(url);
+                                endpoints = metadataCache.endpoints(url);
                         } catch (InternalErrorException e) {
                                 log.error("Failed to load [{}] IoTHub [url: {}]. Error: {}", name, url, e.getMessage());
+                                markFailed(config);
                                 return false;
                         }
                         try {
-                                var client = OpcUaClient.create(url,
-                                                endpoints -> endpoints.stream()
-                                                                .filter(e -> e.getEndpointUrl().startsWith(config.getSelector()))
-                                                                .findAny().map(d -> d.toBuilder().endpointUrl(url).build()),
-                                                b -> b.setApplicationName(english(APP_NAME)).setApplicationUri(APP_URL)
-                                                                .setKeyPair(keyStoreLoader.getClientKeyPair())
-                                                                .setCertificate(keyStoreLoader.getClientCertificate())
-                                                                .setCertificateChain(keyStoreLoader.getClientCertificateChain())
-                                                                .setCertificateValidator(certificateValidator)
-                                                                .setIdentityProvider(provider)
-                                                                .setRequestTimeout(uint(opcRequestTimeoutMs)).build());
+                                Function<List<EndpointDescription>, Optional<EndpointDescription>> selector = all -> all
+                                                .stream().filter(e -> e.getEndpointUrl().startsWith(config.getSelector())).findAny();
+                                var client = createClient(url, endpoints, selector, provider);
                                 if (connect(client)) {
                                         clients.put(name, client);
-                                        namespaceCache.remove(name);
-                                        failedEndpoints.remove(name);
+                                        onConnected(name, url, client);
+                                        startSessionPool(name, () -> createClient(url, endpoints, selector, provider));
+                                        setState(name, ConnectionState.CONNECTED);
                                         log.debug("IotHub client [{}] is OK", name);
                                         return true;
                                 }
                                 log.error("Failed to connect IoTHub client [{}]", name);
-                                failedEndpoints.put(config.getName(), config);
+                                client.disconnect();
+                                metadataCache.invalidate(url);
+                                markFailed(config);
                                 return false;
                         } catch (UaException | InternalErrorException e) {
                                 log.error("Client creation error for " + name, e);
-                                failedEndpoints.put(config.getName(), config);
+                                metadataCache.invalidate(url);
+                                markFailed(config);
                                 return false;
                         }
                 } finally {
@@ -450,40 +793,39 @@ public class OpcClient implements StatusListener {
         private boolean connectSimulator(OpcEndpoint config) {
                 var name = config.getName();
                 log.debug("Connecting Simulator: [{}]", name);
-                var lock = lockFor(name);
+                var lock = connectionLock(name);
                 lock.lock();
                 try {
                         var provider = new AnonymousProvider();
                         var url = config.getUrl();
+                        List<EndpointDescription> endpoints;
                         try {
-                                logEndPoints(url);
+                                endpoints = metadataCache.endpoints(url);
                         } catch (InternalErrorException e) {
                                 log.error("Failed to load [{}] simulator [url: {}]. Error: {}", name, url, e.getMessage());
-                                failedEndpoints.put(config.getName(), config);
+                                markFailed(config);
                                 return false;
                         }
                         try {
-                                var client = OpcUaClient.create(url,
-                                                endpoints -> ofNullable(endpoints.get(0).toBuilder().endpointUrl(url).build()),
-                                                b -> b.setApplicationName(english(APP_NAME)).setApplicationUri(APP_URL)
-                                                                .setKeyPair(keyStoreLoader.getClientKeyPair())
-                                                                .setCertificate(keyStoreLoader.getClientCertificate())
-                                                                .setCertificateChain(keyStoreLoader.getClientCertificateChain())
-                                                                .setCertificateValidator(certificateValidator)
-                                                                .setIdentityProvider(provider)
-                                                                .setRequestTimeout(uint(opcRequestTimeoutMs)).build());
+                                var client = createClient(url, endpoints, all -> all.stream().findFirst(), provider);
                                 if (connect(client)) {
                                         clients.put(name, client);
-                                        namespaceCache.remove(name);
-                                        failedEndpoints.remove(name);
+                                        onConnected(name, url, client);
+                                        startSessionPool(name,
+                                                        () -> createClient(url, endpoints, all -> all.stream().findFirst(), provider));
+                                        setState(name, ConnectionState.CONNECTED);
                                         log.debug("Simulator client [{}] is OK", name);
                                         return true;
                                 }
                                 log.error("Failed to connect simulator client [{}]", name);
-                                failedEndpoints.put(config.getName(), config);
+                                client.disconnect();
+                                metadataCache.invalidate(url);
+                                markFailed(config);
                                 return false;
                         } catch (UaException | InternalErrorException e) {
                                 log.error("Client creation error for " + name, e);
+                                metadataCache.invalidate(url);
+                                markFailed(config);
                                 return false;
                         }
                 } finally {
@@ -491,19 +833,58 @@ public class OpcClient implements StatusListener {
                 }
         }
 
-	private void logEndPoints(String url) {
-		try {
-                        getEndpoints(url).get(opcTimeoutMs, MILLISECONDS)
-					.forEach(desc -> log.debug("endpoint-url: {}", desc.getEndpointUrl()));
-		} catch (InterruptedException | ExecutionException | TimeoutException e) {
-			var message = e.getMessage();
-			log.error("Failure to log endpoints for [{}]: {}", url, message);
-			throw new InternalErrorException("Failure to log endpoints for [%s]: %s".formatted(url, message));
+	/**
+	 * Creates a client for the endpoint picked by {@code selector}, the selected
+	 * description is passed to the client, so it does not run discovery again.
+	 */
+	private OpcUaClient createClient(String url, List<EndpointDescription> endpoints,
+			Function<List<EndpointDescription>, Optional<EndpointDescription>> selector, IdentityProvider provider)
+			throws UaException {
+		var endpoint = selector.apply(endpoints).map(d -> d.toBuilder().endpointUrl(url).build()).orElseThrow(
+				() -> new UaException(StatusCodes.Bad_ConfigurationError, "no endpoint selected for " + url));
+		return OpcUaClient.create(OpcUaClientConfig.builder().setEndpoint(endpoint)
+				.setApplicationName(english(APP_NAME)).setApplicationUri(APP_URL)
+				.setKeyPair(keyStoreLoader.getClientKeyPair()).setCertificate(keyStoreLoader.getClientCertificate())
+				.setCertificateChain(keyStoreLoader.getClientCertificateChain())
+				.setCertificateValidator(certificateValidator).setIdentityProvider(provider)
+				.setRequestTimeout(uint(opcRequestTimeoutMs)).build());
+	}
+
+	/**
+	 * Creates the session pool of the environment at its first connection, pool
+	 * sessions connect in background and reconnect by themselves
+	 */
+	private void startSessionPool(String env, Callable<OpcUaClient> factory) {
+		if (interactiveSessions <= 0 && bulkSessions <= 0) {
+			return;
 		}
+		sessionPools.computeIfAbsent(env, __ -> {
+			var pool = new SessionPool(env, factory, interactiveSessions, bulkSessions, opcTimeoutMs, meterRegistry);
+			Thread.ofVirtual().name("opc-sessions-" + env)
+					.start(() -> pool.check(SECONDS.toMillis(disconnectionThresholdSeconds)));
+			return pool;
+		});
+	}
+
+	/**
+	 * @return pool session of the {@code role}, {@code primary} if the environment
+	 *         has none
+	 */
+	private OpcUaClient session(String env, Role role, OpcUaClient primary) {
+		var pool = sessionPools.get(env);
+		return pool == null ? primary : pool.client(role, primary);
 	}
 
-	private void connectAll() {
-		clients.values().forEach(this::connect);
+	/**
+	 * Resolved node identifiers survive a reconnect unless the server namespace
+	 * array has changed.
+	 */
+	private void onConnected(String env, String url, OpcUaClient client) {
+		if (metadataCache.refresh(url, client)) {
+			namespaceBindings.clear(env);
+			resolvedNodes.remove(env);
+		}
+		failedEndpoints.remove(env);
 	}
 
 	private boolean connect(OpcUaClient client) {
@@ -538,103 +919,321 @@ public class OpcClient implements StatusListener {
 		}
 	}
 
+        /**
+         * Waits for the environment startup, as {@link #subscribe} does
+         *
+         * @throws ServiceUnavailableException if the environment is still
+         *                                     connecting
+         */
         private OpcUaClient getClient(String env) {
-                return ofNullable(clients.get(env)).orElseThrow(() -> new ResourceNotFoundException(ENV, env));
+                awaitStartup(env);
+                var client = clients.get(env);
+                if (client == null) {
+                        var status = statuses.get(env);
+                        if (status != null && status.state() == ConnectionState.CONNECTING) {
+                                throw new ServiceUnavailableException("[%s] environment is connecting".formatted(env));
+                        }
+                        throw new ResourceNotFoundException(ENV, env);
+                }
+                return client;
+        }
+
+        /**
+         * Connects the environment on a virtual thread, the attempt is considered
+         * failed after {@code startupDeadlineMs} (the connection may still complete
+         * later).
+         */
+        private void startup(OpcEndpoint config) {
+                var env = config.getName();
+                statuses.put(env, new EnvironmentStatus(ConnectionState.CONNECTING, null));
+                var start = System.nanoTime();
+                var startup = CompletableFuture
+                                .supplyAsync(() -> connectEndpoint(config),
+                                                task -> Thread.ofVirtual().name("opc-connect-" + env).start(task))
+                                .completeOnTimeout(false, startupDeadlineMs, MILLISECONDS).exceptionally(e -> {
+                                        log.error("[{}] environment startup failure", env, e);
+                                        return false;
+                                });
+                startups.put(env, startup);
+                startup.thenAccept(connected -> {
+                        var elapsed = System.nanoTime() - start;
+                        var startupMs = NANOSECONDS.toMillis(elapsed);
+                        statuses.put(env, new EnvironmentStatus(
+                                        connected ? ConnectionState.CONNECTED : ConnectionState.FAILED, startupMs));
+                        if (!connected) {
+                                failedEndpoints.putIfAbsent(env, config);
+                        }
+                        meterRegistry.timer("opc.env.startup", "env", env, "result", connected ? "connected" : "failed")
+                                        .record(elapsed, NANOSECONDS);
+                        log.info("[{}] environment startup {} in {} ms", env, connected ? "completed" : "failed",
+                                        startupMs);
+                });
+        }
+
+        private void awaitStartup(String env) {
+                var startup = startups.get(env);
+                if (startup != null && !startup.isDone()) {
+                        log.debug("[{}] waiting for environment startup", env);
+                        startup.join();
+                }
+        }
+
+        private void markFailed(OpcEndpoint config) {
+                failedEndpoints.put(config.getName(), config);
+                setState(config.getName(), ConnectionState.FAILED);
         }
 
-	private ReentrantLock lockFor(String env) {
-		return envLocks.computeIfAbsent(env, __ -> new ReentrantLock());
+        private void setState(String env, ConnectionState state) {
+                statuses.compute(env, (k, current) -> current == null || current.state() == ConnectionState.CONNECTING
+                                ? current
+                                : new EnvironmentStatus(state, current.startupMs()));
+        }
+
+	private ReentrantLock connectionLock(String env) {
+		return connectionLocks.computeIfAbsent(env, __ -> new ReentrantLock());
 	}
 
-	private Mapping toMapping(String env, OpcUaClient client, MappingDesc desc) {
-		var resolvedIndex = resolveNamespaceIndex(env, desc.getNamespaceIndex(), client);
-		return Mapping.create(desc, resolvedIndex);
+	private ReentrantLock modelLock(String name, String env) {
+		return modelLocks.computeIfAbsent(env, __ -> new ConcurrentHashMap<>()).computeIfAbsent(name,
+				__ -> new ReentrantLock());
 	}
 
-	private LateValidationError addItem(Mapping m, ManagedSubscription subscription) {
-		var address = m.buildAddress();
-		var id = "[%s => %s] ".formatted(m.getKey(), address);
-		ManagedDataItem item;
-		try {
-			item = subscription.createDataItem(m.getNodeId());
-		} catch (NumberFormatException | UaException e) {
-			log.error("Exception [{}]. {}", e.getClass().getSimpleName(), e.getMessage());
-			return new LateValidationError(address, id + "createDataItem failure");
-		}
-		if (!item.getStatusCode().isGood()) {
-			return new LateValidationError(address,
-					id + "createDataItem failure with status code: " + item.getStatusCode());
-		} else {
-			return null;
-		}
+	private Mapping toMapping(String env, OpcUaClient client, ModelIndex index, int position) {
+		var nodeId = resolveNodeId(env, client, index, position);
+		return Mapping.builder().key(index.key(position)).namespaceIndex(nodeId.getNamespaceIndex().intValue())
+				.nodeId(nodeId).build();
 	}
 
-	private WriteValue buildWriteValue(String env, OpcUaClient client, Entry<MappingDesc, Float> e) {
-		var mapping = toMapping(env, client, e.getKey());
-		var nodeId = mapping.getNodeId();
-		if (e.getKey().getKey().equalsIgnoreCase("status")) {
-			return new WriteValue(nodeId, Value.uid(), null, buildDataValue(e.getValue().intValue()));
-		} else {
-			return new WriteValue(nodeId, Value.uid(), null, buildDataValue(e.getValue()));
+	/**
+	 * Node identifiers are resolved once per environment connection and model
+	 * index, then reused as read / write templates.
+	 *
+	 * @return precompiled node identifier, rebuilt only if the namespace index
+	 *         is remapped at the environment
+	 */
+	private NodeId resolveNodeId(String env, OpcUaClient client, ModelIndex index, int position) {
+		var nodeIds = resolvedNodes.computeIfAbsent(env, __ -> synchronizedMap(new WeakHashMap<>()))
+				.computeIfAbsent(index, i -> new NodeId[i.size()]);
+		var nodeId = nodeIds[position];
+		if (nodeId == null) {
+			var requestedIndex = index.desc(position).getNamespaceIndex();
+			var resolvedIndex = namespaceBindings.resolve(env, requestedIndex, client.getNamespaceTable());
+			nodeId = resolvedIndex == requestedIndex ? index.nodeId(position)
+					: Mapping.create(index.desc(position), resolvedIndex).getNodeId();
+			nodeIds[position] = nodeId;
 		}
+		return nodeId;
 	}
 
-	private int resolveNamespaceIndex(String env, int requestedIndex, OpcUaClient client) {
-		var cache = namespaceCache.computeIfAbsent(env, __ -> new ConcurrentHashMap<>());
-		var table = client.getNamespaceTable();
-		var binding = cache.compute(requestedIndex, (idx, existing) -> {
-			if (existing == null || existing.uri() == null) {
-				var uri = safeResolveUri(table, idx);
-				if (uri != null) {
-					var actual = safeResolveIndex(table, uri);
-					if (actual >= 0) {
-						return new NamespaceBinding(uri, actual);
+	/**
+	 * Creates monitored items with the same {@code sampling} settings in chunks,
+	 * see {@link #inChunks}
+	 *
+	 * @return outcome of every item in {@code nodeIds} order, items of a failed
+	 *         chunk get the failure status
+	 */
+	private Created[] createItems(String env, ManagedSubscription subscription, ItemSampling sampling,
+			List<NodeId> nodeIds) {
+		var created = new Created[nodeIds.size()];
+		// item settings are taken from the subscription defaults, creation is
+		// serialized by the shared subscription
+		subscription.setDefaultQueueSize(uint(sampling.queueSize()));
+		subscription.setDefaultDiscardOldest(true);
+		subscription.setDefaultDataFilter(sampling.filter());
+		var samplingInterval = sampling.samplingInterval();
+		var ids = nodeIds.stream().map(nodeId -> new ReadValueId(nodeId, Value.uid(), null, NULL_VALUE)).toList();
+		var start = System.nanoTime();
+		var failure = inChunks(ids, getOperationLimits(env).maxMonitoredItemsPerCall(),
+				chunk -> subscription.createDataItemsAsync(samplingInterval, chunk), (from, size, items, e) -> {
+					for (int i = 0; i < size; i++) {
+						created[from + i] = e == null ? new Created(items.get(i), items.get(i).getStatusCode())
+								: new Created(null, failure(e));
 					}
-				}
-				return new NamespaceBinding(null, idx);
-			} else {
-				var actual = safeResolveIndex(table, existing.uri());
-				if (actual >= 0) {
-					return new NamespaceBinding(existing.uri(), actual);
-				}
-				var uri = safeResolveUri(table, idx);
-				if (uri != null) {
-					actual = safeResolveIndex(table, uri);
-					if (actual >= 0) {
-						return new NamespaceBinding(uri, actual);
+					if (e != null) {
+						log.error("[{}] createDataItems failure for [{}] items: {}", env, size, e.getMessage());
 					}
-				}
-				return new NamespaceBinding(existing.uri(), idx);
+				});
+		latency("opc.subscribe", env, failure).record(System.nanoTime() - start, NANOSECONDS);
+		return created;
+	}
+
+	/**
+	 * Deletes monitored items in chunks, see {@link #inChunks}
+	 *
+	 * @return items of succeeded chunks
+	 */
+	private List<ManagedDataItem> deleteItems(String env, ManagedSubscription subscription,
+			List<ManagedDataItem> items) {
+		var deleted = new boolean[items.size()];
+		inChunks(items, getOperationLimits(env).maxMonitoredItemsPerCall(), subscription::deleteDataItemsAsync,
+				(from, size, unit, e) -> {
+					if (e == null) {
+						Arrays.fill(deleted, from, from + size, true);
+					} else {
+						log.error("[{}] deleteDataItems failure for [{}] items: {}", env, size, e.getMessage());
+					}
+				});
+		return IntStream.range(0, items.size()).filter(i -> deleted[i]).mapToObj(items::get).toList();
+	}
+
+	/**
+	 * Reads values of {@code nodeIds} at the pool session matching the read size
+	 */
+	private DataValue[] readValues(String env, List<NodeId> nodeIds) throws ExecutionException, TimeoutException {
+		var ids = nodeIds.stream().<ReadValueId>map(nodeId -> ReadValueId.builder().nodeId(nodeId).attributeId(Value.uid())
+				.indexRange(null).dataEncoding(NULL_VALUE).build()).toList();
+		var role = ids.size() > bulkThreshold ? Role.BULK : Role.INTERACTIVE;
+		return read(env, session(env, role, getClient(env)), ids);
+	}
+
+	/**
+	 * Reads {@code ids} in chunks of the server {@code MaxNodesPerRead}, see
+	 * {@link #inChunks}
+	 *
+	 * @return values in {@code ids} order
+	 */
+	private DataValue[] read(String env, OpcUaClient client, List<ReadValueId> ids)
+			throws ExecutionException, TimeoutException {
+		var values = new DataValue[ids.size()];
+		var start = System.nanoTime();
+		var failure = inChunks(ids, getOperationLimits(env).maxNodesPerRead(),
+				chunk -> client.read(0.0, TimestampsToReturn.Both, chunk).thenApply(ReadResponse::getResults),
+				(from, size, results, e) -> copy(results, values, from, size));
+		latency("opc.read", env, failure).record(System.nanoTime() - start, NANOSECONDS);
+		rethrow(failure);
+		return values;
+	}
+
+	/**
+	 * Writes {@code values} in chunks of the server {@code MaxNodesPerWrite}, see
+	 * {@link #inChunks}
+	 *
+	 * @return status codes in {@code values} order
+	 */
+	private StatusCode[] write(String env, OpcUaClient client, List<WriteValue> values)
+			throws ExecutionException, TimeoutException {
+		var codes = new StatusCode[values.size()];
+		var start = System.nanoTime();
+		var failure = inChunks(values, getOperationLimits(env).maxNodesPerWrite(),
+				chunk -> client.write(chunk).thenApply(WriteResponse::getResults),
+				(from, size, results, e) -> copy(results, codes, from, size));
+		latency("opc.write", env, failure).record(System.nanoTime() - start, NANOSECONDS);
+		rethrow(failure);
+		return codes;
+	}
+
+	/**
+	 * @param failure first failure of the call, {@code null} if it succeeded
+	 * @return latency histogram of an OPC service call at the environment
+	 */
+	private Timer latency(String metric, String env, Throwable failure) {
+		return Timer.builder(metric).tag("env", env).tag("result", failure == null ? "success" : "failure")
+				.publishPercentileHistogram().register(meterRegistry);
+	}
+
+	/**
+	 * Handles the outcome of a chunk of {@code size} requests starting at
+	 * {@code from}, either {@code result} or {@code failure} is {@code null}
+	 */
+	@FunctionalInterface
+	private interface ChunkHandler<R> {
+		void accept(int from, int size, R result, Throwable failure);
+	}
+
+	/**
+	 * Sends {@code requests} in chunks of at most {@code maxItemsPerCall} and
+	 * {@code serverLimit} items. Up to {@code parallelCalls} chunks are in flight,
+	 * each one is bounded by {@code opcTimeoutMs}. Chunks not sent yet when a
+	 * chunk fails are not sent at all and are handled with that failure.
+	 *
+	 * @return the first failure, {@code null} if all chunks succeeded
+	 */
+	private <T, R> Throwable inChunks(List<T> requests, int serverLimit,
+			Function<List<T>, CompletableFuture<R>> call, ChunkHandler<R> handler) {
+		var chunk = chunkSize(serverLimit);
+		var inFlight = new Semaphore(Math.max(1, parallelCalls));
+		var failure = new AtomicReference<Throwable>();
+		var calls = new ArrayList<CompletableFuture<Void>>();
+		for (int from = 0; from < requests.size(); from += chunk) {
+			var start = from;
+			var part = requests.subList(from, Math.min(from + chunk, requests.size()));
+			inFlight.acquireUninterruptibly();
+			var failed = failure.get();
+			if (failed != null) {
+				inFlight.release();
+				handler.accept(start, part.size(), null, failed);
+				continue;
 			}
-		});
-		return binding.index();
+			calls.add(send(call, part).orTimeout(opcTimeoutMs, MILLISECONDS).handle((result, e) -> {
+				var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+				try {
+					if (cause != null) {
+						failure.compareAndSet(null, cause);
+					}
+					handler.accept(start, part.size(), cause == null ? result : null, cause);
+				} finally {
+					inFlight.release();
+				}
+				return null;
+			}));
+		}
+		CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).join();
+		return failure.get();
 	}
 
-	private String safeResolveUri(NamespaceTable table, int index) {
+	private static <T, R> CompletableFuture<R> send(Function<List<T>, CompletableFuture<R>> call, List<T> chunk) {
 		try {
-			return table.getUri(index);
-		} catch (Exception e) {
-			log.warn("Failed to resolve namespace URI for index [{}]: {}", index, e.getMessage());
-			return null;
+			return call.apply(chunk);
+		} catch (RuntimeException e) {
+			return CompletableFuture.failedFuture(e);
 		}
 	}
 
-	private int safeResolveIndex(NamespaceTable table, String uri) {
-		if (uri == null) {
-			return -1;
+	/**
+	 * Non-positive limits mean no limit
+	 */
+	private int chunkSize(int serverLimit) {
+		var limit = maxItemsPerCall > 0 ? maxItemsPerCall : Integer.MAX_VALUE;
+		return serverLimit > 0 ? Math.min(limit, serverLimit) : limit;
+	}
+
+	private static <T> void copy(T[] results, T[] target, int from, int size) {
+		if (results != null) {
+			System.arraycopy(results, 0, target, from, Math.min(size, results.length));
 		}
-		try {
-			var resolved = table.getIndex(uri);
-			return resolved != null ? resolved.intValue() : -1;
-		} catch (Exception e) {
-			log.warn("Failed to resolve namespace index for URI [{}]: {}", uri, e.getMessage());
-			return -1;
+	}
+
+	private static void rethrow(Throwable failure) throws ExecutionException, TimeoutException {
+		if (failure instanceof TimeoutException e) {
+			throw e;
 		}
+		if (failure != null) {
+			throw new ExecutionException(failure.getMessage(), failure);
+		}
+	}
+
+	private static StatusCode failure(Throwable e) {
+		return UaException.extract(e).map(UaException::getStatusCode)
+				.orElse(new StatusCode(StatusCodes.Bad_UnexpectedError));
 	}
 
-	private static record NamespaceBinding(String uri, int index) {
+	private static LateValidationError lateValidationError(Mapping m, StatusCode code) {
+		if (code.isGood()) {
+			return null;
+		}
+		var address = m.buildAddress();
+		return new LateValidationError(address,
+				"[%s => %s] createDataItem failure with status code: %s".formatted(m.getKey(), address, code));
 	}
 
+	private WriteValue buildWriteValue(String env, OpcUaClient client, ModelIndex index, int position, Float value) {
+		var nodeId = resolveNodeId(env, client, index, position);
+		if (index.key(position).equalsIgnoreCase("status")) {
+			return new WriteValue(nodeId, Value.uid(), null, buildDataValue(value.intValue()));
+		} else {
+			return new WriteValue(nodeId, Value.uid(), null, buildDataValue(value));
+		}
+	}
 
     private DataValue buildDataValue(Object value) {
         var variant = ofNullable(value).map(Variant::new).orElse(Variant.NULL_VALUE);
@@ -664,6 +1263,7 @@ public class OpcClient implements StatusListener {
                 }
         }
         return TagValue.builder()
+                        .source(TagValue.SOURCE_SERVER)
                         .value(val)
                         .sourceTimestamp(ts(dv.getSourceTime()))
                         .serverTimestamp(ts(dv.getServerTime()))
@@ -704,7 +1304,8 @@ public class OpcClient implements StatusListener {
 	public void onSubscriptionTransferFailed(ManagedSubscription subscription, StatusCode statusCode) {
 		log.warn("Subscription [id: {}] transfer failed [{}]", subscription.getSubscription().getSubscriptionId(),
 				statusCode.getValue());
-		resubscribe(subscription);
+		// off the Milo listener thread: the rebuild waits for futures completed on its pool
+		Thread.ofVirtual().name("opc-resubscribe").start(() -> resubscribe(subscription));
 	}
 
 	@Override
@@ -713,38 +1314,21 @@ public class OpcClient implements StatusListener {
 	}
 
         private boolean resubscribe(ManagedSubscription failed) {
-                for (var entry : subscriptions.entrySet()) {
-                        var env = entry.getKey();
-                        var lock = lockFor(env);
-                        lock.lock();
-                        try {
-                                var envSubscriptions = entry.getValue();
-                                for (var subEntry : envSubscriptions.entrySet()) {
-                                        if (Objects.equals(subEntry.getValue(), failed)) {
-                                                var name = subEntry.getKey();
-                                                try {
-                                                        var nodeIds = failed.getDataItems().stream().map(ManagedDataItem::getNodeId)
-                                                                        .toList();
-                                                        envSubscriptions.remove(name, failed);
-                                                        failed.delete();
-
-                                                        var created = ManagedSubscription
-                                                                        .createAsync(failed.getClient(), subscriptionIntervalInMs)
-                                                                        .get(opcTimeoutMs, MILLISECONDS);
-                                                        created.createDataItems(nodeIds);
-                                                        created.addChangeListener(new OpcSubscriptionListener(valueManager, name, env));
-                                                        created.addStatusListener(this);
-                                                        envSubscriptions.put(name, created);
-                                                } catch (InterruptedException | ExecutionException | TimeoutException
-                                                                | UaException e) {
-                                                        log.error("Exception [{}]. {}", e.getClass().getSimpleName(), e.getMessage());
-                                                        e.printStackTrace();
-                                                }
+                for (var env : subscriptions.keySet()) {
+                        if (sharedSubscriptions(env).stream().anyMatch(s -> s.subscription() == failed)) {
+                                Rebuild rebuild;
+                                var lock = connectionLock(env);
+                                lock.lock();
+                                try {
+                                        if (sharedSubscriptions(env).stream().noneMatch(s -> s.subscription() == failed)) {
+                                                log.debug("[{}] subscription is already replaced", env);
                                                 return true;
                                         }
+                                        rebuild = replaceSubscriptions(env);
+                                } finally {
+                                        lock.unlock();
                                 }
-                        } finally {
-                                lock.unlock();
+                                return rebuild != null && restore(rebuild);
                         }
                 }
                 return false;
@@ -753,17 +1337,17 @@ public class OpcClient implements StatusListener {
         private boolean connectEndpoint(OpcEndpoint endpoint) {
                 var name = endpoint.getName();
                 log.debug("Connect endpoint: [{}]", name);
-                var lock = lockFor(name);
+                var lock = connectionLock(name);
                 lock.lock();
                 try {
-                        var type = endpoint.getType();
-                        if ((type.equals(IOTHUB) && connectIoTHub(endpoint))
-                                        || (type.equals(SIMULATOR) && connectSimulator(endpoint))) {
-                                return connect(clients.get(name));
-                        } else {
-                                log.warn("Unsupported endpoint ({}) type: [{}]", endpoint.getName(), type);
-                                return false;
+                        return switch (endpoint.getType()) {
+                        case IOTHUB -> connectIoTHub(endpoint);
+                        case SIMULATOR -> connectSimulator(endpoint);
+                        default -> {
+                                log.warn("Unsupported endpoint ({}) type: [{}]", endpoint.getName(), endpoint.getType());
+                                yield false;
                         }
+                        };
                 } finally {
                         lock.unlock();
                 }
@@ -0,0 +1,27 @@
+package ru.datana.integration.opc.component;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import ru.datana.integration.opc.component.OpcClient.ConnectionState;
+
+/**
+ * Connection state and startup timing of every environment. Reported as
+ * {@code UNKNOWN} while any environment is connecting or failed, so the
+ * application stays available regardless of OPC servers.
+ */
+@Component
+@RequiredArgsConstructor
+public class OpcHealthIndicator implements HealthIndicator {
+	private final OpcClient client;
+
+	@Override
+	public Health health() {
+		var statuses = client.getEnvironmentStatuses();
+		var health = statuses.values().stream().allMatch(s -> s.state() == ConnectionState.CONNECTED) ? Health.up()
+				: Health.unknown();
+		return health.withDetails(statuses).build();
+	}
+}
@@ -0,0 +1,151 @@
+package ru.datana.integration.opc.component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Single-flight value reads of an environment.
+ * <p>
+ * A caller whose nodes are all covered by a read in flight joins it. Other
+ * callers arriving within {@code windowMs} of each other are merged into one
+ * read of the union of their nodes, sent by the first of them once the window
+ * is over. Every caller gets its own slice of the results in its node order.
+ */
+@Slf4j
+final class ReadCoalescer {
+
+	/**
+	 * Value read of distinct nodes
+	 */
+	interface Reader {
+		/**
+		 * @return value of every node in {@code nodeIds} order
+		 */
+		DataValue[] read(List<NodeId> nodeIds) throws ExecutionException, TimeoutException;
+	}
+
+	private static final class Batch {
+		private final LinkedHashMap<NodeId, Integer> positions = new LinkedHashMap<>();
+		private final CompletableFuture<DataValue[]> result = new CompletableFuture<>();
+		private int callers;
+
+		private void add(List<NodeId> nodeIds) {
+			nodeIds.forEach(nodeId -> positions.putIfAbsent(nodeId, positions.size()));
+			callers++;
+		}
+	}
+
+	private final String env;
+	private final long windowMs;
+	private final Reader reader;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final List<Batch> inFlight = new ArrayList<>();
+	private Batch pending;
+
+	/**
+	 * @param windowMs merge window, non-positive merges only with reads in flight
+	 */
+	ReadCoalescer(String env, long windowMs, Reader reader) {
+		this.env = env;
+		this.windowMs = windowMs;
+		this.reader = reader;
+	}
+
+	/**
+	 * @return value of every node in {@code nodeIds} order
+	 */
+	DataValue[] read(List<NodeId> nodeIds) throws ExecutionException, TimeoutException {
+		Batch batch = null;
+		var owner = false;
+		lock.lock();
+		try {
+			for (var candidate : inFlight) {
+				if (candidate.positions.keySet().containsAll(nodeIds)) {
+					batch = candidate;
+					batch.callers++;
+					break;
+				}
+			}
+			if (batch == null) {
+				if (pending == null) {
+					pending = new Batch();
+					owner = true;
+				}
+				batch = pending;
+				batch.add(nodeIds);
+			}
+		} finally {
+			lock.unlock();
+		}
+		if (owner) {
+			send(batch);
+		}
+		return slice(batch, nodeIds);
+	}
+
+	private void send(Batch batch) {
+		if (windowMs > 0) {
+			try {
+				Thread.sleep(windowMs);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		lock.lock();
+		try {
+			pending = null;
+			inFlight.add(batch);
+		} finally {
+			lock.unlock();
+		}
+		try {
+			var nodeIds = List.copyOf(batch.positions.keySet());
+			log.debug("[{}] read of {} nodes for {} callers", env, nodeIds.size(), batch.callers);
+			batch.result.complete(reader.read(nodeIds));
+		} catch (ExecutionException | TimeoutException | RuntimeException e) {
+			batch.result.completeExceptionally(e);
+		} finally {
+			lock.lock();
+			try {
+				inFlight.remove(batch);
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private static DataValue[] slice(Batch batch, List<NodeId> nodeIds) throws ExecutionException, TimeoutException {
+		DataValue[] values;
+		try {
+			values = batch.result.join();
+		} catch (RuntimeException e) {
+			var cause = e.getCause();
+			if (cause instanceof ExecutionException failure) {
+				throw failure;
+			}
+			if (cause instanceof TimeoutException timeout) {
+				throw timeout;
+			}
+			// reader failures like an unknown or connecting environment keep their type
+			if (cause instanceof RuntimeException unchecked) {
+				throw unchecked;
+			}
+			throw new ExecutionException(cause != null ? cause : e);
+		}
+		var res = new DataValue[nodeIds.size()];
+		for (int i = 0; i < res.length; i++) {
+			res[i] = values[batch.positions.get(nodeIds.get(i))];
+		}
+		return res;
+	}
+}
@@ -0,0 +1,155 @@
+package ru.datana.integration.opc.component;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.eclipse.milo.opcua.stack.core.AttributeId.Value;
+import static org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName.NULL_VALUE;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.stack.client.DiscoveryClient;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.EndpointDescription;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.datana.integration.opc.exception.InternalErrorException;
+
+/**
+ * Server metadata per endpoint URL: discovered endpoint descriptions, namespace
+ * array and operation limits.
+ * <p>
+ * An entry lives for {@code opc.client.metadata-ttl-ms} since discovery and is
+ * dropped by {@link #invalidate(String)} on any connection failure, so a
+ * reconnect within the TTL needs neither {@code GetEndpoints} nor the limits
+ * read. Non-positive TTL disables caching.
+ */
+@Component
+@Slf4j
+public class ServerMetadataCache {
+	/**
+	 * Server operation limits, {@code 0} means no limit
+	 */
+	public static record OperationLimits(int maxNodesPerRead, int maxNodesPerWrite, int maxMonitoredItemsPerCall) {
+		public static final OperationLimits UNLIMITED = new OperationLimits(0, 0, 0);
+	}
+
+	private static final List<NodeId> LIMIT_NODES = List.of(
+			Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerRead,
+			Identifiers.Server_ServerCapabilities_OperationLimits_MaxNodesPerWrite,
+			Identifiers.Server_ServerCapabilities_OperationLimits_MaxMonitoredItemsPerCall);
+
+	private final ConcurrentMap<String, Metadata> entries = new ConcurrentHashMap<>();
+	Function<String, CompletableFuture<List<EndpointDescription>>> discovery = DiscoveryClient::getEndpoints;
+
+	@Value("${opc.client.metadata-ttl-ms:600000}")
+	private long ttlMs;
+	@Value("${opc.client.future-timeout-ms:1000}")
+	private long opcTimeoutMs;
+
+	/**
+	 * @return cached endpoint descriptions of the server, discovered if absent or
+	 *         expired
+	 */
+	public List<EndpointDescription> endpoints(String url) {
+		var cached = fresh(url);
+		if (cached != null) {
+			log.debug("Using cached endpoints for [{}]", url);
+			return cached.endpoints();
+		}
+		try {
+			var endpoints = List.copyOf(discovery.apply(url).get(opcTimeoutMs, MILLISECONDS));
+			endpoints.forEach(desc -> log.debug("endpoint-url: {}", desc.getEndpointUrl()));
+			entries.put(url, new Metadata(endpoints, System.nanoTime(), null, null));
+			return endpoints;
+		} catch (InterruptedException | ExecutionException | TimeoutException e) {
+			invalidate(url);
+			var message = e.getMessage();
+			log.error("Failure to discover endpoints for [{}]: {}", url, message);
+			throw new InternalErrorException("Failure to discover endpoints for [%s]: %s".formatted(url, message));
+		}
+	}
+
+	/**
+	 * Stores namespace array of the connected {@code client} and reads operation
+	 * limits unless they are cached.
+	 *
+	 * @return {@code true} if the namespace array differs from the cached one (or
+	 *         nothing was cached), so resolved node identifiers are stale
+	 */
+	public boolean refresh(String url, OpcUaClient client) {
+		var namespaces = client.getNamespaceTable().toArray();
+		var cached = fresh(url);
+		var limits = cached != null && cached.limits() != null ? cached.limits() : readLimits(url, client);
+		var endpoints = cached != null ? cached.endpoints() : List.<EndpointDescription>of();
+		var discoveredAt = cached != null ? cached.discoveredAt() : System.nanoTime();
+		entries.put(url, new Metadata(endpoints, discoveredAt, namespaces, limits));
+		var remapped = cached == null || !Arrays.equals(cached.namespaces(), namespaces);
+		if (remapped) {
+			log.debug("[{}] namespaces: {}, limits: {}", url, Arrays.toString(namespaces), limits);
+		}
+		return remapped;
+	}
+
+	/**
+	 * @return cached operation limits, {@link OperationLimits#UNLIMITED} if unknown
+	 */
+	public OperationLimits limits(String url) {
+		var cached = entries.get(url);
+		return cached == null || cached.limits() == null ? OperationLimits.UNLIMITED : cached.limits();
+	}
+
+	public void invalidate(String url) {
+		if (entries.remove(url) != null) {
+			log.debug("Server metadata of [{}] is invalidated", url);
+		}
+	}
+
+	private Metadata fresh(String url) {
+		var cached = entries.get(url);
+		if (cached == null || cached.endpoints().isEmpty()) {
+			return null;
+		}
+		if (ttlMs <= 0 || System.nanoTime() - cached.discoveredAt() > MILLISECONDS.toNanos(ttlMs)) {
+			entries.remove(url, cached);
+			return null;
+		}
+		return cached;
+	}
+
+	private OperationLimits readLimits(String url, OpcUaClient client) {
+		var ids = LIMIT_NODES.stream().map(node -> new ReadValueId(node, Value.uid(), null, NULL_VALUE)).toList();
+		try {
+			var results = client.read(0.0, TimestampsToReturn.Neither, ids).get(opcTimeoutMs, MILLISECONDS)
+					.getResults();
+			return new OperationLimits(limit(results[0]), limit(results[1]), limit(results[2]));
+		} catch (InterruptedException | ExecutionException | TimeoutException | RuntimeException e) {
+			log.warn("Failure to read operation limits of [{}]: {}", url, e.getMessage());
+			return OperationLimits.UNLIMITED;
+		}
+	}
+
+	private static int limit(DataValue value) {
+		if (value == null || !value.getStatusCode().isGood() || value.getValue() == null
+				|| !(value.getValue().getValue() instanceof Number number)) {
+			return 0;
+		}
+		return (int) Math.min(Integer.MAX_VALUE, Math.max(0, number.longValue()));
+	}
+
+	private static record Metadata(List<EndpointDescription> endpoints, long discoveredAt, String[] namespaces,
+			OperationLimits limits) {
+	}
+}
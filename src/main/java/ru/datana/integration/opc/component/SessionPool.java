@@ -0,0 +1,173 @@
+package ru.datana.integration.opc.component;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.sdk.client.SessionActivityListener;
+import org.eclipse.milo.opcua.sdk.client.api.UaSession;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Additional sessions of an environment, so large reads do not delay publish
+ * responses of the subscription session (the primary client) on its secure
+ * channel.
+ * <p>
+ * Writes and small reads go to the interactive session, large reads are spread
+ * round-robin over the bulk sessions. A role without an active session falls
+ * back to the primary client. Each session tracks its own activity and is
+ * recreated once it stays inactive longer than the reconnect threshold; the
+ * client reconnects a session by itself before that.
+ */
+@Slf4j
+final class SessionPool {
+
+	enum Role {
+		/**
+		 * Writes and reads up to the bulk threshold
+		 */
+		INTERACTIVE,
+		/**
+		 * Reads above the bulk threshold
+		 */
+		BULK
+	}
+
+	private static final class Session implements SessionActivityListener {
+		private final String name;
+		private volatile OpcUaClient client;
+		private volatile boolean active;
+		private volatile long inactiveSince = System.nanoTime();
+
+		private Session(String name) {
+			this.name = name;
+		}
+
+		private OpcUaClient activeClient() {
+			var current = client;
+			return active ? current : null;
+		}
+
+		@Override
+		public void onSessionActive(UaSession session) {
+			active = true;
+		}
+
+		@Override
+		public void onSessionInactive(UaSession session) {
+			active = false;
+			inactiveSince = System.nanoTime();
+		}
+	}
+
+	private final String env;
+	private final Callable<OpcUaClient> factory;
+	private final long connectTimeoutMs;
+	private final Session interactive;
+	private final List<Session> bulk = new ArrayList<>();
+	private final AtomicInteger next = new AtomicInteger();
+	/**
+	 * Serializes checks of the startup thread and the availability cron, so a
+	 * session is not reconnected twice and its first client leaked
+	 */
+	private final ReentrantLock checkLock = new ReentrantLock();
+
+	/**
+	 * @param factory creates a client of the environment endpoint, not connected
+	 */
+	SessionPool(String env, Callable<OpcUaClient> factory, int interactiveSessions, int bulkSessions,
+			long connectTimeoutMs, MeterRegistry meterRegistry) {
+		this.env = env;
+		this.factory = factory;
+		this.connectTimeoutMs = connectTimeoutMs;
+		interactive = interactiveSessions > 0 ? new Session("interactive") : null;
+		for (int i = 0; i < bulkSessions; i++) {
+			bulk.add(new Session("bulk-" + i));
+		}
+		sessions().forEach(session -> Gauge.builder("opc.session.active", session, s -> s.active ? 1 : 0)
+				.tag("env", env).tag("session", session.name).register(meterRegistry));
+	}
+
+	/**
+	 * @return active session client of the {@code role}, {@code primary} if there
+	 *         is none
+	 */
+	OpcUaClient client(Role role, OpcUaClient primary) {
+		if (role == Role.INTERACTIVE) {
+			var client = interactive == null ? null : interactive.activeClient();
+			return client != null ? client : primary;
+		}
+		var size = bulk.size();
+		for (int i = 0; i < size; i++) {
+			var client = bulk.get(Math.floorMod(next.getAndIncrement(), size)).activeClient();
+			if (client != null) {
+				return client;
+			}
+		}
+		return primary;
+	}
+
+	/**
+	 * @return number of active sessions besides the primary one
+	 */
+	int activeSessions() {
+		return (int) sessions().stream().filter(session -> session.active).count();
+	}
+
+	/**
+	 * Connects sessions without a client and recreates the ones inactive for
+	 * longer than {@code thresholdMs}
+	 */
+	void check(long thresholdMs) {
+		checkLock.lock();
+		try {
+			for (var session : sessions()) {
+				var inactiveMs = NANOSECONDS.toMillis(System.nanoTime() - session.inactiveSince);
+				if (session.client == null || !session.active && inactiveMs > thresholdMs) {
+					reconnect(session);
+				}
+			}
+		} finally {
+			checkLock.unlock();
+		}
+	}
+
+	private void reconnect(Session session) {
+		var previous = session.client;
+		if (previous != null) {
+			log.warn("[{}] {} session is inactive, reconnecting", env, session.name);
+			previous.removeSessionActivityListener(session);
+			previous.disconnect();
+		}
+		session.client = null;
+		session.active = false;
+		session.inactiveSince = System.nanoTime();
+		try {
+			var client = factory.call();
+			client.addSessionActivityListener(session);
+			session.client = client;
+			client.connect().get(connectTimeoutMs, MILLISECONDS);
+			log.debug("[{}] {} session is connected", env, session.name);
+		} catch (Exception e) {
+			log.warn("[{}] failure to connect {} session: {}", env, session.name, e.getMessage());
+		}
+	}
+
+	private List<Session> sessions() {
+		var sessions = new ArrayList<Session>(bulk.size() + 1);
+		if (interactive != null) {
+			sessions.add(interactive);
+		}
+		sessions.addAll(bulk);
+		return sessions;
+	}
+}
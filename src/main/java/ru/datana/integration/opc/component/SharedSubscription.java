@@ -0,0 +1,255 @@
+package ru.datana.integration.opc.component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.sdk.client.subscriptions.ManagedDataItem;
+import org.eclipse.milo.opcua.sdk.client.subscriptions.ManagedSubscription;
+import org.eclipse.milo.opcua.sdk.client.subscriptions.ManagedSubscription.ChangeListener;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.datana.integration.opc.dto.ItemSampling;
+import ru.datana.integration.opc.listener.OpcSubscriptionListener;
+
+/**
+ * Monitored items of an environment (at a publishing interval) shared by its
+ * models: one item per node and sampling settings, referenced by every model
+ * mapping the node with those settings.
+ * <p>
+ * A notification of an item is fanned out to the listeners of all models
+ * referencing it. Subscribing a model creates missing items only, releasing
+ * it deletes items no other model references. Reference changes are
+ * serialized, notifications are dispatched without locking.
+ */
+@Slf4j
+final class SharedSubscription implements ChangeListener {
+	private static final OpcSubscriptionListener[] NO_LISTENERS = {};
+
+	/**
+	 * Monitored item identity: the node and its sampling settings
+	 */
+	static record ItemKey(NodeId nodeId, ItemSampling sampling) {
+	}
+
+	/**
+	 * Creation outcome of a monitored item, {@code item} is {@code null} if the
+	 * request failed
+	 */
+	static record Created(ManagedDataItem item, StatusCode status) {
+	}
+
+	/**
+	 * Monitored item service calls
+	 */
+	interface ItemService {
+		/**
+		 * @return outcome of every node in {@code nodeIds} order
+		 */
+		Created[] create(ManagedSubscription subscription, ItemSampling sampling, List<NodeId> nodeIds);
+
+		/**
+		 * @return items actually deleted
+		 */
+		List<ManagedDataItem> delete(ManagedSubscription subscription, List<ManagedDataItem> items);
+	}
+
+	private static final class Item {
+		private final ManagedDataItem dataItem;
+		private volatile OpcSubscriptionListener[] listeners = NO_LISTENERS;
+
+		private Item(ManagedDataItem dataItem) {
+			this.dataItem = dataItem;
+		}
+
+		private void add(OpcSubscriptionListener listener) {
+			var current = listeners;
+			var updated = Arrays.copyOf(current, current.length + 1);
+			updated[current.length] = listener;
+			listeners = updated;
+		}
+
+		private void remove(OpcSubscriptionListener listener) {
+			listeners = Arrays.stream(listeners).filter(l -> l != listener).toArray(OpcSubscriptionListener[]::new);
+		}
+	}
+
+	private static record Model(OpcSubscriptionListener listener, Set<ItemKey> keys) {
+	}
+
+	private static final class Batch {
+		private final List<ManagedDataItem> items = new ArrayList<>();
+		private final List<DataValue> values = new ArrayList<>();
+	}
+
+	private final String env;
+	private final ManagedSubscription subscription;
+	private final ItemService service;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final ConcurrentMap<ItemKey, Item> items = new ConcurrentHashMap<>();
+	private final ConcurrentMap<UInteger, Item> handles = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Model> models = new ConcurrentHashMap<>();
+
+	SharedSubscription(String env, ManagedSubscription subscription, ItemService service) {
+		this.env = env;
+		this.subscription = subscription;
+		this.service = service;
+	}
+
+	ManagedSubscription subscription() {
+		return subscription;
+	}
+
+	OpcUaClient client() {
+		return subscription.getClient();
+	}
+
+	boolean contains(String name) {
+		return models.containsKey(name);
+	}
+
+	boolean isEmpty() {
+		return models.isEmpty();
+	}
+
+	/**
+	 * @return number of monitored items, each one shared by all models
+	 *         referencing it
+	 */
+	int itemCount() {
+		return items.size();
+	}
+
+	/**
+	 * References items of {@code keys} by the model {@code name}, creating missing
+	 * ones. Items referenced by the previous subscription of the model only are
+	 * deleted.
+	 *
+	 * @return status of every item in {@code keys} order, items with bad status
+	 *         are not referenced
+	 */
+	StatusCode[] acquire(String name, OpcSubscriptionListener listener, List<ItemKey> keys) {
+		lock.lock();
+		try {
+			var missing = new LinkedHashMap<ItemSampling, LinkedHashSet<NodeId>>();
+			keys.stream().filter(key -> !items.containsKey(key)).forEach(key -> missing
+					.computeIfAbsent(key.sampling(), __ -> new LinkedHashSet<>()).add(key.nodeId()));
+			var failures = new HashMap<ItemKey, StatusCode>();
+			var created = 0;
+			for (var group : missing.entrySet()) {
+				var sampling = group.getKey();
+				var nodeIds = List.copyOf(group.getValue());
+				var outcomes = service.create(subscription, sampling, nodeIds);
+				for (int i = 0; i < nodeIds.size(); i++) {
+					var key = new ItemKey(nodeIds.get(i), sampling);
+					var outcome = outcomes[i];
+					if (outcome.item() != null && outcome.status().isGood()) {
+						var item = new Item(outcome.item());
+						items.put(key, item);
+						handles.put(outcome.item().getMonitoredItem().getClientHandle(), item);
+						created++;
+					} else {
+						failures.put(key, outcome.status());
+					}
+				}
+			}
+			var referenced = new LinkedHashSet<ItemKey>();
+			keys.stream().filter(items::containsKey).forEach(referenced::add);
+			referenced.forEach(key -> items.get(key).add(listener));
+			var previous = models.put(name, new Model(listener, referenced));
+			if (previous != null) {
+				previous.keys().forEach(key -> items.get(key).remove(previous.listener()));
+				deleteUnreferenced(previous.keys());
+			}
+			log.debug("[{}@{}] {} items referenced, {} created, {} shared in total", name, env, referenced.size(),
+					created, items.size());
+			return keys.stream().map(key -> failures.getOrDefault(key, StatusCode.GOOD)).toArray(StatusCode[]::new);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Drops references of the model {@code name}, deletes items no other model
+	 * references
+	 *
+	 * @return {@code false} if some of those items are not deleted, they are kept
+	 *         for reuse and deleted by the next release
+	 */
+	boolean release(String name) {
+		lock.lock();
+		try {
+			var model = models.remove(name);
+			if (model == null) {
+				return true;
+			}
+			model.keys().forEach(key -> items.get(key).remove(model.listener()));
+			return deleteUnreferenced(items.keySet());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean deleteUnreferenced(Set<ItemKey> keys) {
+		var unreferenced = new HashMap<ManagedDataItem, ItemKey>();
+		keys.forEach(key -> {
+			var item = items.get(key);
+			if (item != null && item.listeners.length == 0) {
+				unreferenced.put(item.dataItem, key);
+			}
+		});
+		if (unreferenced.isEmpty()) {
+			return true;
+		}
+		var deleted = service.delete(subscription, List.copyOf(unreferenced.keySet()));
+		deleted.forEach(dataItem -> {
+			items.remove(unreferenced.get(dataItem));
+			handles.remove(dataItem.getMonitoredItem().getClientHandle());
+		});
+		log.debug("[{}] {} of {} unreferenced items deleted", env, deleted.size(), unreferenced.size());
+		return deleted.size() == unreferenced.size();
+	}
+
+	@Override
+	public void onDataReceived(List<ManagedDataItem> dataItems, List<DataValue> dataValues) {
+		var batches = new IdentityHashMap<OpcSubscriptionListener, Batch>();
+		for (int i = 0; i < dataItems.size(); i++) {
+			var dataItem = dataItems.get(i);
+			var item = handles.get(dataItem.getMonitoredItem().getClientHandle());
+			if (item == null) {
+				continue;
+			}
+			for (var listener : item.listeners) {
+				var batch = batches.computeIfAbsent(listener, __ -> new Batch());
+				batch.items.add(dataItem);
+				batch.values.add(dataValues.get(i));
+			}
+		}
+		batches.forEach((listener, batch) -> {
+			try {
+				listener.onDataReceived(batch.items, batch.values);
+			} catch (RuntimeException e) {
+				log.error("[{}] failure to dispatch [{}] values: {}", env, batch.items.size(), e.getMessage());
+			}
+		});
+	}
+
+	@Override
+	public void onKeepAliveReceived() {
+		log.debug("Keep alive recieved for {}", env);
+	}
+}
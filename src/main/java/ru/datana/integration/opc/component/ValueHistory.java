@@ -0,0 +1,185 @@
+package ru.datana.integration.opc.component;
+
+import static ru.datana.integration.opc.util.TagValues.BAD;
+import static ru.datana.integration.opc.util.TagValues.GOOD;
+import static ru.datana.integration.opc.util.TagValues.NO_STATUS;
+import static ru.datana.integration.opc.util.TagValues.UNCERTAIN;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import ru.datana.integration.opc.dto.HistoryPoint;
+
+/**
+ * Off-heap ring buffers of the last samples of every slot.
+ * <p>
+ * A sample takes {@value #ENTRY} bytes of direct memory: epoch millis, double
+ * value ({@code NaN} if absent) and status severity. Rings are split into
+ * direct buffers of at most 1 GiB. The class is not thread safe on its own:
+ * {@link ModelValues} appends under the slot lock and validates reads with the
+ * slot version.
+ */
+final class ValueHistory {
+	static final int ENTRY = Long.BYTES + Double.BYTES + 1;
+	private static final int MAX_SEGMENT = 1 << 30;
+	private static final byte NONE = -1;
+
+	private final int capacity;
+	private final int slotsPerSegment;
+	private final ByteBuffer[] segments;
+	private final int[] heads;
+	private final int[] counts;
+
+	ValueHistory(int slots, int capacity) {
+		this.capacity = Math.min(capacity, MAX_SEGMENT / ENTRY);
+		this.slotsPerSegment = Math.max(1, MAX_SEGMENT / (this.capacity * ENTRY));
+		this.segments = new ByteBuffer[(slots + slotsPerSegment - 1) / slotsPerSegment];
+		for (int i = 0; i < segments.length; i++) {
+			var segmentSlots = Math.min(slotsPerSegment, slots - i * slotsPerSegment);
+			segments[i] = ByteBuffer.allocateDirect(segmentSlots * this.capacity * ENTRY);
+		}
+		this.heads = new int[slots];
+		this.counts = new int[slots];
+	}
+
+	void append(int slot, long time, double value, long status) {
+		append(slot, time, value, severity(status));
+	}
+
+	/**
+	 * Copies all samples of the {@code source} slot to the {@code slot}
+	 */
+	void copy(ValueHistory source, int sourceSlot, int slot) {
+		var samples = source.read(sourceSlot, Long.MIN_VALUE, Long.MAX_VALUE);
+		for (int i = 0; i < samples.size; i++) {
+			append(slot, samples.times[i], samples.values[i], samples.severities[i]);
+		}
+	}
+
+	/**
+	 * Appends sample to the ring, a time earlier than the last one is clamped to
+	 * it: {@link Samples#points} buckets samples in ascending time order.
+	 */
+	private void append(int slot, long time, double value, byte severity) {
+		var head = heads[slot];
+		var segment = segments[slot / slotsPerSegment];
+		if (counts[slot] > 0) {
+			time = Math.max(time, segment.getLong(offset(slot, head == 0 ? capacity - 1 : head - 1)));
+		}
+		var offset = offset(slot, head);
+		segment.putLong(offset, time);
+		segment.putDouble(offset + Long.BYTES, value);
+		segment.put(offset + Long.BYTES + Double.BYTES, severity);
+		heads[slot] = head + 1 == capacity ? 0 : head + 1;
+		if (counts[slot] < capacity) {
+			counts[slot]++;
+		}
+	}
+
+	/**
+	 * Copies samples of the slot with {@code from <= time < to}, oldest first.
+	 */
+	Samples read(int slot, long from, long to) {
+		var count = counts[slot];
+		var res = new Samples(count);
+		var segment = segments[slot / slotsPerSegment];
+		var position = heads[slot] - count;
+		for (int i = 0; i < count; i++, position++) {
+			var offset = offset(slot, position < 0 ? position + capacity : position);
+			var time = segment.getLong(offset);
+			if (time >= from && time < to) {
+				res.add(time, segment.getDouble(offset + Long.BYTES), segment.get(offset + Long.BYTES + Double.BYTES));
+			}
+		}
+		return res;
+	}
+
+	private int offset(int slot, int position) {
+		return ((slot % slotsPerSegment) * capacity + position) * ENTRY;
+	}
+
+	private static byte severity(long status) {
+		return status == NO_STATUS ? NONE : (byte) (status >>> 30);
+	}
+
+	private static String status(byte severity) {
+		return switch (severity) {
+		case NONE -> null;
+		case 0 -> GOOD;
+		case 1 -> UNCERTAIN;
+		default -> BAD;
+		};
+	}
+
+	/**
+	 * Samples of a single slot copied out of the ring buffer.
+	 */
+	static final class Samples {
+		static final Samples EMPTY = new Samples(0);
+
+		private final long[] times;
+		private final double[] values;
+		private final byte[] severities;
+		private int size;
+
+		private Samples(int capacity) {
+			times = new long[capacity];
+			values = new double[capacity];
+			severities = new byte[capacity];
+		}
+
+		private void add(long time, double value, byte severity) {
+			times[size] = time;
+			values[size] = value;
+			severities[size] = severity;
+			size++;
+		}
+
+		int size() {
+			return size;
+		}
+
+		/**
+		 * @param step bucket length in millis, raw samples if not positive
+		 */
+		List<HistoryPoint> points(long from, long step) {
+			var res = new ArrayList<HistoryPoint>();
+			if (step <= 0) {
+				for (int i = 0; i < size; i++) {
+					res.add(HistoryPoint.builder().timestamp(Instant.ofEpochMilli(times[i]).toString())
+							.value(Double.isNaN(values[i]) ? null : values[i]).status(status(severities[i])).build());
+				}
+				return res;
+			}
+			var i = 0;
+			while (i < size) {
+				var start = from + Math.floorDiv(times[i] - from, step) * step;
+				var end = start + step;
+				var min = Double.POSITIVE_INFINITY;
+				var max = Double.NEGATIVE_INFINITY;
+				var sum = 0d;
+				var count = 0;
+				var severity = NONE;
+				for (; i < size && times[i] < end; i++) {
+					severity = (byte) Math.max(severity, severities[i]);
+					var value = values[i];
+					if (!Double.isNaN(value)) {
+						min = Math.min(min, value);
+						max = Math.max(max, value);
+						sum += value;
+						count++;
+					}
+				}
+				var point = HistoryPoint.builder().timestamp(Instant.ofEpochMilli(start).toString()).count(count)
+						.status(status(severity));
+				if (count > 0) {
+					point.min(min).max(max).avg(sum / count);
+				}
+				res.add(point.build());
+			}
+			return res;
+		}
+	}
+}
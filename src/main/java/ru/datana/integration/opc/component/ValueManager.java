@@ -1,98 +1,219 @@
 package ru.datana.integration.opc.component;
 
-import static java.time.Instant.now;
+import static ru.datana.integration.opc.util.TagValues.statusCode;
+import static ru.datana.integration.opc.util.TagValues.utcTime;
 
 import java.time.Instant;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import ru.datana.integration.opc.dto.Mapping;
+import ru.datana.integration.opc.config.HistoryProperties;
+import ru.datana.integration.opc.dto.ModelIndex;
 import ru.datana.integration.opc.dto.TagValue;
-import ru.datana.integration.opc.request.MappingDesc;
 import ru.datana.integration.opc.service.ControllerUpdateService;
+import ru.datana.integration.opc.util.TagValues;
 
+/**
+ * Thread safe cache of the latest model values.
+ * <p>
+ * Written concurrently by subscription threads, REST reads / writes and
+ * reconnect logic. Models are indexed by environment and name (no composite
+ * key building on the hot path), values live in per-handle slots of
+ * {@link ModelValues} together with their bounded history. Only changes of {@code .Update} keys are handed over to
+ * {@link ControllerUpdateService}, in order per controller.
+ * <p>
+ * Slot values are periodically written to {@link ValueSnapshot} and restored
+ * from it when a model is registered after a restart.
+ * <p>
+ * Publishes the number of cached models and values.
+ */
 @Component
 @Slf4j
 @RequiredArgsConstructor
 
-public class ValueManager {
+public class ValueManager implements MeterBinder {
         private static final Map<String, TagValue> EMPTY_MAP = Collections.emptyMap();
-        private final Map<String, Map<String, TagValue>> mappings = new HashMap<>();
-        private final Map<String, Map<String, String>> mappingKeys = new HashMap<>();
-        private final Map<String, Instant> updateMap = new HashMap<>();
+        private final ConcurrentMap<String, ConcurrentMap<String, ModelValues>> models = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, AtomicLong> updateMap = new ConcurrentHashMap<>();
         private final ControllerUpdateService controllerUpdateService;
-        @Qualifier("controllerUpdateTaskExecutor")
-        private final TaskExecutor controllerUpdateTaskExecutor;
+        private final KeyedSerialExecutor controllerUpdateExecutor;
+        private final HistoryProperties historyProperties;
+        private final ValueSnapshot valueSnapshot;
 
-        public void registerMappings(String name, String env, Set<MappingDesc> descs) {
-                var key = buildKey(name, env);
-                if (descs == null || descs.isEmpty()) {
-                        mappingKeys.remove(key);
-                        return;
-                }
-                var map = mappingKeys.computeIfAbsent(key, k -> new HashMap<>());
-                map.clear();
-                descs.forEach(desc -> {
-                        var nodeId = Mapping.create(desc).getNodeId().getIdentifier().toString();
-                        map.put(nodeId, desc.getKey());
-                });
+        /**
+         * Registers model slots, the first registration after startup restores the
+         * snapshot values of the model
+         */
+        public void registerMappings(String name, String env, ModelIndex index) {
+                var model = envModels(env).compute(name,
+                                (k, current) -> (current == null ? ModelValues.empty(historyProperties) : current).remap(index));
+                valueSnapshot.restore(name, env, model);
         }
 
         public void setValue(String name, String env, String id, TagValue value) {
                 log.debug("[{}@{}] {} -> {}", name, env, id, value);
-                var key = buildKey(name, env);
-                var valueMap = mappings.get(key);
-                if (valueMap == null) {
-                        log.debug("[{}@{}] init value cache", name, env);
-                        valueMap = new HashMap<>();
-                        mappings.put(key, valueMap);
-                }
-                var previous = valueMap.put(id, value);
-                updateMap.put(env, now());
-                var keyMap = mappingKeys.get(key);
-                if (keyMap != null) {
-                        var mappingKey = keyMap.get(id);
-                        if (mappingKey != null) {
-                                log.debug("[{}@{}] resolved mapping key [{}] for node [{}]", name, env, mappingKey, id);
-                                if (previous == null) {
-                                        log.debug("[{}@{}:{}] skip initial value", name, env, mappingKey);
-                                        return;
-                                }
-                                controllerUpdateTaskExecutor.execute(() -> controllerUpdateService.handleValueChange(name, env,
-                                                mappingKey, previous, value));
+                var model = getModelValues(name, env);
+                var handle = model.handle(id);
+                if (handle < 0) {
+                        touch(env);
+                        model.setUnmapped(id, value);
+                        if (model.isEmpty()) {
+                                log.debug("[{}@{}] no registered mapping keys", name, env);
                         } else {
                                 log.debug("[{}@{}] no mapping key for node [{}]", name, env, id);
                         }
-                } else {
-                        log.debug("[{}@{}] no registered mapping keys", name, env);
+                        return;
+                }
+                var number = value.getValue();
+                setValue(name, env, model, handle, number != null, number == null ? 0 : number.doubleValue(),
+                                utcTime(value.getSourceTimestamp()), utcTime(value.getServerTimestamp()),
+                                statusCode(value.getStatus()));
+        }
+
+        /**
+         * Allocation free ingestion path: stores primitive sample into the slot
+         * resolved by {@link ModelValues#handle(String)}.
+         *
+         * @param sourceTime OPC UA UtcTime or {@link TagValues#NO_TIME}
+         * @param serverTime OPC UA UtcTime or {@link TagValues#NO_TIME}
+         * @param status     raw status code or {@link TagValues#NO_STATUS}
+         */
+        public void setValue(String name, String env, ModelValues model, int handle, boolean hasValue, double value,
+                        long sourceTime, long serverTime, long status) {
+                touch(env);
+                if (!model.isUpdate(handle)) {
+                        model.write(handle, hasValue, value, sourceTime, serverTime, status);
+                        return;
                 }
+                var previous = model.exchange(handle, hasValue, value, sourceTime, serverTime, status);
+                var mappingKey = model.key(handle);
+                log.debug("[{}@{}] resolved mapping key [{}] for node [{}]", name, env, mappingKey, model.nodeId(handle));
+                if (previous == null) {
+                        log.debug("[{}@{}:{}] skip initial value", name, env, mappingKey);
+                        return;
+                }
+                // an unchanged sample must not conflate a queued change of the key
+                if (hasValue && previous.getValue() != null && Double.compare(previous.getValue(), value) == 0) {
+                        log.debug("[{}@{}:{}] skip unchanged value {}", name, env, mappingKey, value);
+                        return;
+                }
+                var current = ModelValues.tagValue(hasValue, value, sourceTime, serverTime, status);
+                controllerUpdateExecutor.execute(env + '/' + name, ControllerUpdateService.conflationKey(mappingKey),
+                                () -> controllerUpdateService.handleValueChange(name, env, mappingKey, previous, current));
+        }
+
+        /**
+         * @return value slots of the model, stable until the next
+         *         {@link #registerMappings(String, String, ModelIndex)},
+         *         {@link #clear(String, String)} or {@link #remove(String, String)}
+         */
+        public ModelValues getModelValues(String name, String env) {
+                var envModels = envModels(env);
+                var model = envModels.get(name);
+                if (model == null) {
+                        log.debug("[{}@{}] init value cache", name, env);
+                        model = envModels.computeIfAbsent(name, __ -> ModelValues.empty(historyProperties));
+                }
+                return model;
+        }
+
+        /**
+         * @return value slots of the model or {@code null} if the model is not
+         *         registered
+         */
+        public ModelValues findModelValues(String name, String env) {
+                var envModels = models.get(env);
+                return envModels == null ? null : envModels.get(name);
         }
 
         public Map<String, TagValue> getValues(String name, String env) {
                 log.debug("[{}@{}] getValues", name, env);
-                return mappings.getOrDefault(buildKey(name, env), EMPTY_MAP);
+                var model = findModelValues(name, env);
+                return model == null ? EMPTY_MAP : model.snapshot();
         }
 
+        /**
+         * Drops model values, keeps registered mappings
+         */
+        public void clear(String name, String env) {
+                log.debug("[{}@{}] clear", name, env);
+                var envModels = models.get(env);
+                if (envModels != null) {
+                        envModels.computeIfPresent(name, (k, current) -> current.cleared());
+                }
+        }
+
+        /**
+         * Drops model values, the controller batch is released after the queued
+         * updates of the model
+         */
         public void remove(String name, String env) {
                 log.debug("[{}@{}] remove", name, env);
-                var key = buildKey(name, env);
-                mappings.remove(key);
-                mappingKeys.remove(key);
+                var envModels = models.get(env);
+                if (envModels != null) {
+                        envModels.remove(name);
+                }
+                controllerUpdateExecutor.execute(env + '/' + name, null, () -> controllerUpdateService.remove(name, env));
+        }
+
+        /**
+         * Writes the last known values to the snapshot, off the ingestion path, every
+         * {@code opc.snapshot.interval-ms}
+         */
+        @Scheduled(fixedDelayString = "${opc.snapshot.interval-ms:5000}", initialDelayString = "${opc.snapshot.interval-ms:5000}")
+        public void writeSnapshot() {
+                valueSnapshot.write(models);
+        }
+
+        @PreDestroy
+        public void close() {
+                writeSnapshot();
         }
 
-	private String buildKey(String name, String env) {
-		return "%s@%s".formatted(name, env);
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("opc.cache.models", this, ValueManager::modelCount).description("Models in the value cache")
+				.register(registry);
+		Gauge.builder("opc.cache.values", this, ValueManager::valueCount)
+				.description("Value slots and unmapped values in the value cache").register(registry);
+	}
+
+	private double modelCount() {
+		return models.values().stream().mapToInt(Map::size).sum();
+	}
+
+	private double valueCount() {
+		return models.values().stream().flatMap(envModels -> envModels.values().stream())
+				.mapToLong(ModelValues::size).sum();
 	}
 
 	public Instant getUpdateTS(String env) {
-		return updateMap.getOrDefault(env, Instant.EPOCH);
+		var ts = updateMap.get(env);
+		return ts == null ? Instant.EPOCH : Instant.ofEpochMilli(ts.get());
+	}
+
+	private ConcurrentMap<String, ModelValues> envModels(String env) {
+		var envModels = models.get(env);
+		return envModels != null ? envModels : models.computeIfAbsent(env, __ -> new ConcurrentHashMap<>());
+	}
+
+	private void touch(String env) {
+		var ts = updateMap.get(env);
+		if (ts == null) {
+			ts = updateMap.computeIfAbsent(env, __ -> new AtomicLong());
+		}
+		ts.lazySet(System.currentTimeMillis());
 	}
 }
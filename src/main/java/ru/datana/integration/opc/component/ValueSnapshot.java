@@ -0,0 +1,269 @@
+package ru.datana.integration.opc.component;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import ru.datana.integration.opc.config.SnapshotProperties;
+import ru.datana.integration.opc.dto.TagValue;
+import ru.datana.integration.opc.util.TagValues;
+
+/**
+ * Memory-mapped snapshot of the last known slot values.
+ * <p>
+ * Slot handles depend on the mapping order, so every slot record carries its
+ * node address: {@code address, flags, value, source time, server time,
+ * status}. At startup only the model directory is read; the values of a model
+ * are decoded when its mappings are registered and are served as
+ * {@link TagValue#SOURCE_SNAPSHOT} with a good status downgraded to uncertain
+ * (last usable value) until a live sample replaces them. Models not restored
+ * yet are carried over to the next snapshot.
+ * <p>
+ * Slots are read under their sequence lock, a snapshot write never blocks the
+ * ingestion path.
+ */
+@Slf4j
+@Component
+public class ValueSnapshot {
+	private static final int MAGIC = 0x4f504356;
+	private static final int VERSION = 1;
+	private static final int HEADER = 4 + 4 + 8 + 4;
+	private static final int SAMPLE = 1 + 8 + 8 + 8 + 8;
+	private static final byte PRESENT = 1;
+	private static final byte HAS_VALUE = 2;
+
+	/**
+	 * Model section of the loaded snapshot: env, name, slot count and records
+	 */
+	private record Section(int offset, int length) {
+	}
+
+	private record Model(String env, String name, ModelValues values) {
+	}
+
+	private final Path path;
+	private final ReentrantLock lock = new ReentrantLock();
+	/**
+	 * env -> name -> section not restored yet
+	 */
+	private final Map<String, Map<String, Section>> pending = new HashMap<>();
+	private MappedByteBuffer loaded;
+
+	public ValueSnapshot(SnapshotProperties properties) {
+		this.path = isBlank(properties.getFile()) ? null : Path.of(properties.getFile());
+	}
+
+	/**
+	 * Maps the snapshot and reads its model directory
+	 */
+	@PostConstruct
+	public void open() throws IOException {
+		if (path == null) {
+			log.info("Value snapshot is disabled");
+			return;
+		}
+		if (!Files.exists(path)) {
+			if (path.getParent() != null) {
+				Files.createDirectories(path.getParent());
+			}
+			return;
+		}
+		lock.lock();
+		try (var channel = FileChannel.open(path, READ)) {
+			loaded = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			var buffer = loaded.duplicate();
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IllegalArgumentException("unknown format");
+			}
+			var writtenAt = buffer.getLong();
+			var count = buffer.getInt();
+			for (int i = 0; i < count; i++) {
+				var offset = buffer.position();
+				var env = string(buffer);
+				var name = string(buffer);
+				var slots = buffer.getInt();
+				for (int slot = 0; slot < slots; slot++) {
+					var length = Short.toUnsignedInt(buffer.getShort());
+					buffer.position(buffer.position() + length + SAMPLE);
+				}
+				pending.computeIfAbsent(env, __ -> new HashMap<>()).put(name,
+						new Section(offset, buffer.position() - offset));
+			}
+			log.info("Value snapshot {} of {} loaded: {} models", path, Instant.ofEpochMilli(writtenAt), count);
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			log.warn("Skip unreadable value snapshot {}: {}", path, e.toString());
+			pending.clear();
+			loaded = null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stores the snapshot values of the model into its empty slots, once per
+	 * model
+	 *
+	 * @return number of restored values
+	 */
+	int restore(String name, String env, ModelValues model) {
+		lock.lock();
+		try {
+			var envSections = pending.get(env);
+			var section = envSections == null ? null : envSections.remove(name);
+			if (section == null) {
+				return 0;
+			}
+			var buffer = loaded.slice(section.offset(), section.length());
+			string(buffer);
+			string(buffer);
+			var slots = buffer.getInt();
+			var res = 0;
+			for (int slot = 0; slot < slots; slot++) {
+				var handle = model.handle(string(buffer));
+				var flags = buffer.get();
+				var value = buffer.getDouble();
+				var sourceTime = buffer.getLong();
+				var serverTime = buffer.getLong();
+				var status = buffer.getLong();
+				if (handle >= 0 && (flags & PRESENT) != 0
+						&& model.restore(handle, (flags & HAS_VALUE) != 0, value, sourceTime, serverTime, stale(status))) {
+					res++;
+				}
+			}
+			if (pending.values().stream().allMatch(Map::isEmpty)) {
+				pending.clear();
+				loaded = null;
+			}
+			log.info("[{}@{}] {} values restored from snapshot", name, env, res);
+			return res;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Replaces the snapshot with the values of {@code models} (env -> name ->
+	 * values) and the models not restored yet
+	 */
+	void write(Map<String, ? extends Map<String, ModelValues>> models) {
+		if (path == null) {
+			return;
+		}
+		var start = System.nanoTime();
+		lock.lock();
+		try {
+			// slot counts of the captured instances fix the size of their sections
+			var current = new ArrayList<Model>();
+			models.forEach((env, envModels) -> envModels.forEach((name, values) -> {
+				if (!values.isEmpty()) {
+					current.add(new Model(env, name, values));
+				}
+			}));
+			var carried = new ArrayList<Section>();
+			pending.forEach((env, envSections) -> envSections.forEach((name, section) -> {
+				if (!isWritten(models, env, name)) {
+					carried.add(section);
+				}
+			}));
+			long size = HEADER;
+			for (var model : current) {
+				size += sectionSize(model);
+			}
+			for (var section : carried) {
+				size += section.length();
+			}
+			var tmp = path.resolveSibling(path.getFileName() + ".tmp");
+			try (var channel = FileChannel.open(tmp, CREATE, READ, WRITE, TRUNCATE_EXISTING)) {
+				var buffer = channel.map(MapMode.READ_WRITE, 0, size);
+				buffer.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis())
+						.putInt(current.size() + carried.size());
+				current.forEach(model -> writeSection(buffer, model));
+				carried.forEach(section -> buffer.put(loaded.slice(section.offset(), section.length())));
+				buffer.force();
+			}
+			Files.move(tmp, path, ATOMIC_MOVE, REPLACE_EXISTING);
+			log.debug("Value snapshot of {} models ({} bytes) written in {} ms", current.size() + carried.size(), size,
+					(System.nanoTime() - start) / 1_000_000);
+		} catch (IOException | RuntimeException e) {
+			log.error("Failure to write value snapshot {}", path, e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private static boolean isWritten(Map<String, ? extends Map<String, ModelValues>> models, String env, String name) {
+		var envModels = models.get(env);
+		var values = envModels == null ? null : envModels.get(name);
+		return values != null && !values.isEmpty();
+	}
+
+	private static long sectionSize(Model model) {
+		var values = model.values();
+		long res = 2 + utf8Length(model.env()) + 2 + utf8Length(model.name()) + 4;
+		for (int handle = 0; handle < values.index().slotCount(); handle++) {
+			res += 2 + utf8Length(values.nodeId(handle)) + SAMPLE;
+		}
+		return res;
+	}
+
+	private static void writeSection(ByteBuffer buffer, Model model) {
+		var values = model.values();
+		putString(buffer, model.env());
+		putString(buffer, model.name());
+		buffer.putInt(values.index().slotCount());
+		values.forEachSlot((handle, present, hasValue, restored, value, sourceTime, serverTime, status) -> {
+			putString(buffer, values.nodeId(handle));
+			buffer.put((byte) ((present ? PRESENT : 0) | (hasValue ? HAS_VALUE : 0))).putDouble(value)
+					.putLong(sourceTime).putLong(serverTime).putLong(status);
+		});
+	}
+
+	/**
+	 * @return uncertain (last usable value) instead of a good or absent status
+	 */
+	private static long stale(long status) {
+		return status == TagValues.NO_STATUS || new StatusCode(status).isGood()
+				? StatusCodes.Uncertain_LastUsableValue
+				: status;
+	}
+
+	private static int utf8Length(String value) {
+		return value.getBytes(UTF_8).length;
+	}
+
+	private static void putString(ByteBuffer buffer, String value) {
+		var bytes = value.getBytes(UTF_8);
+		buffer.putShort((short) bytes.length).put(bytes);
+	}
+
+	private static String string(ByteBuffer buffer) {
+		var bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+		buffer.get(bytes);
+		return new String(bytes, UTF_8);
+	}
+}
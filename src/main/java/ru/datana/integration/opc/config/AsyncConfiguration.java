@@ -1,32 +1,77 @@
 package ru.datana.integration.opc.config;
 
+import java.util.concurrent.ThreadPoolExecutor;
+
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import ru.datana.integration.opc.component.KeyedSerialExecutor;
+
+/**
+ * Executors of the application. Queue depth and active threads of
+ * {@code subscriptionTaskExecutor} are published by Spring Boot
+ * ({@code executor.*} meters), rejections and the controller update lanes are
+ * published here with the same meter names.
+ */
 @Configuration
 public class AsyncConfiguration {
+        static final String REJECTED_METRIC = "executor.rejected";
 
         @Bean(name = "subscriptionTaskExecutor")
-        public TaskExecutor subscriptionTaskExecutor() {
+        public TaskExecutor subscriptionTaskExecutor(MeterRegistry meterRegistry) {
+                var rejected = meterRegistry.counter(REJECTED_METRIC, "name", "subscriptionTaskExecutor");
+                var policy = new ThreadPoolExecutor.AbortPolicy();
                 var executor = new ThreadPoolTaskExecutor();
                 executor.setThreadNamePrefix("subscription-");
                 executor.setCorePoolSize(2);
                 executor.setMaxPoolSize(8);
                 executor.setQueueCapacity(100);
+                executor.setRejectedExecutionHandler((task, pool) -> {
+                        rejected.increment();
+                        policy.rejectedExecution(task, pool);
+                });
                 executor.initialize();
                 return executor;
         }
 
-        @Bean(name = "controllerUpdateTaskExecutor")
-        public TaskExecutor controllerUpdateTaskExecutor() {
-                var executor = new ThreadPoolTaskExecutor();
-                executor.setThreadNamePrefix("controller-update-");
-                executor.setCorePoolSize(4);
-                executor.setMaxPoolSize(16);
-                executor.setQueueCapacity(200);
-                executor.initialize();
-                return executor;
+        /**
+         * FIFO lane per controller on virtual threads, controllers are processed in
+         * parallel
+         */
+        @Bean(name = "controllerUpdateExecutor")
+        public KeyedSerialExecutor controllerUpdateExecutor(ControllerApiProperties properties) {
+                var threads = Thread.ofVirtual().name("controller-update-", 0).factory();
+                return new KeyedSerialExecutor(task -> threads.newThread(task).start(), properties.getLaneDepth(),
+                                properties.getOverflowPolicy());
+        }
+
+        /**
+         * Queued tasks, running lanes, dropped and conflated tasks of
+         * {@code controllerUpdateExecutor}
+         */
+        @Bean
+        public MeterBinder controllerUpdateExecutorMetrics(KeyedSerialExecutor controllerUpdateExecutor) {
+                var name = "controllerUpdateExecutor";
+                return registry -> {
+                        Gauge.builder("executor.queued", controllerUpdateExecutor, KeyedSerialExecutor::queued)
+                                        .tag("name", name).description("Tasks waiting in the controller lanes")
+                                        .baseUnit("tasks").register(registry);
+                        Gauge.builder("executor.active", controllerUpdateExecutor, KeyedSerialExecutor::active)
+                                        .tag("name", name).description("Controller lanes running a task")
+                                        .baseUnit("threads").register(registry);
+                        FunctionCounter.builder(REJECTED_METRIC, controllerUpdateExecutor, KeyedSerialExecutor::dropped)
+                                        .tag("name", name).description("Tasks dropped from full controller lanes")
+                                        .baseUnit("tasks").register(registry);
+                        FunctionCounter.builder("executor.conflated", controllerUpdateExecutor,
+                                        KeyedSerialExecutor::conflated).tag("name", name)
+                                        .description("Tasks replaced by a newer task of the same key")
+                                        .baseUnit("tasks").register(registry);
+                };
         }
 }
@@ -1,5 +1,6 @@
 package ru.datana.integration.opc.config;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -7,6 +8,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import lombok.Getter;
 import lombok.Setter;
+import ru.datana.integration.opc.component.KeyedSerialExecutor.OverflowPolicy;
 
 @Getter
 @Setter
@@ -17,6 +19,19 @@ public class ControllerApiProperties {
         private String basePath = "/api/controller";
         private String baseUrl;
         private Map<String, String> environments = new HashMap<>();
+        /**
+         * Updates of a controller arriving within the window are merged into one
+         * call per endpoint, zero disables batching
+         */
+        private Duration batchWindow = Duration.ofMillis(50);
+        /**
+         * Max queued updates per controller
+         */
+        private int laneDepth = 256;
+        /**
+         * What happens to an update of a controller with a full lane
+         */
+        private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
 
         public String resolveBaseUrl(String env) {
                 var override = environments.get(env);
@@ -0,0 +1,25 @@
+package ru.datana.integration.opc.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Retention of the per-tag value history.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "opc.history")
+public class HistoryProperties {
+        /**
+         * Samples kept per tag, {@code 0} (default) disables history
+         */
+        private int capacity;
+        /**
+         * Samples older than retention are not returned
+         */
+        private Duration retention = Duration.ofMinutes(10);
+}
@@ -0,0 +1,24 @@
+package ru.datana.integration.opc.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Journal of the registered models, replayed at startup.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "opc.registry")
+public class RegistryProperties {
+        /**
+         * Journal file, blank disables the journal
+         */
+        private String journal;
+        /**
+         * Records appended since the last compaction that trigger the next one
+         * (and at least as many as the live records)
+         */
+        private int compactionThreshold = 1000;
+}
@@ -0,0 +1,19 @@
+package ru.datana.integration.opc.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Snapshot of the last known values, restored at startup.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "opc.snapshot")
+public class SnapshotProperties {
+        /**
+         * Snapshot file, blank disables the snapshot
+         */
+        private String file;
+}
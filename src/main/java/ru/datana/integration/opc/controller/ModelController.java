@@ -1,8 +1,14 @@
 package ru.datana.integration.opc.controller;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -11,21 +17,28 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import ru.datana.integration.opc.dto.ColumnarValues;
+import ru.datana.integration.opc.dto.HistoryPoint;
+import ru.datana.integration.opc.dto.SubscriptionSettings;
+import ru.datana.integration.opc.dto.TagValue;
 import ru.datana.integration.opc.request.MappingDesc;
 import ru.datana.integration.opc.request.ModelMeta;
 import ru.datana.integration.opc.request.SubscribeRequest;
 import ru.datana.integration.opc.request.ValueUpdateRequest;
 import ru.datana.integration.opc.service.OpcService;
-import ru.datana.integration.opc.dto.TagValue;
+import ru.datana.integration.opc.service.ValueStreamService;
 
 import ru.datana.integration.opc.exception.APIError;
 
@@ -36,7 +49,9 @@ import ru.datana.integration.opc.exception.APIError;
 public class ModelController {
 	private static final ResponseEntity<Void> NO_CONTENT = ResponseEntity.noContent().build();
 	private static final String PROCESSED = "processed";
+	private static final String COLUMNAR = "layout=columnar";
 	private final OpcService service;
+	private final ValueStreamService streamService;
 
 	@Operation(summary = "Add or replace mappings to controller")
 	@ApiResponses(value = {
@@ -97,10 +112,12 @@ public class ModelController {
 			@ApiResponse(responseCode = "404", description = "Mapping for Controller @ Environment is not found", content = {
 					@Content(mediaType = "application/json", schema = @Schema(implementation = APIError.class)) }) })
 	@PostMapping("/{name}/{env}/subscribe")
-	public ResponseEntity<Void> subscribe(@PathVariable String name, @PathVariable String env, @RequestBody SubscribeRequest request) {
+	public ResponseEntity<Void> subscribe(@PathVariable String name, @PathVariable String env,
+			@Validated @RequestBody SubscribeRequest request) {
 		log.debug("Subscribe [{}] model at [{}] environment. Request: {}", name, env, request);
 		var keys = request.getKeys();
-		service.subscribe(name, env, keys);
+		service.subscribe(name, env, keys,
+				new SubscriptionSettings(request.getPublishingIntervalMs(), request.getSampling()));
 		return NO_CONTENT;
 	}
 
@@ -127,19 +144,82 @@ public class ModelController {
                 return response;
         }
 
+	@Operation(summary = "Get mapping values for controller at environment in columnar layout (JSON, CBOR or Smile by Accept)")
+	@ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Parallel arrays of values, timestamps and statuses"),
+			@ApiResponse(responseCode = "404", description = "Mapping for Controller @ Environment is not found", content = {
+					@Content(mediaType = "application/json", schema = @Schema(implementation = APIError.class)) }) })
+	@GetMapping(path = "/{name}/{env}/values", params = COLUMNAR)
+	public ColumnarValues getColumnarValues(@PathVariable String name, @PathVariable String env,
+			@Parameter(description = "Schema of the previous response, keys are omitted if it is unchanged")
+			@RequestParam(required = false) String schema) {
+		log.debug("Get columnar values [{}] model at [{}] environment, schema {}", name, env, schema);
+		return service.getColumnarValues(name, env, schema);
+	}
+
+	@Operation(summary = "Stream mapping value changes for controller at environment")
+	@ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Snapshot event followed by conflated update events"),
+			@ApiResponse(responseCode = "404", description = "Mapping for Controller @ Environment is not found", content = {
+					@Content(mediaType = "application/json", schema = @Schema(implementation = APIError.class)) }),
+			@ApiResponse(responseCode = "503", description = "Too many value stream subscribers", content = {
+					@Content(mediaType = "application/json", schema = @Schema(implementation = APIError.class)) }) })
+	@GetMapping(path = "/{name}/{env}/values/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter streamValues(@PathVariable String name, @PathVariable String env,
+			@RequestParam(required = false) Long conflationMs) {
+		log.debug("Stream values [{}] model at [{}] environment, conflation: {} ms", name, env, conflationMs);
+		return streamService.stream(name, env, conflationMs);
+	}
+
+	@Operation(summary = "Get mapping values history for controller at environment")
+	@ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Raw samples or min / max / avg per step bucket"),
+			@ApiResponse(responseCode = "400", description = "Unknown mapping keys", content = {
+					@Content(mediaType = "application/json", schema = @Schema(implementation = APIError.class)) }),
+			@ApiResponse(responseCode = "404", description = "Mapping for Controller @ Environment is not found", content = {
+					@Content(mediaType = "application/json", schema = @Schema(implementation = APIError.class)) }) })
+	@GetMapping("/{name}/{env}/values/history")
+	public Map<String, List<HistoryPoint>> getHistory(@PathVariable String name, @PathVariable String env,
+			@RequestParam(required = false) Set<String> keys,
+			@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Instant from,
+			@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) Instant to,
+			@RequestParam(required = false) Duration step) {
+		log.debug("Get {} history [{}, {}) step {} of [{}] model at [{}] environment", keys, from, to, step, name, env);
+		var response = service.getHistory(name, env, keys, from, to, step);
+		log.debug("History keys: {}", response.keySet());
+		return response;
+	}
+
 	@Operation(summary = "Get ALL mapping values for controller at environment")
 	@ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Load values for all mapping items"),
 			@ApiResponse(responseCode = "404", description = "Mapping for Controller @ Environment is not found", content = {
 					@Content(mediaType = "application/json", schema = @Schema(implementation = APIError.class)) }) })
 	@Deprecated
 	@PostMapping("/{name}/{env}/values/all")
-        public Map<String, TagValue> getKeysValues(@PathVariable String name, @PathVariable String env, @RequestBody Set<String> keys) {
-                log.debug("Get {} values for [{}] model at [{}] environment", keys, name, env);
-                var response = service.getKeysValues(name, env, keys);
+        public Map<String, TagValue> getKeysValues(@PathVariable String name, @PathVariable String env,
+                        @RequestBody Set<String> keys,
+                        @Parameter(description = "Values received within this age (ms) are served from the cache")
+                        @RequestParam(required = false) Long maxAgeMs) {
+                log.debug("Get {} values for [{}] model at [{}] environment, max age {} ms", keys, name, env, maxAgeMs);
+                var response = service.getKeysValues(name, env, keys, maxAgeMs);
                 log.debug("Values: {}", response);
                 return response;
 	}
 
+	@Operation(summary = "Get ALL mapping values for controller at environment in columnar layout (JSON, CBOR or Smile by Accept)")
+	@ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Parallel arrays of values, timestamps and statuses in key order"),
+			@ApiResponse(responseCode = "404", description = "Mapping for Controller @ Environment is not found", content = {
+					@Content(mediaType = "application/json", schema = @Schema(implementation = APIError.class)) }) })
+	@Deprecated
+	@PostMapping(path = "/{name}/{env}/values/all", params = COLUMNAR)
+	public ColumnarValues getColumnarKeysValues(@PathVariable String name, @PathVariable String env,
+			@RequestBody Set<String> keys,
+			@Parameter(description = "Values received within this age (ms) are served from the cache")
+			@RequestParam(required = false) Long maxAgeMs,
+			@Parameter(description = "Schema of the previous response, keys are omitted if it is unchanged")
+			@RequestParam(required = false) String schema) {
+		log.debug("Get {} columnar values for [{}] model at [{}] environment, max age {} ms, schema {}", keys, name, env,
+				maxAgeMs, schema);
+		return service.getColumnarKeysValues(name, env, keys, maxAgeMs, schema);
+	}
+
 	@Operation(summary = "Set mapping values for controller at environment")
 	@ApiResponses(value = { @ApiResponse(responseCode = "204", description = "Mapping has been deleted"),
 			@ApiResponse(responseCode = "404", description = "Mapping for Controller @ Environment is not found", content = {
@@ -0,0 +1,116 @@
+package ru.datana.integration.opc.dto;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Value;
+import ru.datana.integration.opc.util.TagValues;
+
+/**
+ * Model values in columnar layout: parallel arrays in {@link #keys} order.
+ * <p>
+ * Status byte: bits 0-1 are the severity ({@link #GOOD}, {@link #UNCERTAIN},
+ * {@link #BAD} or {@link #NO_STATUS} if there is no sample or status), bits
+ * 2-3 the source ({@link #SOURCE_SUBSCRIPTION}, {@link #SOURCE_CACHE},
+ * {@link #SOURCE_SERVER} or {@link #SOURCE_SNAPSHOT}).
+ */
+@Value
+@JsonInclude(NON_NULL)
+public class ColumnarValues {
+	public static final byte GOOD = 0;
+	public static final byte UNCERTAIN = 1;
+	public static final byte BAD = 2;
+	public static final byte NO_STATUS = 3;
+	public static final byte SOURCE_SUBSCRIPTION = 0;
+	public static final byte SOURCE_CACHE = 1 << 2;
+	public static final byte SOURCE_SERVER = 2 << 2;
+	public static final byte SOURCE_SNAPSHOT = 3 << 2;
+
+	@Schema(description = "Identifier of the key list, keys are omitted if the request names the same schema")
+	String schema;
+	@Schema(description = "Mapping keys, absent if the requested schema is current")
+	List<String> keys;
+	@Schema(description = "Values, NaN if there is no value")
+	double[] values;
+	@Schema(description = "Source timestamps in epoch millis, 0 if unknown")
+	long[] sourceTimestamps;
+	@Schema(description = "Server timestamps in epoch millis, 0 if unknown")
+	long[] serverTimestamps;
+	@Schema(description = "Severity (bits 0-1: good, uncertain, bad, unknown) and source (bits 2-3: subscription, cache, server, snapshot)")
+	byte[] statuses;
+
+	/**
+	 * @param requestedSchema schema known to the caller
+	 * @return values in key order
+	 */
+	public static ColumnarValues of(Map<String, TagValue> values, String requestedSchema) {
+		var keys = new ArrayList<>(values.keySet());
+		keys.sort(null);
+		var size = keys.size();
+		var res = new double[size];
+		var sourceTimestamps = new long[size];
+		var serverTimestamps = new long[size];
+		var statuses = new byte[size];
+		for (int i = 0; i < size; i++) {
+			var value = values.get(keys.get(i));
+			res[i] = value.getValue() == null ? Double.NaN : value.getValue();
+			sourceTimestamps[i] = epochMillis(value.getSourceTimestamp());
+			serverTimestamps[i] = epochMillis(value.getServerTimestamp());
+			statuses[i] = status(value.getStatus(), value.getSource());
+		}
+		var schema = schema(keys);
+		return new ColumnarValues(schema, schema.equals(requestedSchema) ? null : List.copyOf(keys), res,
+				sourceTimestamps, serverTimestamps, statuses);
+	}
+
+	/**
+	 * @return identifier of the ordered key list
+	 */
+	public static String schema(List<String> keys) {
+		try {
+			var digest = MessageDigest.getInstance("SHA-256");
+			keys.forEach(key -> digest.update((key + '\n').getBytes(UTF_8)));
+			return HexFormat.of().formatHex(Arrays.copyOf(digest.digest(), 8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @param status {@link TagValues#GOOD}, {@link TagValues#UNCERTAIN},
+	 *               {@link TagValues#BAD} or {@code null} if unknown
+	 * @param source {@link TagValue#getSource()}
+	 */
+	public static byte status(String status, String source) {
+		var severity = status == null ? NO_STATUS
+				: switch (status) {
+				case TagValues.GOOD -> GOOD;
+				case TagValues.UNCERTAIN -> UNCERTAIN;
+				default -> BAD;
+				};
+		var origin = source == null ? SOURCE_SUBSCRIPTION
+				: switch (source) {
+				case TagValue.SOURCE_CACHE -> SOURCE_CACHE;
+				case TagValue.SOURCE_SERVER -> SOURCE_SERVER;
+				case TagValue.SOURCE_SNAPSHOT -> SOURCE_SNAPSHOT;
+				default -> SOURCE_SUBSCRIPTION;
+				};
+		return (byte) (severity | origin);
+	}
+
+	private static long epochMillis(String timestamp) {
+		return timestamp == null ? 0 : Instant.parse(timestamp).toEpochMilli();
+	}
+}
@@ -0,0 +1,23 @@
+package ru.datana.integration.opc.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Raw history sample ({@code value}) or downsampled bucket ({@code min},
+ * {@code max}, {@code avg}, {@code count}) starting at {@code timestamp}.
+ * Status of a bucket is the worst status of its samples.
+ */
+@Value
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class HistoryPoint {
+    String timestamp;
+    Double value;
+    Double min;
+    Double max;
+    Double avg;
+    Integer count;
+    String status;
+}
@@ -0,0 +1,56 @@
+package ru.datana.integration.opc.dto;
+
+import static java.util.Optional.ofNullable;
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+import java.util.function.Function;
+
+import org.eclipse.milo.opcua.stack.core.types.enumerated.DataChangeTrigger;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.DeadbandType;
+import org.eclipse.milo.opcua.stack.core.types.structured.DataChangeFilter;
+
+import ru.datana.integration.opc.request.SamplingDesc;
+
+/**
+ * Resolved settings of a monitored item, items with equal settings of the same
+ * node are shared by models
+ *
+ * @param samplingInterval ms
+ * @param queueSize        server queue size, the oldest value is discarded on
+ *                         overflow
+ * @param deadbandType     {@code None} disables the data change filter
+ */
+public record ItemSampling(double samplingInterval, int queueSize, DeadbandType deadbandType, double deadband) {
+
+	/**
+	 * Resolves each setting from the first of {@code mapping}, {@code model} which
+	 * has it, the publishing interval, queue size {@code 1} and no filter
+	 * otherwise
+	 */
+	public static ItemSampling resolve(SamplingDesc mapping, SamplingDesc model, double publishingInterval) {
+		var samplingInterval = setting(mapping, model, SamplingDesc::getSamplingIntervalMs);
+		var queueSize = setting(mapping, model, SamplingDesc::getQueueSize);
+		var deadbandType = setting(mapping, model, SamplingDesc::getDeadbandType);
+		var deadband = setting(mapping, model, SamplingDesc::getDeadband);
+		var type = switch (deadbandType == null ? SamplingDesc.DeadbandType.NONE : deadbandType) {
+		case NONE -> DeadbandType.None;
+		case ABSOLUTE -> DeadbandType.Absolute;
+		case PERCENT -> DeadbandType.Percent;
+		};
+		return new ItemSampling(samplingInterval == null ? publishingInterval : samplingInterval,
+				queueSize == null ? 1 : queueSize, type, type == DeadbandType.None || deadband == null ? 0 : deadband);
+	}
+
+	/**
+	 * @return data change filter or {@code null} if no deadband is set
+	 */
+	public DataChangeFilter filter() {
+		return deadbandType == DeadbandType.None ? null
+				: new DataChangeFilter(DataChangeTrigger.StatusValue, uint(deadbandType.getValue()), deadband);
+	}
+
+	private static <T> T setting(SamplingDesc mapping, SamplingDesc model,
+			Function<SamplingDesc, T> getter) {
+		return ofNullable(mapping).map(getter).or(() -> ofNullable(model).map(getter)).orElse(null);
+	}
+}
@@ -0,0 +1,158 @@
+package ru.datana.integration.opc.dto;
+
+import static java.util.Comparator.comparing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+
+import ru.datana.integration.opc.exception.SubscriptionException;
+import ru.datana.integration.opc.request.MappingDesc;
+
+/**
+ * Immutable compiled form of the model mappings.
+ * <p>
+ * Built once when mappings are replaced. Every mapping gets a position
+ * (ordered by key) with precomputed {@link NodeId} and address; every distinct
+ * address gets a value slot. Several keys may share a slot, the first of them
+ * owns it.
+ */
+public final class ModelIndex {
+	public static final ModelIndex EMPTY = compile(null, Set.of());
+
+	private final String name;
+	private final Set<MappingDesc> mappings;
+	private final MappingDesc[] descs;
+	private final String[] keys;
+	private final NodeId[] nodeIds;
+	private final String[] addresses;
+	private final int[] slots;
+	private final String[] slotAddresses;
+	private final String[] slotKeys;
+	private final Map<String, Integer> positions;
+	private final Map<String, Integer> slotsByAddress;
+
+	private ModelIndex(String name, Set<MappingDesc> mappings, MappingDesc[] descs, NodeId[] nodeIds,
+			String[] addresses, int[] slots, String[] slotAddresses, String[] slotKeys, Map<String, Integer> positions,
+			Map<String, Integer> slotsByAddress) {
+		this.name = name;
+		this.mappings = mappings;
+		this.descs = descs;
+		this.keys = Arrays.stream(descs).map(MappingDesc::getKey).toArray(String[]::new);
+		this.nodeIds = nodeIds;
+		this.addresses = addresses;
+		this.slots = slots;
+		this.slotAddresses = slotAddresses;
+		this.slotKeys = slotKeys;
+		this.positions = positions;
+		this.slotsByAddress = slotsByAddress;
+	}
+
+	/**
+	 * @throws SubscriptionException if any mapping has no node identifier
+	 */
+	public static ModelIndex compile(String name, Set<MappingDesc> mappings) {
+		var descs = mappings.stream().sorted(comparing(MappingDesc::getKey)).toArray(MappingDesc[]::new);
+		var size = descs.length;
+		var nodeIds = new NodeId[size];
+		var addresses = new String[size];
+		var slots = new int[size];
+		var positions = new HashMap<String, Integer>(size * 2);
+		var slotsByAddress = new HashMap<String, Integer>(size * 2);
+		var slotAddresses = new ArrayList<String>(size);
+		var slotKeys = new ArrayList<String>(size);
+		for (int i = 0; i < size; i++) {
+			var mapping = Mapping.create(descs[i]);
+			var key = mapping.getKey();
+			var address = mapping.buildAddress();
+			nodeIds[i] = mapping.getNodeId();
+			addresses[i] = address;
+			positions.putIfAbsent(key, i);
+			slots[i] = slotsByAddress.computeIfAbsent(address, __ -> {
+				slotAddresses.add(address);
+				slotKeys.add(key);
+				return slotAddresses.size() - 1;
+			});
+		}
+		return new ModelIndex(name, Set.copyOf(mappings), descs, nodeIds, addresses, slots,
+				slotAddresses.toArray(String[]::new), slotKeys.toArray(String[]::new), Map.copyOf(positions),
+				Map.copyOf(slotsByAddress));
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Set<MappingDesc> getMappings() {
+		return mappings;
+	}
+
+	/**
+	 * @return number of mappings (positions)
+	 */
+	public int size() {
+		return descs.length;
+	}
+
+	/**
+	 * @return position of the mapping key or {@code -1} if the key is unknown
+	 */
+	public int position(String key) {
+		var position = positions.get(key);
+		return position == null ? -1 : position.intValue();
+	}
+
+	public MappingDesc desc(int position) {
+		return descs[position];
+	}
+
+	public String key(int position) {
+		return keys[position];
+	}
+
+	/**
+	 * @return node identifier built with the requested (not resolved) namespace
+	 *         index
+	 */
+	public NodeId nodeId(int position) {
+		return nodeIds[position];
+	}
+
+	public String address(int position) {
+		return addresses[position];
+	}
+
+	public int slot(int position) {
+		return slots[position];
+	}
+
+	/**
+	 * @return number of distinct addresses (slots)
+	 */
+	public int slotCount() {
+		return slotAddresses.length;
+	}
+
+	/**
+	 * @return slot of the address or {@code -1} if the address is not mapped
+	 */
+	public int slotOf(String address) {
+		var slot = slotsByAddress.get(address);
+		return slot == null ? -1 : slot.intValue();
+	}
+
+	public String slotAddress(int slot) {
+		return slotAddresses[slot];
+	}
+
+	/**
+	 * @return key owning the slot
+	 */
+	public String slotKey(int slot) {
+		return slotKeys[slot];
+	}
+}
@@ -0,0 +1,14 @@
+package ru.datana.integration.opc.dto;
+
+import ru.datana.integration.opc.request.SamplingDesc;
+
+/**
+ * Subscription settings of a model
+ *
+ * @param publishingIntervalMs service default if {@code null}
+ * @param sampling             monitored item settings of the model mappings,
+ *                             may be {@code null}
+ */
+public record SubscriptionSettings(Double publishingIntervalMs, SamplingDesc sampling) {
+	public static final SubscriptionSettings DEFAULT = new SubscriptionSettings(null, null);
+}
@@ -5,11 +5,21 @@ import lombok.Builder;
 import lombok.Value;
 
 @Value
-@Builder
+@Builder(toBuilder = true)
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class TagValue {
+    public static final String SOURCE_CACHE = "cache";
+    public static final String SOURCE_SERVER = "server";
+    public static final String SOURCE_SNAPSHOT = "snapshot";
+
     Double value;
     String sourceTimestamp;
     String serverTimestamp;
     String status;
+    /**
+     * Where a read value comes from: {@link #SOURCE_CACHE},
+     * {@link #SOURCE_SERVER} or {@link #SOURCE_SNAPSHOT} (last known value of
+     * the previous run, not received since the restart)
+     */
+    String source;
 }
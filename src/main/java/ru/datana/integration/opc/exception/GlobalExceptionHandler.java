@@ -5,6 +5,7 @@ import static lombok.AccessLevel.PRIVATE;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 
 import java.util.Map;
 import java.util.Set;
@@ -109,6 +110,14 @@ public class GlobalExceptionHandler {
 		return buildResponse(INTERNAL_SERVER_ERROR, CODE_INTERNAL_ERROR, e.getMessage());
 	}
 
+	/**
+	 * Override exception handler for ServiceUnavailableException
+	 */
+	@ExceptionHandler
+	public ResponseEntity<APIError> handle(ServiceUnavailableException e) {
+		return buildResponse(SERVICE_UNAVAILABLE, CODE_INTERNAL_ERROR, e.getMessage());
+	}
+
 	/**
 	 * Override exception handler for the custom ValidException
 	 */
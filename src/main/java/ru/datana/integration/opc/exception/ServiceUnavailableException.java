@@ -0,0 +1,13 @@
+package ru.datana.integration.opc.exception;
+
+/**
+ * Request can't be served now (capacity limit, environment still connecting),
+ * the client may retry later
+ */
+public class ServiceUnavailableException extends RuntimeException {
+	private static final long serialVersionUID = 6151409617440937521L;
+
+	public ServiceUnavailableException(String message) {
+		super(message);
+	}
+}
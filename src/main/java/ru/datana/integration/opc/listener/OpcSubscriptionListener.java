@@ -1,6 +1,12 @@
 package ru.datana.integration.opc.listener;
 
+import static ru.datana.integration.opc.util.TagValues.statusCode;
+import static ru.datana.integration.opc.util.TagValues.utcTime;
+
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.milo.opcua.sdk.client.subscriptions.ManagedDataItem;
 import org.eclipse.milo.opcua.sdk.client.subscriptions.ManagedSubscription;
@@ -8,66 +14,77 @@ import org.eclipse.milo.opcua.sdk.client.subscriptions.ManagedSubscription.Chang
 import org.eclipse.milo.opcua.sdk.client.subscriptions.ManagedSubscription.StatusListener;
 import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
 import org.eclipse.milo.opcua.stack.core.types.builtin.ExpandedNodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
 import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
 import org.eclipse.milo.opcua.stack.core.types.enumerated.IdType;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import ru.datana.integration.opc.component.ModelValues;
 import ru.datana.integration.opc.component.ValueManager;
 import ru.datana.integration.opc.dto.TagValue;
 import ru.datana.integration.opc.exception.DataProcessingException;
 
-@RequiredArgsConstructor
+/**
+ * Stores notified values of a model, publishes the notification count, the
+ * batch size and the processing time of the model.
+ */
 @Slf4j
 public class OpcSubscriptionListener implements ChangeListener, StatusListener {
 	private final ValueManager mngr;
 	private final String name;
 	private final String env;
+	private final Counter notifications;
+	private final DistributionSummary batchSize;
+	private final Timer processing;
+	private final Map<UInteger, Integer> handles = new ConcurrentHashMap<>();
+	private volatile ModelValues model;
+
+	public OpcSubscriptionListener(ValueManager mngr, String name, String env, MeterRegistry meterRegistry) {
+		this.mngr = mngr;
+		this.name = name;
+		this.env = env;
+		this.notifications = Counter.builder("opc.notifications").tag("env", env).tag("model", name)
+				.description("Values notified by the OPC server").register(meterRegistry);
+		this.batchSize = DistributionSummary.builder("opc.notifications.batch").tag("env", env).tag("model", name)
+				.description("Values per notification").baseUnit("values").register(meterRegistry);
+		this.processing = Timer.builder("opc.notifications.processing").tag("env", env).tag("model", name)
+				.description("Time to store the values of a notification").register(meterRegistry);
+	}
 
 	@Override
 	public void onDataReceived(List<ManagedDataItem> dataItems, List<DataValue> dataValues) {
+		var start = System.nanoTime();
+		try {
+			receive(dataItems, dataValues);
+		} finally {
+			processing.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+		notifications.increment(dataItems.size());
+		batchSize.record(dataItems.size());
+	}
+
+	private void receive(List<ManagedDataItem> dataItems, List<DataValue> dataValues) {
                 if (!dataItems.isEmpty()) {
                         log.debug("[{}] values received for {}", dataItems.size(), name);
+                        var model = model();
                         var itemIt = dataItems.iterator();
                         for (var valueIt = dataValues.iterator(); valueIt.hasNext();) {
-                                var nodeId = itemIt.next().getNodeId();
-                                var id = nodeId.getIdentifier().toString();
+                                var item = itemIt.next();
                                 var dv = valueIt.next();
-                                var variant = dv.getValue();
-                                var idType = variant.getDataType().map(ExpandedNodeId::getType);
-                                if (idType.isEmpty()) {
-                                        mngr.setValue(name, env, id, TagValue.builder()
-                                                        .status(status(dv.getStatusCode()))
-                                                        .sourceTimestamp(ts(dv.getSourceTime()))
-                                                        .serverTimestamp(ts(dv.getServerTime()))
-                                                        .build());
-                                } else if (!idType.map(IdType.Numeric::equals).orElse(false).booleanValue()) {
-                                        throw new DataProcessingException("[%s@%s] Unsupported value type [%s] for node id [%s]"
-                                                        .formatted(name, env, idType.orElse(null), id));
+                                var handle = handle(model, item);
+                                var rawValue = dv.getValue().getValue();
+                                if (handle >= 0 && (rawValue == null || rawValue instanceof Number)) {
+                                        var number = (Number) rawValue;
+                                        mngr.setValue(name, env, model, handle, number != null,
+                                                        number == null ? 0 : number.doubleValue(), utcTime(dv.getSourceTime()),
+                                                        utcTime(dv.getServerTime()), statusCode(dv.getStatusCode()));
                                 } else {
-                                        var rawValue = variant.getValue();
-                                        Double res = null;
-                                        if (rawValue instanceof Number number) {
-                                                res = number.doubleValue();
-                                        } else if (rawValue != null) {
-                                                try {
-                                                        res = Double.parseDouble(rawValue.toString());
-                                                } catch (NumberFormatException e) {
-                                                        log.warn("[{}@{}] Unable to parse value [{}] for node id [{}]", name, env,
-                                                                        rawValue, id);
-                                                }
-                                        }
-                                        if (res == null) {
-                                                log.debug("[{}@{}] Skip value [{}] for node id [{}] due to unsupported type {}", name,
-                                                                env, rawValue, id, rawValue == null ? null : rawValue.getClass());
-                                                continue;
-                                        }
-                                        mngr.setValue(name, env, id,
-                                                        TagValue.builder().value(res)
-                                                                        .status(status(dv.getStatusCode()))
-                                                                        .sourceTimestamp(ts(dv.getSourceTime()))
-                                                                        .serverTimestamp(ts(dv.getServerTime()))
-                                                                        .build());
+                                        onDataReceived(item.getNodeId(), dv);
                                 }
                         }
                 } else {
@@ -75,6 +92,71 @@ public class OpcSubscriptionListener implements ChangeListener, StatusListener {
                 }
 	}
 
+	/**
+	 * Generic path for unmapped nodes and non numeric values
+	 */
+	private void onDataReceived(NodeId nodeId, DataValue dv) {
+                var id = nodeId.getIdentifier().toString();
+                var variant = dv.getValue();
+                var idType = variant.getDataType().map(ExpandedNodeId::getType);
+                if (idType.isEmpty()) {
+                        mngr.setValue(name, env, id, TagValue.builder()
+                                        .status(status(dv.getStatusCode()))
+                                        .sourceTimestamp(ts(dv.getSourceTime()))
+                                        .serverTimestamp(ts(dv.getServerTime()))
+                                        .build());
+                } else if (!idType.map(IdType.Numeric::equals).orElse(false).booleanValue()) {
+                        throw new DataProcessingException("[%s@%s] Unsupported value type [%s] for node id [%s]"
+                                        .formatted(name, env, idType.orElse(null), id));
+                } else {
+                        var rawValue = variant.getValue();
+                        Double res = null;
+                        if (rawValue instanceof Number number) {
+                                res = number.doubleValue();
+                        } else if (rawValue != null) {
+                                try {
+                                        res = Double.parseDouble(rawValue.toString());
+                                } catch (NumberFormatException e) {
+                                        log.warn("[{}@{}] Unable to parse value [{}] for node id [{}]", name, env,
+                                                        rawValue, id);
+                                }
+                        }
+                        if (res == null) {
+                                log.debug("[{}@{}] Skip value [{}] for node id [{}] due to unsupported type {}", name,
+                                                env, rawValue, id, rawValue == null ? null : rawValue.getClass());
+                                return;
+                        }
+                        mngr.setValue(name, env, id,
+                                        TagValue.builder().value(res)
+                                                        .status(status(dv.getStatusCode()))
+                                                        .sourceTimestamp(ts(dv.getSourceTime()))
+                                                        .serverTimestamp(ts(dv.getServerTime()))
+                                                        .build());
+                }
+	}
+
+	private ModelValues model() {
+		var current = mngr.getModelValues(name, env);
+		if (current != model) {
+			handles.clear();
+			model = current;
+		}
+		return current;
+	}
+
+	/**
+	 * @return slot of the monitored item (resolved once per client handle)
+	 */
+	private int handle(ModelValues model, ManagedDataItem item) {
+		var clientHandle = item.getMonitoredItem().getClientHandle();
+		var handle = handles.get(clientHandle);
+		if (handle == null) {
+			handle = model.handle(item.getNodeId().getIdentifier().toString());
+			handles.put(clientHandle, handle);
+		}
+		return handle.intValue();
+	}
+
 	@Override
 	public void onKeepAliveReceived() {
 		log.debug("Keep alive recieved for {}@{}", name, env);
@@ -9,6 +9,7 @@ import java.util.UUID;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
@@ -39,4 +40,7 @@ public class MappingDesc {
 	UUID uuid;
 	@Schema(description = "OPC tag (OPAQUE) identifier", requiredMode =  NOT_REQUIRED, example = "level-5-0001")
 	String bytes;
+	@Schema(description = "Monitored item settings of the mapping, override the subscription ones", requiredMode =  NOT_REQUIRED)
+	@Valid
+	SamplingDesc sampling;
 }
@@ -0,0 +1,39 @@
+package ru.datana.integration.opc.request;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+import static io.swagger.v3.oas.annotations.media.Schema.RequiredMode.NOT_REQUIRED;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * Monitored item settings, unset fields are inherited (mapping -> model ->
+ * service defaults)
+ */
+@Value
+@Builder
+@Jacksonized
+@JsonInclude(NON_NULL)
+public class SamplingDesc {
+	public enum DeadbandType {
+		NONE, ABSOLUTE, PERCENT
+	}
+
+	@Schema(description = "Server sampling interval in ms, publishing interval if not set", requiredMode = NOT_REQUIRED, example = "500")
+	@PositiveOrZero
+	Double samplingIntervalMs;
+	@Schema(description = "Server queue size, values sampled between publishings are delivered in order", requiredMode = NOT_REQUIRED, example = "10")
+	@Positive
+	Integer queueSize;
+	@Schema(description = "Data change filter deadband type", requiredMode = NOT_REQUIRED, example = "ABSOLUTE")
+	DeadbandType deadbandType;
+	@Schema(description = "Deadband: absolute value change or percent of the EURange", requiredMode = NOT_REQUIRED, example = "0.5")
+	@PositiveOrZero
+	Double deadband;
+}
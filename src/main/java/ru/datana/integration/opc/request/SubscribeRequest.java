@@ -1,7 +1,12 @@
 package ru.datana.integration.opc.request;
 
+import static io.swagger.v3.oas.annotations.media.Schema.RequiredMode.NOT_REQUIRED;
+
 import java.util.Set;
 
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Positive;
 import lombok.Builder;
 import lombok.Value;
 import lombok.extern.jackson.Jacksonized;
@@ -11,4 +16,10 @@ import lombok.extern.jackson.Jacksonized;
 @Builder
 public class SubscribeRequest {
 	private final Set<String> keys;
+	@Schema(description = "Publishing interval in ms, SUBSCRIPTIONINTERVALINMS if not set", requiredMode = NOT_REQUIRED, example = "1000")
+	@Positive
+	private final Double publishingIntervalMs;
+	@Schema(description = "Monitored item settings of the model mappings", requiredMode = NOT_REQUIRED)
+	@Valid
+	private final SamplingDesc sampling;
 }
@@ -3,6 +3,7 @@ package ru.datana.integration.opc.service;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -11,6 +12,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ru.datana.integration.opc.config.ControllerApiProperties;
@@ -19,8 +22,11 @@ import ru.datana.integration.opc.config.ControllerApiProperties;
 @RequiredArgsConstructor
 @Slf4j
 public class ControllerApiClient {
+        static final String LATENCY_METRIC = "controller.api.latency";
+        static final String ERRORS_METRIC = "controller.api.errors";
         private final RestTemplate restTemplate;
         private final ControllerApiProperties properties;
+        private final MeterRegistry meterRegistry;
 
         public void start(String env, String controllerId) {
                 post(env, controllerId, "/start");
@@ -51,10 +57,13 @@ public class ControllerApiClient {
                 if (url == null) {
                         return;
                 }
+                var start = System.nanoTime();
                 try {
                         restTemplate.postForEntity(url, null, Void.class);
+                        record("POST", suffix, start, null);
                         log.debug("POST {} succeeded", url);
                 } catch (RestClientException e) {
+                        record("POST", suffix, start, e);
                         log.error("POST {} failed: {}", url, e.getMessage());
                 }
         }
@@ -67,14 +76,31 @@ public class ControllerApiClient {
                 var headers = new HttpHeaders();
                 headers.setContentType(APPLICATION_JSON);
                 var entity = new HttpEntity<>(payload, headers);
+                var start = System.nanoTime();
                 try {
                         restTemplate.exchange(url, HttpMethod.PATCH, entity, Void.class);
+                        record("PATCH", suffix, start, null);
                         log.debug("PATCH {} payload {} succeeded", url, payload);
                 } catch (RestClientException e) {
+                        record("PATCH", suffix, start, e);
                         log.error("PATCH {} failed: {}. Payload: {}", url, e.getMessage(), payload);
                 }
         }
 
+        /**
+         * Records the call latency by endpoint, failed calls are counted by
+         * exception type as well
+         */
+        private void record(String method, String endpoint, long start, RestClientException failure) {
+                Timer.builder(LATENCY_METRIC).tag("method", method).tag("endpoint", endpoint)
+                                .tag("outcome", failure == null ? "success" : "error").publishPercentileHistogram()
+                                .register(meterRegistry).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                if (failure != null) {
+                        meterRegistry.counter(ERRORS_METRIC, "method", method, "endpoint", endpoint, "exception",
+                                        failure.getClass().getSimpleName()).increment();
+                }
+        }
+
         private String buildUrl(String env, String controllerId, String suffix) {
                 var base = properties.resolveBaseUrl(env);
                 if (base == null || base.isBlank()) {
@@ -0,0 +1,65 @@
+package ru.datana.integration.opc.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pending PATCH payloads of a single controller, deep merged per endpoint and
+ * sent in the order of the first update of each endpoint.
+ * <p>
+ * {@link #sending} serializes all calls of the controller, so a lifecycle
+ * command never overtakes a batch taken before it.
+ */
+final class ControllerCallBatch {
+        enum Endpoint {
+                STATES, LIMITS, OPTIMIZATION
+        }
+
+        /**
+         * Merged payload of an endpoint and number of updates merged into it
+         */
+        static final class Pending {
+                final Map<String, Object> payload = new LinkedHashMap<>();
+                int updates;
+        }
+
+        final ReentrantLock sending = new ReentrantLock();
+        private Map<Endpoint, Pending> pending = new LinkedHashMap<>();
+
+        /**
+         * @return {@code true} if the batch was empty and has to be scheduled for
+         *         sending
+         */
+        synchronized boolean add(Endpoint endpoint, Map<String, Object> payload) {
+                var empty = pending.isEmpty();
+                var endpointPending = pending.computeIfAbsent(endpoint, __ -> new Pending());
+                merge(endpointPending.payload, payload);
+                endpointPending.updates++;
+                return empty;
+        }
+
+        /**
+         * @return merged payloads, the batch becomes empty
+         */
+        synchronized Map<Endpoint, Pending> take() {
+                var res = pending;
+                pending = new LinkedHashMap<>();
+                return res;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static void merge(Map<String, Object> target, Map<String, Object> source) {
+                source.forEach((key, value) -> {
+                        if (value instanceof Map<?, ?> map && target.get(key) instanceof Map<?, ?> current) {
+                                merge((Map<String, Object>) current, (Map<String, Object>) map);
+                        } else if (value instanceof Map<?, ?> map) {
+                                var copy = new LinkedHashMap<String, Object>();
+                                merge(copy, (Map<String, Object>) map);
+                                target.put(key, copy);
+                        } else {
+                                target.put(key, value);
+                        }
+                });
+        }
+}
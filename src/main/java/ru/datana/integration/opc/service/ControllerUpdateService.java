@@ -2,20 +2,52 @@ package ru.datana.integration.opc.service;
 
 import static java.util.Collections.singletonMap;
 
+import java.time.Instant;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import ru.datana.integration.opc.config.ControllerApiProperties;
 import ru.datana.integration.opc.dto.TagValue;
+import ru.datana.integration.opc.service.ControllerCallBatch.Endpoint;
 
+/**
+ * Translates {@code .Update} tag changes into controller REST calls.
+ * <p>
+ * State, limit and optimization updates of a controller arriving within
+ * {@link ControllerApiProperties#getBatchWindow()} are merged into one PATCH
+ * per endpoint. Lifecycle commands ({@code /start}, {@code /stop},
+ * {@code /start-predict}) first flush the pending batch of the controller.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ControllerUpdateService {
-        static final String UPDATE_SUFFIX = ".Update";
+        public static final String UPDATE_SUFFIX = ".Update";
+        static final String UPDATES_METRIC = "controller.api.updates";
+        static final String CALLS_METRIC = "controller.api.calls";
+        static final String SAVED_METRIC = "controller.api.calls.saved";
         private final ControllerApiClient client;
+        private final ControllerApiProperties properties;
+        private final TaskScheduler taskScheduler;
+        private final MeterRegistry meterRegistry;
+        private final ConcurrentMap<String, ConcurrentMap<String, ControllerCallBatch>> batches = new ConcurrentHashMap<>();
+
+        /**
+         * @return key under which queued updates of the mapping may be conflated,
+         *         {@code null} for controller commands ({@code State.Update},
+         *         {@code OptimizationState.Update}) which are all delivered in order
+         */
+        public static String conflationKey(String mappingKey) {
+                return mappingKey.indexOf('.') == mappingKey.length() - UPDATE_SUFFIX.length() ? null : mappingKey;
+        }
 
         public void handleValueChange(String controllerId, String env, String mappingKey, TagValue previous, TagValue current) {
                 if (mappingKey == null) {
@@ -55,22 +87,33 @@ public class ControllerUpdateService {
                 }
         }
 
+        /**
+         * Sends the pending updates of a removed controller and forgets its batch
+         */
+        public void remove(String controllerId, String env) {
+                var envBatches = batches.get(env);
+                var batch = envBatches == null ? null : envBatches.remove(controllerId);
+                if (batch != null) {
+                        flush(controllerId, env, batch);
+                }
+        }
+
         private void handleControllerCommand(String controllerId, String env, String command, Double value) {
                 int numericValue = value.intValue();
                 log.debug("Execute controller command [{}] with value {} for {}@{}", command, value, controllerId, env);
                 switch (command) {
                 case "State" -> {
                         switch (numericValue) {
-                        case 1 -> client.stop(env, controllerId);
-                        case 2 -> client.startPredict(env, controllerId);
-                        case 3 -> client.start(env, controllerId);
+                        case 1 -> command(controllerId, env, "stop", () -> client.stop(env, controllerId));
+                        case 2 -> command(controllerId, env, "start-predict", () -> client.startPredict(env, controllerId));
+                        case 3 -> command(controllerId, env, "start", () -> client.start(env, controllerId));
                         default -> log.warn("Unknown controller state value [{}] for {}@{}", numericValue, controllerId, env);
                         }
                 }
                 case "OptimizationState" -> {
                         var enabled = numericValue == 2;
                         if (numericValue == 1 || numericValue == 2) {
-                                client.updateOptimization(env, controllerId, singletonMap("enabled", enabled));
+                                patch(controllerId, env, Endpoint.OPTIMIZATION, singletonMap("enabled", enabled));
                         } else {
                                 log.warn("Unknown optimization state value [{}] for {}@{}", numericValue, controllerId, env);
                         }
@@ -86,23 +129,82 @@ public class ControllerUpdateService {
                         var numericValue = value.intValue();
                         if (numericValue == 1 || numericValue == 2) {
                                 var stateValue = numericValue == 1 ? "OFF" : "ON";
-                                client.updateStates(env, controllerId, singletonMap(variable, stateValue));
+                                patch(controllerId, env, Endpoint.STATES, singletonMap(variable, stateValue));
                         } else {
                                 log.warn("Unknown state value [{}] for variable [{}] of {}@{}", numericValue, variable, controllerId,
                                                 env);
                         }
                 }
                 case "limit_bottom", "limit_top", "set_point" -> {
-                        client.updateLimits(env, controllerId, singletonMap(variable, singletonMap(property, value)));
+                        patch(controllerId, env, Endpoint.LIMITS, singletonMap(variable, singletonMap(property, value)));
                 }
                 case "coef_line_opt", "coef_quad_opt", "target" -> {
-                        client.updateOptimization(env, controllerId,
+                        patch(controllerId, env, Endpoint.OPTIMIZATION,
                                         singletonMap("vars", singletonMap(variable, singletonMap(property, value))));
                 }
                 default -> log.debug("Unsupported property [{}] for variable [{}]", property, variable);
                 }
         }
 
+        private void patch(String controllerId, String env, Endpoint endpoint, Map<String, Object> payload) {
+                meterRegistry.counter(UPDATES_METRIC, "endpoint", endpoint.name()).increment();
+                var window = properties.getBatchWindow();
+                if (window == null || window.isZero() || window.isNegative()) {
+                        send(controllerId, env, endpoint, payload, 1);
+                        return;
+                }
+                var batch = batch(controllerId, env);
+                if (batch.add(endpoint, payload)) {
+                        log.debug("Batch [{}@{}] updates for {}", controllerId, env, window);
+                        taskScheduler.schedule(() -> flush(controllerId, env, batch), Instant.now().plus(window));
+                }
+        }
+
+        private void command(String controllerId, String env, String command, Runnable call) {
+                meterRegistry.counter(UPDATES_METRIC, "endpoint", command).increment();
+                var batch = batch(controllerId, env);
+                batch.sending.lock();
+                try {
+                        send(controllerId, env, batch);
+                        call.run();
+                        meterRegistry.counter(CALLS_METRIC, "endpoint", command).increment();
+                } finally {
+                        batch.sending.unlock();
+                }
+        }
+
+        private void flush(String controllerId, String env, ControllerCallBatch batch) {
+                batch.sending.lock();
+                try {
+                        send(controllerId, env, batch);
+                } finally {
+                        batch.sending.unlock();
+                }
+        }
+
+        private void send(String controllerId, String env, ControllerCallBatch batch) {
+                batch.take().forEach((endpoint, pending) -> send(controllerId, env, endpoint, pending.payload,
+                                pending.updates));
+        }
+
+        private void send(String controllerId, String env, Endpoint endpoint, Map<String, Object> payload, int updates) {
+                switch (endpoint) {
+                case STATES -> client.updateStates(env, controllerId, payload);
+                case LIMITS -> client.updateLimits(env, controllerId, payload);
+                case OPTIMIZATION -> client.updateOptimization(env, controllerId, payload);
+                }
+                meterRegistry.counter(CALLS_METRIC, "endpoint", endpoint.name()).increment();
+                if (updates > 1) {
+                        log.debug("Merged {} [{}@{}] {} updates into one call", updates, controllerId, env, endpoint);
+                        meterRegistry.counter(SAVED_METRIC, "endpoint", endpoint.name()).increment(updates - 1);
+                }
+        }
+
+        private ControllerCallBatch batch(String controllerId, String env) {
+                return batches.computeIfAbsent(env, __ -> new ConcurrentHashMap<>()).computeIfAbsent(controllerId,
+                                __ -> new ControllerCallBatch());
+        }
+
         private static String joinParts(String[] parts, int from) {
                 if (from >= parts.length) {
                         return "";
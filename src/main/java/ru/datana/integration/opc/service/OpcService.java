@@ -1,42 +1,58 @@
 package ru.datana.integration.opc.service;
 
-import static com.google.common.collect.Sets.difference;
 import static java.util.Optional.ofNullable;
 import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.toMap;
-import static java.util.stream.Collectors.toSet;
 import static ru.datana.integration.opc.util.LogConsts.IN_1;
 import static ru.datana.integration.opc.util.LogConsts.IN_2;
 import static ru.datana.integration.opc.util.LogConsts.IN_3;
 import static ru.datana.integration.opc.util.LogConsts.OUT_0;
 import static ru.datana.integration.opc.util.LogConsts.OUT_1;
 
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
-
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import ru.datana.integration.opc.component.ModelJournal;
+import ru.datana.integration.opc.component.ModelValues;
 import ru.datana.integration.opc.component.OpcClient;
 import ru.datana.integration.opc.component.ValueManager;
-import ru.datana.integration.opc.dto.Mapping;
+import ru.datana.integration.opc.dto.ColumnarValues;
+import ru.datana.integration.opc.dto.HistoryPoint;
+import ru.datana.integration.opc.dto.ModelIndex;
+import ru.datana.integration.opc.dto.SubscriptionSettings;
 import ru.datana.integration.opc.dto.TagValue;
 import ru.datana.integration.opc.exception.InternalErrorException;
 import ru.datana.integration.opc.exception.ResourceNotFoundException;
 import ru.datana.integration.opc.exception.ValidException;
 import ru.datana.integration.opc.request.MappingDesc;
-import ru.datana.integration.opc.request.ModelMeta;
 import ru.datana.integration.opc.request.ValueUpdateRequest;
+import ru.datana.integration.opc.util.TagValues;
 import ru.datana.integration.opc.exception.ServiceException;
 
 /**
@@ -49,11 +65,49 @@ import ru.datana.integration.opc.exception.ServiceException;
 public class OpcService {
 	private static final String MODEL = "MODEL";
 	private static final String ENV = "ENVIRONMENT";
-	private final Table<String, String, ModelMeta> models = HashBasedTable.create();
+
+	private record Layout(int[] positions, List<String> keys, String schema) {
+	}
+
+	private static final class Columns implements ModelValues.SlotVisitor {
+		private final double[] values;
+		private final long[] sourceTimestamps;
+		private final long[] serverTimestamps;
+		private final byte[] statuses;
+		private int column;
+
+		private Columns(int size) {
+			values = new double[size];
+			sourceTimestamps = new long[size];
+			serverTimestamps = new long[size];
+			statuses = new byte[size];
+		}
+
+		@Override
+		public void visit(int handle, boolean present, boolean hasValue, boolean restored, double value,
+				long sourceTime, long serverTime, long status) {
+			values[column] = present && hasValue ? value : Double.NaN;
+			sourceTimestamps[column] = present ? epochMillis(sourceTime) : 0;
+			serverTimestamps[column] = present ? epochMillis(serverTime) : 0;
+			statuses[column] = ColumnarValues.status(present ? TagValues.status(status) : null,
+					restored ? TagValue.SOURCE_SNAPSHOT : null);
+		}
+
+		private static long epochMillis(long utcTime) {
+			return utcTime == TagValues.NO_TIME ? 0 : TagValues.epochMillis(utcTime);
+		}
+	}
+	private final ConcurrentMap<String, ConcurrentMap<String, ModelIndex>> models = new ConcurrentHashMap<>();
+	/**
+	 * Columnar layout of the model index (positions without {@code .Update} keys)
+	 */
+	private final Map<ModelIndex, Layout> layouts = Collections.synchronizedMap(new WeakHashMap<>());
         private final OpcClient client;
         private final ValueManager valueManager;
         @Qualifier("subscriptionTaskExecutor")
         private final TaskExecutor subscriptionTaskExecutor;
+        private final ModelJournal journal;
+        private final MeterRegistry meterRegistry;
 
 	public Set<MappingDesc> getMappings(String name, String env) {
 		log.debug(IN_2, name, env);
@@ -64,8 +118,7 @@ public class OpcService {
 
 	public Map<String, Set<MappingDesc>> getControllerMappings(String name) {
 		log.debug(IN_1, name);
-		var res = models.row(name).entrySet().stream()
-				.collect(toMap(Entry::getKey, e -> e.getValue().getMappings()));
+		var res = row(name).entrySet().stream().collect(toMap(Entry::getKey, e -> e.getValue().getMappings()));
 		log.debug(OUT_1, res);
 		return res;
 	}
@@ -75,33 +128,28 @@ public class OpcService {
 		if (!client.isEnvironmentDeclared(env)) {
 			throw new ResourceNotFoundException(ENV, env);
 		}
-		var model = models.get(name, env);
-		if (model != null) {
-			if (!client.unsubscribe(name, env)) {
-				log.error("Failed to unsubscribe {}@{}", name, env);
-				log.debug(OUT_0);
-				return;
-			}
-			var modelMappings = model.getMappings();
-			if (modelMappings != null) {
-				modelMappings.clear();
-				modelMappings.addAll(mappings);
-			}
-		} else {
-			model = ModelMeta.builder().name(name).mappings(mappings).build();
+		var index = ModelIndex.compile(name, mappings);
+		var envModels = models.computeIfAbsent(name, __ -> new ConcurrentHashMap<>());
+		if (envModels.containsKey(env) && !client.unsubscribe(name, env)) {
+			log.error("Failed to unsubscribe {}@{}", name, env);
+			log.debug(OUT_0);
+			return;
 		}
-                models.put(name, env, model);
-                valueManager.registerMappings(name, env, mappings);
+                envModels.put(env, index);
+                valueManager.registerMappings(name, env, index);
+                journal.mappings(name, env, mappings);
                 log.debug(OUT_0);
         }
 
-        public void subscribe(String name, String env, Set<String> keys) {
+        public void subscribe(String name, String env, Set<String> keys, SubscriptionSettings settings) {
                 log.debug(IN_3, name, env, keys);
-                var subscriptionMappings = getModel(name, env).getMappings();
-                var mappings = Set.copyOf(mappingsByKeys(keys, subscriptionMappings));
+                var index = getModel(name, env);
+                var positions = positionsByKeys(keys, index);
                 subscriptionTaskExecutor.execute(() -> {
                         try {
-                                client.subscribe(name, env, mappings);
+                                client.subscribe(name, env, index, positions, settings);
+                                // a failed subscription is not restored at startup
+                                journal.subscribe(name, env, keys, settings);
                         } catch (Exception e) {
                                 log.error("Failure to subscribe {}@{}", name, env, e);
                         } finally {
@@ -116,63 +164,152 @@ public class OpcService {
 			log.error("Failed to unsubscribe {}@{}", name, env);
 			throw new InternalErrorException("Failure to unsubscribe for [%s@%s]".formatted(name, env));
 		}
+		journal.unsubscribe(name, env);
 		log.debug(OUT_0);
 	}
 
+        /**
+         * {@link #getValues(String, String)} in columnar layout, read from the value
+         * slots without building {@link TagValue}s
+         *
+         * @param schema schema known to the caller, keys are omitted if it is current
+         */
+        public ColumnarValues getColumnarValues(String name, String env, String schema) {
+                log.debug(IN_3, name, env, schema);
+                var index = getModel(name, env);
+                var layout = layouts.computeIfAbsent(index, OpcService::layout);
+                var values = valueManager.findModelValues(name, env);
+                var columns = new Columns(layout.positions().length);
+                for (int i = 0; i < layout.positions().length; i++) {
+                        columns.column = i;
+                        if (values == null) {
+                                columns.visit(-1, false, false, false, 0, TagValues.NO_TIME, TagValues.NO_TIME,
+                                                TagValues.NO_STATUS);
+                        } else {
+                                values.visit(index, layout.positions()[i], columns);
+                        }
+                }
+                var res = new ColumnarValues(layout.schema(), layout.schema().equals(schema) ? null : layout.keys(),
+                                columns.values, columns.sourceTimestamps, columns.serverTimestamps, columns.statuses);
+                log.debug(OUT_1, layout.schema());
+                return res;
+        }
+
         public Map<String, TagValue> getValues(String name, String env) {
                 log.debug(IN_2, name, env);
-                var res = new HashMap<String, TagValue>();
-                var entries = client.getValues(name, env).entrySet();
-                var descriptions = getModel(name, env).getMappings();
-                if (descriptions == null || descriptions.isEmpty()) {
+                var index = getModel(name, env);
+                var res = new HashMap<String, TagValue>(index.size() * 2);
+                if (index.size() == 0) {
                         log.debug("No mappings configured for [{}@{}]", name, env);
                         log.debug(OUT_1, res);
                         return res;
                 }
-                var mappingsByAddress = descriptions.stream().map(Mapping::create)
-                                .collect(toMap(Mapping::buildAddress, identity(), (existing, duplicate) -> existing));
-                for (var entry : entries) {
-                        var mapping = mappingsByAddress.get(entry.getKey());
-                        if (mapping == null) {
-                                log.debug("Skip value for [{}@{}] unknown address [{}]", name, env, entry.getKey());
-                                continue;
-                        }
-                        var mappingKey = mapping.getKey();
+                var values = valueManager.getModelValues(name, env);
+                for (int i = 0; i < index.size(); i++) {
+                        var mappingKey = index.key(i);
                         if (mappingKey.endsWith(ControllerUpdateService.UPDATE_SUFFIX)) {
                                 log.trace("Skip [{}@{}:{}] value in response", name, env, mappingKey);
                                 continue;
                         }
-                        res.put(mappingKey, entry.getValue());
+                        var value = values.get(index, i);
+                        if (value != null) {
+                                res.put(mappingKey, value);
+                        }
                 }
                 log.debug(OUT_1, res);
                 return res;
         }
 
-        public Map<String, TagValue> getKeysValues(String name, String env, Set<String> keys) {
-                log.debug(IN_2, name, env);
-                var subscriptionMappings = getModel(name, env).getMappings();
-                var res = client.getAllValues(name, env, mappingsByKeys(keys, subscriptionMappings)).entrySet().stream()
-                                .filter(e -> !e.getKey().endsWith(ControllerUpdateService.UPDATE_SUFFIX))
-                                .collect(toMap(Entry::getKey, Entry::getValue));
+        /**
+         * @param keys mapping keys, all keys except {@code .Update} if empty
+         * @param from start of the range (and of the first bucket), epoch if absent
+         * @param to   end of the range (exclusive), unbounded if absent
+         * @param step bucket length, raw samples if absent
+         */
+        public Map<String, List<HistoryPoint>> getHistory(String name, String env, Set<String> keys, Instant from,
+                        Instant to, Duration step) {
+                log.debug("[{}@{}] history of {} [{}, {}) step {}", name, env, keys, from, to, step);
+                var index = getModel(name, env);
+                var positions = keys == null || keys.isEmpty()
+                                ? IntStream.range(0, index.size())
+                                                .filter(i -> !index.key(i).endsWith(ControllerUpdateService.UPDATE_SUFFIX))
+                                                .toArray()
+                                : positionsByKeys(keys, index);
+                var fromMs = from == null ? 0 : from.toEpochMilli();
+                var toMs = to == null ? Long.MAX_VALUE : to.toEpochMilli();
+                var stepMs = step == null ? 0 : step.toMillis();
+                var values = valueManager.getModelValues(name, env);
+                var res = new HashMap<String, List<HistoryPoint>>(positions.length * 2);
+                for (var position : positions) {
+                        res.put(index.key(position), values.history(index, position, fromMs, toMs, stepMs));
+                }
+                log.debug(OUT_1, res.keySet());
+                return res;
+        }
+
+        /**
+         * @param maxAgeMs values received within this age are served from the
+         *                 cache, others are read from the server in a single batch;
+         *                 {@code null} or non-positive reads all keys
+         */
+        public Map<String, TagValue> getKeysValues(String name, String env, Set<String> keys, Long maxAgeMs) {
+                log.debug(IN_3, name, env, maxAgeMs);
+                var index = getModel(name, env);
+                var positions = positionsByKeys(keys, index);
+                var res = new HashMap<String, TagValue>(positions.length * 2);
+                var cached = maxAgeMs == null || maxAgeMs <= 0 ? null : valueManager.findModelValues(name, env);
+                if (cached != null) {
+                        var receivedSince = System.currentTimeMillis() - maxAgeMs;
+                        var stale = new int[positions.length];
+                        var staleCount = 0;
+                        for (var position : positions) {
+                                var value = cached.getFresh(index, position, receivedSince);
+                                if (value != null) {
+                                        res.put(index.key(position), value.toBuilder().source(TagValue.SOURCE_CACHE).build());
+                                } else {
+                                        stale[staleCount++] = position;
+                                }
+                        }
+                        positions = Arrays.copyOf(stale, staleCount);
+                        log.debug("[{}@{}] {} values from cache, {} to read", name, env, res.size(), staleCount);
+                }
+                if (positions.length > 0) {
+                        res.putAll(client.getAllValues(name, env, index, positions));
+                }
+                res.keySet().removeIf(key -> key.endsWith(ControllerUpdateService.UPDATE_SUFFIX));
                 log.debug(OUT_1, res);
                 return res;
         }
 
+        /**
+         * {@link #getKeysValues(String, String, Set, Long)} in columnar layout
+         *
+         * @param schema schema known to the caller, keys are omitted if it is current
+         */
+        public ColumnarValues getColumnarKeysValues(String name, String env, Set<String> keys, Long maxAgeMs,
+                        String schema) {
+                return ColumnarValues.of(getKeysValues(name, env, keys, maxAgeMs), schema);
+        }
+
 	private void setValues(Map<String, Float> valueMappings, String name, String env, boolean isOptional) {
-		var res = new HashMap<MappingDesc, Float>();
-		var mappings = getModel(name, env).getMappings();
+		var res = new HashMap<Integer, Float>();
+		var index = getModel(name, env);
 		var unknownMappings = new HashSet<String>();
 		
 		valueMappings.entrySet().forEach(e -> {
 			var key = e.getKey();
-			mappings.stream().filter(m -> key.equals(m.getKey())).findAny()
-					.ifPresentOrElse(mapping -> res.put(mapping, e.getValue()), () -> unknownMappings.add(key));
+			var position = index.position(key);
+			if (position < 0) {
+				unknownMappings.add(key);
+			} else {
+				res.put(position, e.getValue());
+			}
 		});
 		
 		if (unknownMappings.isEmpty() || isOptional) {
 			// Если нет неизвестных маппингов или это optional параметры, отправляем значения
 			if (!res.isEmpty()) {
-				client.setValues(name, env, res);
+				client.setValues(name, env, index, res);
 			}
 			
 			// Если есть неизвестные маппинги и это optional параметры, просто логируем их
@@ -190,27 +327,85 @@ public class OpcService {
         public void removeAllMappings(String name) {
                 log.debug(IN_1, name);
                 var envs = new HashSet<String>();
-                models.row(name).entrySet().stream().forEach(e -> {
+                row(name).entrySet().stream().forEach(e -> {
                         var env = e.getKey();
                         client.unsubscribe(name, env);
                         envs.add(env);
                 });;
                 envs.forEach(e -> {
-                        models.remove(name, e);
+                        row(name).remove(e);
                         valueManager.remove(name, e);
                 });
+                journal.remove(name);
                 log.debug(OUT_0);
         }
 
+        /**
+         * Registers the journaled models and re-subscribes them in parallel, each
+         * once its environment is started. Reports the time from JVM start to all
+         * restored models streaming.
+         */
+        @EventListener(ApplicationReadyEvent.class)
+        public void restore() {
+                var restored = new ArrayList<ModelJournal.Model>();
+                for (var model : journal.models()) {
+                        var name = model.name();
+                        var env = model.env();
+                        if (!client.isEnvironmentDeclared(env) || row(name).containsKey(env)) {
+                                log.warn("Skip journaled model [{}@{}]: environment is not declared or model is registered",
+                                                name, env);
+                                continue;
+                        }
+                        var index = ModelIndex.compile(name, model.mappings());
+                        models.computeIfAbsent(name, __ -> new ConcurrentHashMap<>()).put(env, index);
+                        valueManager.registerMappings(name, env, index);
+                        if (model.keys() != null) {
+                                restored.add(model);
+                        }
+                }
+                if (restored.isEmpty()) {
+                        return;
+                }
+                log.info("Restoring {} journaled subscriptions", restored.size());
+                Thread.ofVirtual().name("model-restore").start(() -> resubscribe(restored));
+        }
+
+        private void resubscribe(List<ModelJournal.Model> restored) {
+                var failures = new AtomicInteger();
+                try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                        restored.forEach(model -> executor.execute(() -> {
+                                var name = model.name();
+                                var env = model.env();
+                                if (!model.equals(journal.find(name, env))) {
+                                        log.info("[{}@{}] changed since startup, journaled subscription skipped", name, env);
+                                        return;
+                                }
+                                try {
+                                        var index = getModel(name, env);
+                                        client.subscribe(name, env, index, positionsByKeys(model.keys(), index),
+                                                        model.settings());
+                                } catch (Exception e) {
+                                        failures.incrementAndGet();
+                                        log.error("Failure to restore {}@{} subscription", name, env, e);
+                                }
+                        }));
+                }
+                var uptimeMs = ManagementFactory.getRuntimeMXBean().getUptime();
+                meterRegistry.timer("opc.registry.restore", "result", failures.get() == 0 ? "streaming" : "partial")
+                                .record(Duration.ofMillis(uptimeMs));
+                log.info("{} of {} restored models streaming {} ms after JVM start", restored.size() - failures.get(),
+                                restored.size(), uptimeMs);
+        }
+
 	public void browse(String env) {
 		client.browse(env);
 	}
 
-	private @NotNull ModelMeta getModel(String name, String env) {
+	private @NotNull ModelIndex getModel(String name, String env) {
 		if (!client.isEnvironmentDeclared(env)) {
 			throw new ResourceNotFoundException(ENV, env);
 		}
-		return ofNullable(models.get(name, env))
+		return ofNullable(row(name).get(env))
 				.orElseThrow(() -> new ResourceNotFoundException(MODEL, "%s@%s".formatted(name, env)));
 	}
 
@@ -227,14 +422,24 @@ public class OpcService {
 		}
 	}
 
-	private Set<MappingDesc> mappingsByKeys(Set<String> keys, Set<MappingDesc> subscriptionMappings) {
-		var mappings = subscriptionMappings.stream().filter(m -> keys.contains(m.getKey()))
-				.collect(toSet());
-		if (keys.size() > mappings.size()) {
-			var foundKeys = mappings.stream().map(MappingDesc::getKey).collect(toSet());
-			var errors = difference(keys, foundKeys).stream().collect(toMap(identity(), k -> "Unknown mapping"));
+	private int[] positionsByKeys(Set<String> keys, ModelIndex index) {
+		var positions = keys.stream().mapToInt(index::position).toArray();
+		if (Arrays.stream(positions).anyMatch(position -> position < 0)) {
+			var errors = keys.stream().filter(k -> index.position(k) < 0).collect(toMap(identity(), k -> "Unknown mapping"));
 			throw new ValidException(400, "Unknown mappings found", errors);
 		}
-		return mappings;
+		return positions;
+	}
+
+	private static Layout layout(ModelIndex index) {
+		var positions = IntStream.range(0, index.size())
+				.filter(i -> !index.key(i).endsWith(ControllerUpdateService.UPDATE_SUFFIX)).toArray();
+		var keys = Arrays.stream(positions).mapToObj(index::key).toList();
+		return new Layout(positions, keys, ColumnarValues.schema(keys));
+	}
+
+	private Map<String, ModelIndex> row(String name) {
+		var envModels = models.get(name);
+		return envModels == null ? Map.of() : envModels;
 	}
 }
@@ -0,0 +1,141 @@
+package ru.datana.integration.opc.service;
+
+import static java.lang.Math.max;
+import static ru.datana.integration.opc.util.LogConsts.IN_3;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ru.datana.integration.opc.component.ModelValues;
+import ru.datana.integration.opc.component.ValueManager;
+import ru.datana.integration.opc.dto.TagValue;
+import ru.datana.integration.opc.exception.ServiceUnavailableException;
+
+/**
+ * Server-Sent Events stream of model values.
+ * <p>
+ * Every subscriber gets a full {@code snapshot} event followed by
+ * {@code update} events with the changed keys only. Changes are detected by
+ * comparing slot versions written by {@link ValueManager#setValue}, once per
+ * conflation window, so a subscriber never buffers more than the latest value
+ * of a key: a slow consumer simply receives a larger, conflated update. A new
+ * snapshot is sent after mappings replacement or unsubscription, the stream is
+ * completed when the model is removed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ValueStreamService {
+	private static final String SNAPSHOT = "snapshot";
+	private static final String UPDATE = "update";
+
+	private final OpcService service;
+	private final ValueManager valueManager;
+	private final AtomicInteger subscribers = new AtomicInteger();
+
+	@Value("${opc.stream.conflation-ms:250}")
+	private long defaultConflationMs;
+	@Value("${opc.stream.min-conflation-ms:50}")
+	private long minConflationMs;
+	@Value("${opc.stream.keep-alive-ms:15000}")
+	private long keepAliveMs;
+	@Value("${opc.stream.max-subscribers:256}")
+	private int maxSubscribers;
+
+	public SseEmitter stream(String name, String env, Long conflationMs) {
+		return stream(name, env, conflationMs, new SseEmitter(0L));
+	}
+
+	SseEmitter stream(String name, String env, Long conflationMs, SseEmitter emitter) {
+		log.debug(IN_3, name, env, conflationMs);
+		// validates model and environment
+		service.getMappings(name, env);
+		if (subscribers.incrementAndGet() > maxSubscribers) {
+			subscribers.decrementAndGet();
+			throw new ServiceUnavailableException("Too many value stream subscribers");
+		}
+		var window = max(minConflationMs, conflationMs == null ? defaultConflationMs : conflationMs.longValue());
+		var active = new AtomicBoolean(true);
+		emitter.onCompletion(() -> active.set(false));
+		emitter.onTimeout(() -> active.set(false));
+		emitter.onError(e -> active.set(false));
+		Thread.ofVirtual().name("value-stream-%s@%s".formatted(name, env))
+				.start(() -> publish(name, env, window, emitter, active));
+		return emitter;
+	}
+
+	private void publish(String name, String env, long window, SseEmitter emitter, AtomicBoolean active) {
+		log.debug("[{}@{}] value stream started, conflation {} ms", name, env, window);
+		ModelValues values = null;
+		long[] seen = null;
+		var idle = 0L;
+		try {
+			while (active.get()) {
+				var current = valueManager.findModelValues(name, env);
+				if (current == null) {
+					log.debug("[{}@{}] model removed", name, env);
+					break;
+				}
+				if (current != values) {
+					values = current;
+					seen = new long[values.index().size()];
+					emitter.send(SseEmitter.event().name(SNAPSHOT).data(changes(values, seen, true)));
+					idle = 0;
+				} else {
+					var changes = changes(values, seen, false);
+					if (!changes.isEmpty()) {
+						emitter.send(SseEmitter.event().name(UPDATE).data(changes));
+						idle = 0;
+					} else if ((idle += window) >= keepAliveMs) {
+						emitter.send(SseEmitter.event().comment("keep-alive"));
+						idle = 0;
+					}
+				}
+				Thread.sleep(window);
+			}
+		} catch (IOException | IllegalStateException e) {
+			log.debug("[{}@{}] value stream closed: {}", name, env, e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			subscribers.decrementAndGet();
+			emitter.complete();
+			log.debug("[{}@{}] value stream stopped", name, env);
+		}
+	}
+
+	/**
+	 * @param all include every known value, not only changed ones
+	 * @return key -> value of the positions whose slot version differs from
+	 *         {@code seen}; {@code seen} is updated
+	 */
+	private static Map<String, TagValue> changes(ModelValues values, long[] seen, boolean all) {
+		var index = values.index();
+		var res = new HashMap<String, TagValue>();
+		for (int i = 0; i < seen.length; i++) {
+			var version = values.version(index.slot(i));
+			if (!all && version == seen[i]) {
+				continue;
+			}
+			seen[i] = version;
+			var key = index.key(i);
+			if (key.endsWith(ControllerUpdateService.UPDATE_SUFFIX)) {
+				continue;
+			}
+			var value = values.get(index, i);
+			if (value != null) {
+				res.put(key, value);
+			}
+		}
+		return res;
+	}
+}
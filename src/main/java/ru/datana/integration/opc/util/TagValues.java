@@ -0,0 +1,86 @@
+package ru.datana.integration.opc.util;
+
+import static lombok.AccessLevel.PRIVATE;
+
+import java.time.Instant;
+
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+
+import lombok.NoArgsConstructor;
+
+/**
+ * Conversions between the primitive sample representation (OPC UA UtcTime
+ * ticks, raw status code) and the textual {@code TagValue} fields.
+ */
+@NoArgsConstructor(access = PRIVATE)
+public final class TagValues {
+	/**
+	 * Marker of an absent timestamp
+	 */
+	public static final long NO_TIME = Long.MIN_VALUE;
+	/**
+	 * Marker of an absent status code (status codes are 32 bit unsigned)
+	 */
+	public static final long NO_STATUS = -1L;
+
+	public static final String GOOD = "Good";
+	public static final String UNCERTAIN = "Uncertain";
+	public static final String BAD = "Bad";
+
+	/**
+	 * UtcTime (100 ns ticks since 1601-01-01) of the Java epoch
+	 */
+	private static final long EPOCH_UTC_TIME = 116_444_736_000_000_000L;
+	private static final long SEVERITY_MASK = 0xC0000000L;
+	private static final long SEVERITY_UNCERTAIN = 0x40000000L;
+
+	public static long utcTime(DateTime dt) {
+		return dt == null ? NO_TIME : dt.getUtcTime();
+	}
+
+	public static long utcTime(String timestamp) {
+		return timestamp == null ? NO_TIME : new DateTime(Instant.parse(timestamp)).getUtcTime();
+	}
+
+	public static String timestamp(long utcTime) {
+		return utcTime == NO_TIME ? null : new DateTime(utcTime).getJavaInstant().toString();
+	}
+
+	/**
+	 * @return epoch milliseconds of the UtcTime, {@code utcTime} must not be
+	 *         {@link #NO_TIME}
+	 */
+	public static long epochMillis(long utcTime) {
+		return Math.floorDiv(utcTime - EPOCH_UTC_TIME, 10_000L);
+	}
+
+	public static long statusCode(StatusCode code) {
+		return code == null ? NO_STATUS : code.getValue();
+	}
+
+	public static long statusCode(String status) {
+		if (status == null) {
+			return NO_STATUS;
+		}
+		return switch (status) {
+		case GOOD -> StatusCode.GOOD.getValue();
+		case UNCERTAIN -> StatusCode.UNCERTAIN.getValue();
+		default -> StatusCode.BAD.getValue();
+		};
+	}
+
+	public static String status(long code) {
+		if (code == NO_STATUS) {
+			return null;
+		}
+		var severity = code & SEVERITY_MASK;
+		if (severity == 0) {
+			return GOOD;
+		} else if (severity == SEVERITY_UNCERTAIN) {
+			return UNCERTAIN;
+		} else {
+			return BAD;
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package ru.datana.integration.opc.benchmark;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.sdk.client.subscriptions.ManagedDataItem;
+import org.eclipse.milo.opcua.sdk.client.subscriptions.ManagedSubscription;
+import org.eclipse.milo.opcua.sdk.client.subscriptions.OpcUaMonitoredItem;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.MonitoringMode;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ru.datana.integration.opc.component.KeyedSerialExecutor;
+import ru.datana.integration.opc.component.KeyedSerialExecutor.OverflowPolicy;
+import ru.datana.integration.opc.component.ModelJournal;
+import ru.datana.integration.opc.component.OpcClient;
+import ru.datana.integration.opc.component.ValueManager;
+import ru.datana.integration.opc.component.ValueSnapshot;
+import ru.datana.integration.opc.config.ControllerApiProperties;
+import ru.datana.integration.opc.config.HistoryProperties;
+import ru.datana.integration.opc.config.RegistryProperties;
+import ru.datana.integration.opc.config.SnapshotProperties;
+import ru.datana.integration.opc.dto.ModelIndex;
+import ru.datana.integration.opc.request.MappingDesc;
+import ru.datana.integration.opc.service.ControllerApiClient;
+import ru.datana.integration.opc.service.ControllerUpdateService;
+import ru.datana.integration.opc.service.OpcService;
+
+/**
+ * Fixtures shared by the benchmarks: models, the ingestion pipeline without
+ * I/O and monitored items without a server.
+ */
+final class Benchmarks {
+	static final String NAME = "model";
+	static final String ENV = "env";
+
+	private Benchmarks() {
+	}
+
+	/**
+	 * @param key mapping key of the tag at a position
+	 * @return model of {@code tags} tags {@code model.tag<i>.pv}
+	 */
+	static ModelIndex model(int tags, IntFunction<String> key) {
+		var descs = new HashSet<MappingDesc>();
+		for (int i = 0; i < tags; i++) {
+			descs.add(MappingDesc.builder().key(key.apply(i)).namespaceIndex(2).tag("model.tag" + i).attribute("pv")
+					.build());
+		}
+		return ModelIndex.compile(NAME, descs);
+	}
+
+	/**
+	 * Controller updates are dispatched in the calling thread without batching,
+	 * controller API calls do nothing
+	 */
+	static ControllerUpdateService controllerUpdateService() {
+		var properties = new ControllerApiProperties();
+		properties.setBatchWindow(Duration.ZERO);
+		return new ControllerUpdateService(new NoopControllerApiClient(properties), properties, null,
+				new SimpleMeterRegistry());
+	}
+
+	static ValueManager valueManager() {
+		return new ValueManager(controllerUpdateService(),
+				new KeyedSerialExecutor(Runnable::run, 16, OverflowPolicy.BLOCK), new HistoryProperties(),
+				new ValueSnapshot(new SnapshotProperties()));
+	}
+
+	/**
+	 * @return service over a model of {@code tags} tags {@code tag-<i>} with a
+	 *         cached good value each, no server is involved
+	 */
+	static OpcService cachedValuesService(int tags) {
+		var valueManager = valueManager();
+		var client = new OpcClient(null, null, null, valueManager, null, null) {
+			@Override
+			public boolean isEnvironmentDeclared(String env) {
+				return true;
+			}
+		};
+		var service = new OpcService(client, valueManager, Runnable::run,
+				new ModelJournal(new ObjectMapper(), new RegistryProperties()), new SimpleMeterRegistry());
+		service.replaceMappings(NAME, ENV, model(tags, i -> "tag-" + i).getMappings());
+		var model = valueManager.getModelValues(NAME, ENV);
+		var time = DateTime.now().getUtcTime();
+		for (int i = 0; i < tags; i++) {
+			var handle = model.handle("model.tag" + i + ".pv");
+			valueManager.setValue(NAME, ENV, model, handle, true, i, time, time, StatusCode.GOOD.getValue());
+		}
+		return service;
+	}
+
+	/**
+	 * @return data item of a monitored item, as created by a subscription
+	 */
+	static ManagedDataItem dataItem(NodeId nodeId, int clientHandle) {
+		var monitoredItem = new OpcUaMonitoredItem(null, uint(clientHandle),
+				new ReadValueId(nodeId, AttributeId.Value.uid(), null, QualifiedName.NULL_VALUE), uint(clientHandle),
+				StatusCode.GOOD, 100, uint(1), null, MonitoringMode.Reporting, null, true, TimestampsToReturn.Both);
+		try {
+			var constructor = ManagedDataItem.class.getDeclaredConstructor(OpcUaClient.class,
+					ManagedSubscription.class, OpcUaMonitoredItem.class);
+			constructor.setAccessible(true);
+			return constructor.newInstance(null, null, monitoredItem);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static final class NoopControllerApiClient extends ControllerApiClient {
+		private NoopControllerApiClient(ControllerApiProperties properties) {
+			super(null, properties, new SimpleMeterRegistry());
+		}
+
+		@Override
+		public void start(String env, String controllerId) {
+		}
+
+		@Override
+		public void startPredict(String env, String controllerId) {
+		}
+
+		@Override
+		public void stop(String env, String controllerId) {
+		}
+
+		@Override
+		public void updateStates(String env, String controllerId, Map<String, Object> payload) {
+		}
+
+		@Override
+		public void updateLimits(String env, String controllerId, Map<String, Object> payload) {
+		}
+
+		@Override
+		public void updateOptimization(String env, String controllerId, Map<String, Object> payload) {
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package ru.datana.integration.opc.benchmark;
+
+import static ru.datana.integration.opc.benchmark.Benchmarks.ENV;
+import static ru.datana.integration.opc.benchmark.Benchmarks.NAME;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.milo.opcua.sdk.client.subscriptions.ManagedDataItem;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ru.datana.integration.opc.listener.OpcSubscriptionListener;
+import ru.datana.integration.opc.service.ControllerUpdateService;
+
+/**
+ * Notification ingestion: {@link OpcSubscriptionListener#onDataReceived} into
+ * the value cache, every tenth tag is a controller {@code .Update} key
+ * dispatched to {@code ControllerUpdateService}. Every notification changes
+ * the values of its batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListenerIngestionBenchmark {
+	private static final int UPDATE_EVERY = 10;
+
+	@Param({ "1000", "10000" })
+	int tags;
+	@Param({ "1", "100", "1000" })
+	int batchSize;
+
+	private OpcSubscriptionListener listener;
+	private List<List<ManagedDataItem>> itemBatches;
+	/**
+	 * Value batches of two alternating rounds
+	 */
+	private List<List<DataValue>> valueBatches;
+	private int notification;
+
+	@Setup
+	public void setUp() {
+		var index = Benchmarks.model(tags,
+				i -> i % UPDATE_EVERY == 0 ? "var" + i + ".limit_top" + ControllerUpdateService.UPDATE_SUFFIX : "tag-" + i);
+		var valueManager = Benchmarks.valueManager();
+		valueManager.registerMappings(NAME, ENV, index);
+		listener = new OpcSubscriptionListener(valueManager, NAME, ENV, new SimpleMeterRegistry());
+
+		var items = new ArrayList<ManagedDataItem>(tags);
+		var values = new ArrayList<List<DataValue>>();
+		for (int i = 0; i < tags; i++) {
+			items.add(Benchmarks.dataItem(new NodeId(2, "model.tag" + i + ".pv"), i));
+		}
+		for (int round = 0; round < 2; round++) {
+			var now = DateTime.now();
+			var roundValues = new ArrayList<DataValue>(tags);
+			for (int i = 0; i < tags; i++) {
+				roundValues.add(new DataValue(new Variant((double) round + 1), StatusCode.GOOD, now, now));
+			}
+			values.add(roundValues);
+		}
+		itemBatches = new ArrayList<>();
+		valueBatches = new ArrayList<>();
+		for (int round = 0; round < 2; round++) {
+			for (int from = 0; from + batchSize <= tags; from += batchSize) {
+				if (round == 0) {
+					itemBatches.add(items.subList(from, from + batchSize));
+				}
+				valueBatches.add(values.get(round).subList(from, from + batchSize));
+			}
+		}
+		// initial values are not dispatched to controllers
+		for (int i = 0; i < itemBatches.size(); i++) {
+			onDataReceived();
+		}
+	}
+
+	@Benchmark
+	public void onDataReceived() {
+		var batch = notification;
+		notification = batch + 1 == valueBatches.size() ? 0 : batch + 1;
+		listener.onDataReceived(itemBatches.get(batch % itemBatches.size()), valueBatches.get(batch));
+	}
+}
@@ -0,0 +1,77 @@
+package ru.datana.integration.opc.benchmark;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.datana.integration.opc.dto.ModelIndex;
+import ru.datana.integration.opc.request.MappingDesc;
+
+/**
+ * Resolution of a set-values request against model mappings: the former
+ * per-key stream scan versus {@link ModelIndex} lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingLookupBenchmark {
+	@Param({ "1000", "10000" })
+	int mappings;
+	@Param({ "300" })
+	int keys;
+
+	private Set<MappingDesc> descs;
+	private ModelIndex index;
+	private Map<String, Float> request;
+
+	@Setup
+	public void setUp() {
+		descs = new HashSet<>();
+		for (int i = 0; i < mappings; i++) {
+			descs.add(MappingDesc.builder().key("key-" + i).namespaceIndex(2).tag("model.tag" + i).attribute("pv")
+					.build());
+		}
+		index = ModelIndex.compile("model", descs);
+		request = new HashMap<>();
+		for (int i = 0; i < keys; i++) {
+			request.put("key-" + (i * (mappings / keys)), (float) i);
+		}
+	}
+
+	@Benchmark
+	public Map<MappingDesc, Float> scan() {
+		var res = new HashMap<MappingDesc, Float>();
+		request.forEach((key, value) -> descs.stream().filter(m -> key.equals(m.getKey())).findAny()
+				.ifPresent(m -> res.put(m, value)));
+		return res;
+	}
+
+	@Benchmark
+	public Map<Integer, Float> index() {
+		var res = new HashMap<Integer, Float>();
+		request.forEach((key, value) -> {
+			var position = index.position(key);
+			if (position >= 0) {
+				res.put(position, value);
+			}
+		});
+		return res;
+	}
+}
@@ -0,0 +1,86 @@
+package ru.datana.integration.opc.benchmark;
+
+import static ru.datana.integration.opc.benchmark.Benchmarks.ENV;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.milo.opcua.stack.core.NamespaceTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.datana.integration.opc.component.NamespaceBindings;
+import ru.datana.integration.opc.dto.Mapping;
+import ru.datana.integration.opc.request.MappingDesc;
+
+/**
+ * Node identifiers of mappings: {@link Mapping#create} by node kind and
+ * namespace index resolution at a server whose namespace array has or has not
+ * been reordered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeIdBenchmark {
+	private static final String URI = "urn:datana:simulator";
+
+	private MappingDesc tag;
+	private MappingDesc nodeId;
+	private MappingDesc uuid;
+	private NamespaceBindings bindings;
+	private NamespaceTable table;
+	private NamespaceTable reordered;
+
+	@Setup
+	public void setUp() {
+		tag = MappingDesc.builder().key("key").namespaceIndex(2).tag("model.tag").attribute("pv").build();
+		nodeId = MappingDesc.builder().key("key").namespaceIndex(2).nodeId((short) 1001).build();
+		uuid = MappingDesc.builder().key("key").namespaceIndex(2).uuid(UUID.fromString("6f1c2a1e-8d2b-4c55-9b0e-2f4f1f0a7c11")).build();
+		table = new NamespaceTable();
+		table.addUri("urn:datana:server");
+		table.addUri(URI);
+		reordered = new NamespaceTable();
+		reordered.addUri("urn:datana:server");
+		reordered.addUri("urn:datana:other");
+		reordered.addUri(URI);
+		bindings = new NamespaceBindings();
+		bindings.resolve(ENV, 2, table);
+		bindings.resolve("reordered", 2, table);
+	}
+
+	@Benchmark
+	public Mapping createFromTag() {
+		return Mapping.create(tag);
+	}
+
+	@Benchmark
+	public Mapping createFromNodeId() {
+		return Mapping.create(nodeId);
+	}
+
+	@Benchmark
+	public Mapping createFromUuid() {
+		return Mapping.create(uuid, 3);
+	}
+
+	@Benchmark
+	public int resolveNamespaceIndex() {
+		return bindings.resolve(ENV, 2, table);
+	}
+
+	@Benchmark
+	public int resolveReorderedNamespaceIndex() {
+		return bindings.resolve("reordered", 2, reordered);
+	}
+}
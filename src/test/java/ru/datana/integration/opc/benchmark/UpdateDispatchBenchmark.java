@@ -0,0 +1,57 @@
+package ru.datana.integration.opc.benchmark;
+
+import static ru.datana.integration.opc.benchmark.Benchmarks.ENV;
+import static ru.datana.integration.opc.benchmark.Benchmarks.NAME;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.datana.integration.opc.dto.TagValue;
+import ru.datana.integration.opc.service.ControllerUpdateService;
+
+/**
+ * {@code .Update} key parsing and dispatch of
+ * {@link ControllerUpdateService#handleValueChange} by key kind, controller
+ * API calls do nothing. The value alternates between {@code 1} and {@code 2}
+ * so that every change is handled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdateDispatchBenchmark {
+	@Param({ "State.Update", "OptimizationState.Update", "var.limit_top.Update", "var.coef_line_opt.Update",
+			"var.state.Update", "var.pv" })
+	String key;
+
+	private ControllerUpdateService service;
+	private TagValue one;
+	private TagValue two;
+	private boolean odd;
+
+	@Setup
+	public void setUp() {
+		service = Benchmarks.controllerUpdateService();
+		one = TagValue.builder().value(1.0).status("Good").build();
+		two = TagValue.builder().value(2.0).status("Good").build();
+	}
+
+	@Benchmark
+	public void handleValueChange() {
+		odd = !odd;
+		service.handleValueChange(NAME, ENV, key, odd ? one : two, odd ? two : one);
+	}
+}
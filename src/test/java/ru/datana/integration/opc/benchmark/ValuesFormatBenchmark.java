@@ -0,0 +1,77 @@
+package ru.datana.integration.opc.benchmark;
+
+import static ru.datana.integration.opc.benchmark.Benchmarks.ENV;
+import static ru.datana.integration.opc.benchmark.Benchmarks.NAME;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.datana.integration.opc.service.OpcService;
+
+/**
+ * {@code GET /models/{name}/{env}/values} response body as built by the
+ * message converters: key -> value map against the columnar layout (with keys
+ * and with a known schema) in JSON, CBOR and Smile. Payload sizes are logged
+ * at setup.
+ */
+@Slf4j
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValuesFormatBenchmark {
+	@Param({ "1000", "5000" })
+	int tags;
+	@Param({ "json", "cbor", "smile" })
+	String format;
+
+	private OpcService service;
+	private ObjectMapper mapper;
+	private String schema;
+
+	@Setup
+	public void setUp() throws JsonProcessingException {
+		service = Benchmarks.cachedValuesService(tags);
+		mapper = switch (format) {
+		case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+		case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+		default -> Jackson2ObjectMapperBuilder.json().build();
+		};
+		schema = service.getColumnarValues(NAME, ENV, null).getSchema();
+		log.info("{} tags {}: map {} bytes, columnar {} bytes, columnar with known schema {} bytes", tags, format,
+				map().length, columnar().length, columnarKnownSchema().length);
+	}
+
+	@Benchmark
+	public byte[] map() throws JsonProcessingException {
+		return mapper.writeValueAsBytes(service.getValues(NAME, ENV));
+	}
+
+	@Benchmark
+	public byte[] columnar() throws JsonProcessingException {
+		return mapper.writeValueAsBytes(service.getColumnarValues(NAME, ENV, null));
+	}
+
+	@Benchmark
+	public byte[] columnarKnownSchema() throws JsonProcessingException {
+		return mapper.writeValueAsBytes(service.getColumnarValues(NAME, ENV, schema));
+	}
+}
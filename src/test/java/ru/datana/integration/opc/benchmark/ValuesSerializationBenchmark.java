@@ -0,0 +1,58 @@
+package ru.datana.integration.opc.benchmark;
+
+import static ru.datana.integration.opc.benchmark.Benchmarks.ENV;
+import static ru.datana.integration.opc.benchmark.Benchmarks.NAME;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ru.datana.integration.opc.service.OpcService;
+
+/**
+ * {@code GET /models/{name}/{env}/values}: {@link OpcService#getValues} from
+ * the cache and its JSON response body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValuesSerializationBenchmark {
+	@Param({ "1000", "10000" })
+	int tags;
+
+	private OpcService service;
+	private ObjectMapper mapper;
+
+	@Setup
+	public void setUp() {
+		service = Benchmarks.cachedValuesService(tags);
+		mapper = Jackson2ObjectMapperBuilder.json().build();
+	}
+
+	@Benchmark
+	public Object getValues() {
+		return service.getValues(NAME, ENV);
+	}
+
+	@Benchmark
+	public byte[] serialize() throws JsonProcessingException {
+		return mapper.writeValueAsBytes(service.getValues(NAME, ENV));
+	}
+}
@@ -0,0 +1,144 @@
+package ru.datana.integration.opc.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import ru.datana.integration.opc.component.KeyedSerialExecutor.OverflowPolicy;
+
+class KeyedSerialExecutorTest {
+
+    private static final Executor VIRTUAL = task -> Thread.ofVirtual().start(task);
+
+    @Test
+    void sameKeyRunsInSubmissionOrder() throws InterruptedException {
+        var executor = new KeyedSerialExecutor(VIRTUAL, 10_000, OverflowPolicy.BLOCK);
+        var done = new CountDownLatch(1_000);
+        var result = Collections.synchronizedList(new ArrayList<Integer>());
+
+        for (int i = 0; i < 1_000; i++) {
+            var value = i;
+            executor.execute("controller", null, () -> {
+                result.add(value);
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(result).containsExactlyElementsOf(IntStream.range(0, 1_000).boxed().toList());
+    }
+
+    @Test
+    void differentKeysRunInParallel() throws InterruptedException {
+        var executor = new KeyedSerialExecutor(VIRTUAL, 16, OverflowPolicy.BLOCK);
+        var other = new CountDownLatch(1);
+        var done = new CountDownLatch(1);
+
+        executor.execute("a", null, () -> {
+            try {
+                if (other.await(10, TimeUnit.SECONDS)) {
+                    done.countDown();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute("b", null, other::countDown);
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void conflatedTaskIsQueuedAtTail() throws InterruptedException {
+        var result = runBlocked(OverflowPolicy.CONFLATE, List.of("x:1", "y:1", "x:2"));
+
+        assertThat(result).containsExactly("y:1", "x:2");
+    }
+
+    @Test
+    void dropOldestDropsHeadOfLane() throws InterruptedException {
+        var result = runBlocked(OverflowPolicy.DROP_OLDEST, List.of("x:1", "y:1", "x:2"));
+
+        assertThat(result).containsExactly("y:1", "x:2");
+    }
+
+    @Test
+    void fullLaneCountsDroppedTasks() throws InterruptedException {
+        var executor = new KeyedSerialExecutor(VIRTUAL, 2, OverflowPolicy.DROP_OLDEST);
+        var started = new CountDownLatch(1);
+        var gate = new CountDownLatch(1);
+        executor.execute("controller", "gate", () -> {
+            started.countDown();
+            try {
+                gate.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 5; i++) {
+            executor.execute("controller", "x" + i, () -> {
+            });
+        }
+
+        assertThat(executor.queued()).isEqualTo(2);
+        assertThat(executor.active()).isEqualTo(1);
+        assertThat(executor.dropped()).isEqualTo(3);
+        assertThat(executor.conflated()).isZero();
+        gate.countDown();
+    }
+
+    @Test
+    void drainedLaneIsDropped() throws InterruptedException {
+        var executor = new KeyedSerialExecutor(VIRTUAL, 16, OverflowPolicy.BLOCK);
+        var done = new CountDownLatch(2_000);
+
+        for (int i = 0; i < 2_000; i++) {
+            executor.execute("model-" + (i % 100), null, done::countDown);
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(TestOpcClients.await(() -> executor.lanes() == 0)).isTrue();
+        assertThat(executor.queued()).isZero();
+    }
+
+    /**
+     * Submits tasks to a lane of depth 2 while the lane is busy with a gate task,
+     * waits for two of them to run
+     */
+    private static List<String> runBlocked(OverflowPolicy policy, List<String> tasks) throws InterruptedException {
+        var executor = new KeyedSerialExecutor(VIRTUAL, 2, policy);
+        var started = new CountDownLatch(1);
+        var gate = new CountDownLatch(1);
+        var done = new CountDownLatch(2);
+        var result = Collections.synchronizedList(new ArrayList<String>());
+        executor.execute("controller", "gate", () -> {
+            started.countDown();
+            try {
+                gate.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        for (var task : tasks) {
+            executor.execute("controller", task.substring(0, task.indexOf(':')), () -> {
+                result.add(task);
+                done.countDown();
+            });
+        }
+        gate.countDown();
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        return result;
+    }
+}
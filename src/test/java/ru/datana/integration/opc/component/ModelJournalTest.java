@@ -0,0 +1,120 @@
+package ru.datana.integration.opc.component;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ru.datana.integration.opc.config.RegistryProperties;
+import ru.datana.integration.opc.dto.SubscriptionSettings;
+import ru.datana.integration.opc.request.MappingDesc;
+import ru.datana.integration.opc.request.SamplingDesc;
+
+class ModelJournalTest {
+
+    private static final Set<MappingDesc> MAPPINGS = Set.of(
+            MappingDesc.builder().key("power").namespaceIndex(2).tag("model.power").attribute("pv").build(),
+            MappingDesc.builder().key("level").namespaceIndex(3).nodeId((short) 15)
+                    .sampling(SamplingDesc.builder().queueSize(10).build()).build());
+    private static final SubscriptionSettings SETTINGS = new SubscriptionSettings(500.0,
+            SamplingDesc.builder().deadbandType(SamplingDesc.DeadbandType.ABSOLUTE).deadband(0.5).build());
+
+    @TempDir
+    private Path dir;
+    private ModelJournal journal;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        journal.close();
+    }
+
+    @Test
+    void modelsAreRestoredAfterReopen() throws IOException {
+        journal = open(1000);
+        journal.mappings("a", "env", MAPPINGS);
+        journal.subscribe("a", "env", Set.of("power"), SETTINGS);
+        journal.mappings("a", "other", MAPPINGS);
+        journal.mappings("b", "env", MAPPINGS);
+        journal.subscribe("b", "env", Set.of("level"), SubscriptionSettings.DEFAULT);
+        journal.unsubscribe("b", "env");
+        journal.mappings("c", "env", MAPPINGS);
+        journal.remove("c");
+        journal.close();
+
+        journal = open(1000);
+
+        assertThat(journal.models()).containsExactly(
+                new ModelJournal.Model("a", "env", MAPPINGS, Set.of("power"), SETTINGS),
+                new ModelJournal.Model("a", "other", MAPPINGS, null, null),
+                new ModelJournal.Model("b", "env", MAPPINGS, null, null));
+    }
+
+    @Test
+    void replacedMappingsDropSubscription() throws IOException {
+        journal = open(1000);
+        journal.mappings("a", "env", MAPPINGS);
+        journal.subscribe("a", "env", Set.of("power"), SETTINGS);
+        journal.mappings("a", "env", MAPPINGS);
+
+        assertThat(journal.find("a", "env").keys()).isNull();
+    }
+
+    @Test
+    void tornLastRecordIsSkipped() throws IOException {
+        journal = open(1000);
+        journal.mappings("a", "env", MAPPINGS);
+        journal.close();
+        Files.writeString(file(), "{\"op\":\"SUBSCRIBE\",\"name\":\"a\",\"en", UTF_8, StandardOpenOption.APPEND);
+
+        journal = open(1000);
+
+        assertThat(journal.models()).containsExactly(new ModelJournal.Model("a", "env", MAPPINGS, null, null));
+        assertThat(Files.readAllLines(file())).hasSize(1);
+    }
+
+    @Test
+    void journalIsCompactedPastThreshold() throws IOException {
+        journal = open(10);
+        journal.mappings("a", "env", MAPPINGS);
+        for (int i = 0; i < 9; i++) {
+            journal.subscribe("a", "env", Set.of("power"), SETTINGS);
+        }
+
+        assertThat(Files.readAllLines(file())).hasSize(2);
+        journal.unsubscribe("a", "env");
+        assertThat(Files.readAllLines(file())).hasSize(3);
+    }
+
+    @Test
+    void blankJournalIsDisabled() throws IOException {
+        journal = new ModelJournal(new ObjectMapper(), new RegistryProperties());
+        journal.open();
+        journal.mappings("a", "env", MAPPINGS);
+
+        assertThat(journal.models()).isEmpty();
+        assertThat(dir).isEmptyDirectory();
+    }
+
+    private ModelJournal open(int compactionThreshold) throws IOException {
+        var properties = new RegistryProperties();
+        properties.setJournal(file().toString());
+        properties.setCompactionThreshold(compactionThreshold);
+        var res = new ModelJournal(new ObjectMapper(), properties);
+        res.open();
+        return res;
+    }
+
+    private Path file() {
+        return dir.resolve("registry").resolve("models.journal");
+    }
+}
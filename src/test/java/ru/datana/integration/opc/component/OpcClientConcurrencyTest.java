@@ -0,0 +1,132 @@
+package ru.datana.integration.opc.component;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.stack.core.NamespaceTable;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadResponse;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.eclipse.milo.opcua.stack.core.types.structured.WriteResponse;
+import org.eclipse.milo.opcua.stack.core.types.structured.WriteValue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ru.datana.integration.opc.config.OpcEndpointsConfiguraiton;
+import ru.datana.integration.opc.dto.ModelIndex;
+import ru.datana.integration.opc.request.MappingDesc;
+
+/**
+ * Write latency while slow {@code values/all} reads are running at the same
+ * environment.
+ */
+class OpcClientConcurrencyTest {
+
+    private static final String ENV = "env";
+    private static final long READ_DELAY_MS = 300;
+    private static final int READERS = 8;
+    private static final int WRITES = 50;
+    private static final int TAGS = 100;
+
+    private final AtomicInteger readsInFlight = new AtomicInteger();
+    private final AtomicInteger maxReadsInFlight = new AtomicInteger();
+
+    private OpcClient opcClient;
+    private ModelIndex index;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        var client = mock(OpcUaClient.class);
+        when(client.getNamespaceTable()).thenReturn(new NamespaceTable());
+        when(client.read(anyDouble(), any(), anyList())).thenAnswer(invocation -> {
+            List<ReadValueId> ids = invocation.getArgument(2);
+            var values = ids.stream().map(id -> new DataValue(new Variant(1.0))).toArray(DataValue[]::new);
+            maxReadsInFlight.accumulateAndGet(readsInFlight.incrementAndGet(), Math::max);
+            return CompletableFuture.supplyAsync(() -> {
+                readsInFlight.decrementAndGet();
+                return new ReadResponse(null, values, null);
+            }, CompletableFuture.delayedExecutor(READ_DELAY_MS, MILLISECONDS));
+        });
+        when(client.write(anyList())).thenAnswer(invocation -> {
+            List<WriteValue> values = invocation.getArgument(0);
+            var codes = new StatusCode[values.size()];
+            Arrays.fill(codes, StatusCode.GOOD);
+            return CompletableFuture.completedFuture(new WriteResponse(null, codes, null));
+        });
+
+        opcClient = new OpcClient(new ObjectMapper(), mock(KeyStoreLoader.class), mock(OpcEndpointsConfiguraiton.class),
+                mock(ValueManager.class), new SimpleMeterRegistry(), mock(ServerMetadataCache.class));
+        ReflectionTestUtils.setField(opcClient, "opcTimeoutMs", 5_000L);
+        ((Map<String, OpcUaClient>) ReflectionTestUtils.getField(opcClient, "clients")).put(ENV, client);
+
+        var descs = new HashSet<MappingDesc>();
+        for (int i = 0; i < TAGS; i++) {
+            descs.add(MappingDesc.builder().key("tag-" + i).namespaceIndex(2).tag("model.tag" + i).attribute("pv")
+                    .build());
+        }
+        index = ModelIndex.compile("model", descs);
+    }
+
+    @Test
+    void writesAreNotBlockedBySlowReads() throws InterruptedException {
+        var running = new AtomicBoolean(true);
+        var reads = new AtomicInteger();
+        var readers = new ArrayList<Thread>();
+        for (int i = 0; i < READERS; i++) {
+            // disjoint node sets, so reads are not coalesced
+            var reader = i;
+            var positions = IntStream.range(0, TAGS).filter(position -> position % READERS == reader).toArray();
+            readers.add(Thread.ofVirtual().start(() -> {
+                while (running.get()) {
+                    opcClient.getAllValues("reader", ENV, index, positions);
+                    reads.incrementAndGet();
+                }
+            }));
+        }
+        Thread.sleep(READ_DELAY_MS / 3);
+
+        var latencies = new long[WRITES];
+        for (int i = 0; i < WRITES; i++) {
+            var values = new HashMap<Integer, Float>();
+            values.put(i % TAGS, (float) i);
+            var start = System.nanoTime();
+            opcClient.setValues("writer", ENV, index, values);
+            latencies[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        running.set(false);
+        for (var reader : readers) {
+            reader.join();
+        }
+
+        // a write queued behind a read would wait for a good part of READ_DELAY_MS;
+        // the median is not affected by a single GC pause of a shared runner
+        Arrays.sort(latencies);
+        assertThat(latencies[WRITES / 2]).isLessThan(READ_DELAY_MS / 10);
+        assertThat(reads.get()).isPositive();
+        assertThat(maxReadsInFlight.get()).isGreaterThan(READERS / 2);
+    }
+}
@@ -0,0 +1,96 @@
+package ru.datana.integration.opc.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ru.datana.integration.opc.dto.ModelIndex;
+import ru.datana.integration.opc.request.MappingDesc;
+import ru.datana.integration.opc.support.EmbeddedOpcServer;
+import ru.datana.integration.opc.support.EmbeddedOpcServer.Limits;
+
+/**
+ * Reads and writes of a model larger than the server {@code MaxNodesPerRead}
+ * and {@code MaxNodesPerWrite}.
+ */
+class OpcClientReadWriteTest {
+
+    private static final String ENV = "env";
+    private static final String NAME = "model";
+    private static final int TAGS = 2_000;
+
+    private static EmbeddedOpcServer server;
+    private static OpcClient opcClient;
+    private static ModelIndex index;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        var tags = IntStream.range(0, TAGS).mapToObj(i -> "model.tag" + i + ".pv").toList();
+        server = new EmbeddedOpcServer(tags, new Limits(150, 70, 0)).start();
+
+        var valueManager = TestOpcClients.valueManager();
+        opcClient = TestOpcClients.connect(ENV, server.url(), valueManager, new SimpleMeterRegistry());
+
+        var descs = new HashSet<MappingDesc>();
+        for (int i = 0; i < TAGS; i++) {
+            descs.add(MappingDesc.builder().key("tag-" + i).namespaceIndex(2).tag("model.tag" + i).attribute("pv")
+                    .build());
+        }
+        index = ModelIndex.compile(NAME, descs);
+        valueManager.registerMappings(NAME, ENV, index);
+    }
+
+    @BeforeEach
+    void resetValues() {
+        for (int i = 0; i < TAGS; i++) {
+            server.setValue("model.tag" + i + ".pv", i);
+        }
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    void limitsAreReadAtConnect() {
+        var limits = opcClient.getOperationLimits(ENV);
+
+        assertThat(limits.maxNodesPerRead()).isEqualTo(150);
+        assertThat(limits.maxNodesPerWrite()).isEqualTo(70);
+    }
+
+    @Test
+    void readIsChunkedInMappingOrder() {
+        var values = opcClient.getAllValues(NAME, ENV, index, IntStream.range(0, index.size()).toArray());
+
+        assertThat(values).hasSize(TAGS);
+        for (int i = 0; i < TAGS; i++) {
+            assertThat(values.get("tag-" + i).getValue()).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void writeIsChunked() {
+        var positions = IntStream.range(0, TAGS / 2).map(i -> index.position("tag-" + i)).toArray();
+        var values = new HashMap<Integer, Float>();
+        for (var position : positions) {
+            values.put(position, -1f - position);
+        }
+
+        opcClient.setValues(NAME, ENV, index, values);
+
+        var read = opcClient.getAllValues(NAME, ENV, index, positions);
+        for (var position : positions) {
+            assertThat(read.get(index.key(position)).getValue()).isEqualTo(-1.0 - position);
+        }
+    }
+}
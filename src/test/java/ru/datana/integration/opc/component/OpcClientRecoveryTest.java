@@ -0,0 +1,130 @@
+package ru.datana.integration.opc.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.datana.integration.opc.component.TestOpcClients.await;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+import org.eclipse.milo.opcua.sdk.client.subscriptions.ManagedSubscription;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ru.datana.integration.opc.dto.ModelIndex;
+import ru.datana.integration.opc.request.MappingDesc;
+import ru.datana.integration.opc.support.EmbeddedOpcServer;
+
+/**
+ * Subscriptions of an environment are restored after the OPC server restart
+ * and after a failed subscription transfer.
+ */
+class OpcClientRecoveryTest {
+
+    private static final String ENV = "env";
+    private static final String NAME = "model";
+    private static final int TAGS = 20;
+
+    private EmbeddedOpcServer server;
+    private OpcClient opcClient;
+    private ValueManager valueManager;
+    private SimpleMeterRegistry meterRegistry;
+    private ModelIndex index;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        var tags = IntStream.range(0, TAGS).mapToObj(i -> "model.tag" + i + ".pv").toList();
+        server = new EmbeddedOpcServer(tags).start();
+
+        valueManager = TestOpcClients.valueManager();
+        meterRegistry = new SimpleMeterRegistry();
+        opcClient = TestOpcClients.connect(ENV, server.url(), valueManager, meterRegistry);
+
+        var descs = new HashSet<MappingDesc>();
+        for (int i = 0; i < TAGS; i++) {
+            descs.add(MappingDesc.builder().key("tag-" + i).namespaceIndex(2).tag("model.tag" + i).attribute("pv")
+                    .build());
+        }
+        index = ModelIndex.compile(NAME, descs);
+        valueManager.registerMappings(NAME, ENV, index);
+        opcClient.subscribe(NAME, ENV, index, IntStream.range(0, TAGS).toArray());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    void subscriptionsAreRebuiltAfterServerRestart() throws Exception {
+        var position = index.position("tag-0");
+        server.setValue("model.tag0.pv", 1);
+        assertThat(await(() -> valueOf(position) == 1)).isTrue();
+
+        server.restart();
+        server.setValue("model.tag0.pv", 2);
+        ReflectionTestUtils.setField(opcClient, "disconnectionThresholdSeconds", -1);
+        opcClient.checkAvailability();
+
+        assertThat(await(() -> valueOf(position) == 2)).isTrue();
+        var timers = meterRegistry.find("opc.env.recovery").tag("env", ENV).timers();
+        assertThat(timers).hasSize(1);
+        var timer = timers.iterator().next();
+        assertThat(timer.getId().getTag("result")).isIn(List.of("transferred", "rebuilt"));
+        assertThat(timer.count()).isEqualTo(1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedTransferIsRebuiltOffListenerThread() throws Exception {
+        var failed = subscription();
+        var locked = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        // a recovery in progress holds the connection lock
+        var recovery = Thread.ofPlatform().start(() -> {
+            var lock = ((Map<String, ReentrantLock>) ReflectionTestUtils.getField(opcClient, "connectionLocks"))
+                    .get(ENV);
+            lock.lock();
+            try {
+                locked.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+        });
+        assertThat(locked.await(5, TimeUnit.SECONDS)).isTrue();
+
+        var listener = Thread.ofPlatform().start(() -> opcClient.onSubscriptionTransferFailed(failed, StatusCode.BAD));
+        listener.join(5_000);
+        assertThat(listener.isAlive()).isFalse();
+        release.countDown();
+        recovery.join();
+
+        assertThat(await(() -> subscription() != failed)).isTrue();
+        var position = index.position("tag-0");
+        server.setValue("model.tag0.pv", 3);
+        assertThat(await(() -> valueOf(position) == 3)).isTrue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private ManagedSubscription subscription() {
+        var subscriptions = (Map<String, Map<Double, SharedSubscription>>) ReflectionTestUtils.getField(opcClient,
+                "subscriptions");
+        return subscriptions.get(ENV).values().iterator().next().subscription();
+    }
+
+    private double valueOf(int position) {
+        var value = valueManager.findModelValues(NAME, ENV).get(index, position);
+        return value == null || value.getValue() == null ? Double.NaN : value.getValue();
+    }
+}
@@ -0,0 +1,133 @@
+package ru.datana.integration.opc.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.datana.integration.opc.component.TestOpcClients.await;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ru.datana.integration.opc.dto.ModelIndex;
+import ru.datana.integration.opc.dto.SubscriptionSettings;
+import ru.datana.integration.opc.request.MappingDesc;
+import ru.datana.integration.opc.request.SamplingDesc;
+import ru.datana.integration.opc.request.SamplingDesc.DeadbandType;
+import ru.datana.integration.opc.support.EmbeddedOpcServer;
+
+/**
+ * Per-model publishing interval and per-mapping monitored item settings.
+ */
+class OpcClientSamplingTest {
+
+    private static final String ENV = "env";
+    private static final int TAGS = 10;
+    private static final SamplingDesc DEADBAND = SamplingDesc.builder().deadbandType(DeadbandType.ABSOLUTE)
+            .deadband(1.0).build();
+
+    private EmbeddedOpcServer server;
+    private OpcClient opcClient;
+    private ValueManager valueManager;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        var tags = IntStream.range(0, TAGS).mapToObj(i -> "model.tag" + i + ".pv").toList();
+        server = new EmbeddedOpcServer(tags).start();
+        valueManager = TestOpcClients.valueManager();
+        opcClient = TestOpcClients.connect(ENV, server.url(), valueManager, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    void absoluteDeadbandSuppressesSmallChanges() throws Exception {
+        var plain = subscribe("plain", null, SubscriptionSettings.DEFAULT);
+        var filtered = subscribe("filtered", null, new SubscriptionSettings(null, DEADBAND));
+
+        assertThat(subscriptions().get(50.0).itemCount()).isEqualTo(2 * TAGS);
+        assertThat(server.monitoredItems()).isEqualTo(2 * TAGS);
+
+        server.setValue("model.tag0.pv", 0.5);
+        assertThat(await(() -> valueOf("plain", plain) == 0.5)).isTrue();
+        Thread.sleep(200);
+        assertThat(valueOf("filtered", filtered)).isZero();
+
+        server.setValue("model.tag0.pv", 2);
+        assertThat(await(() -> valueOf("filtered", filtered) == 2)).isTrue();
+    }
+
+    @Test
+    void mappingSettingsOverrideModelOnes() throws Exception {
+        var filtered = subscribe("filtered", SamplingDesc.builder().deadbandType(DeadbandType.NONE).build(),
+                new SubscriptionSettings(null, DEADBAND));
+
+        server.setValue("model.tag0.pv", 0.5);
+        assertThat(await(() -> valueOf("filtered", filtered) == 0.5)).isTrue();
+        server.setValue("model.tag1.pv", 0.5);
+        Thread.sleep(200);
+        assertThat(valueOf("filtered", filtered, 1)).isZero();
+    }
+
+    @Test
+    void modelMovesToSubscriptionOfItsPublishingInterval() throws Exception {
+        subscribe("a", null, SubscriptionSettings.DEFAULT);
+        var b = subscribe("b", null, new SubscriptionSettings(200.0, null));
+
+        assertThat(subscriptions()).containsOnlyKeys(50.0, 200.0);
+        assertThat(subscriptions().get(200.0).subscription().getPublishingInterval()).isEqualTo(200.0);
+        assertThat(subscriptions().get(50.0).itemCount()).isEqualTo(TAGS);
+        assertThat(subscriptions().get(200.0).itemCount()).isEqualTo(TAGS);
+        server.setValue("model.tag0.pv", 3);
+        assertThat(await(() -> valueOf("b", b) == 3)).isTrue();
+
+        subscribe("b", null, SubscriptionSettings.DEFAULT);
+
+        assertThat(subscriptions().get(50.0).itemCount()).isEqualTo(TAGS);
+        assertThat(subscriptions().get(200.0).isEmpty()).isTrue();
+        assertThat(subscriptions().get(200.0).itemCount()).isZero();
+        assertThat(server.monitoredItems()).isEqualTo(TAGS);
+
+        assertThat(opcClient.unsubscribe("b", ENV)).isTrue();
+        assertThat(opcClient.unsubscribe("a", ENV)).isTrue();
+        assertThat(server.monitoredItems()).isZero();
+    }
+
+    /**
+     * Subscribes all tags, {@code tag0} of the model uses {@code mapping}
+     * settings
+     */
+    private ModelIndex subscribe(String name, SamplingDesc mapping, SubscriptionSettings settings) {
+        var descs = new HashSet<MappingDesc>();
+        for (int i = 0; i < TAGS; i++) {
+            descs.add(MappingDesc.builder().key("tag-" + i).namespaceIndex(2).tag("model.tag" + i).attribute("pv")
+                    .sampling(i == 0 ? mapping : null).build());
+        }
+        var index = ModelIndex.compile(name, descs);
+        valueManager.registerMappings(name, ENV, index);
+        opcClient.subscribe(name, ENV, index, IntStream.range(0, index.size()).toArray(), settings);
+        return index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Double, SharedSubscription> subscriptions() {
+        return ((Map<String, Map<Double, SharedSubscription>>) ReflectionTestUtils.getField(opcClient,
+                "subscriptions")).get(ENV);
+    }
+
+    private double valueOf(String name, ModelIndex index) {
+        return valueOf(name, index, 0);
+    }
+
+    private double valueOf(String name, ModelIndex index, int tag) {
+        var value = valueManager.findModelValues(name, ENV).get(index, index.position("tag-" + tag));
+        return value == null || value.getValue() == null ? Double.NaN : value.getValue();
+    }
+}
@@ -0,0 +1,126 @@
+package ru.datana.integration.opc.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.datana.integration.opc.component.TestOpcClients.await;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ru.datana.integration.opc.dto.ModelIndex;
+import ru.datana.integration.opc.request.MappingDesc;
+import ru.datana.integration.opc.support.EmbeddedOpcServer;
+
+/**
+ * Notifications of a small model are delivered while large {@code values/all}
+ * reads are running, the reads are served by the bulk sessions if there are
+ * any and by the subscription session otherwise.
+ */
+class OpcClientSessionPoolTest {
+
+    private static final String ENV = "env";
+    private static final int TAGS = 10_000;
+    private static final int READERS = 4;
+    private static final int NOTIFICATIONS = 100;
+
+    private EmbeddedOpcServer server;
+    private ValueManager valueManager;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 0, 2 })
+    void notificationsAreDeliveredDuringBulkReads(int bulkSessions) throws Exception {
+        server = new EmbeddedOpcServer(IntStream.range(0, TAGS).mapToObj(i -> "model.tag" + i + ".pv").toList())
+                .start();
+        valueManager = TestOpcClients.valueManager();
+        var opcClient = TestOpcClients.connect(ENV, server.url(), valueManager, new SimpleMeterRegistry(), client -> {
+            ReflectionTestUtils.setField(client, "interactiveSessions", bulkSessions > 0 ? 1 : 0);
+            ReflectionTestUtils.setField(client, "bulkSessions", bulkSessions);
+            ReflectionTestUtils.setField(client, "bulkThreshold", 100);
+        });
+        if (bulkSessions > 0) {
+            assertThat(await(() -> activeSessions(opcClient) == bulkSessions + 1)).isTrue();
+            assertThat(server.sessions()).isEqualTo(bulkSessions + 2);
+        }
+
+        var big = index("big", TAGS);
+        var all = IntStream.range(0, TAGS).toArray();
+        var small = index("small", 10);
+        opcClient.subscribe("small", ENV, small, IntStream.range(0, small.size()).toArray());
+
+        var running = new AtomicBoolean(true);
+        var reads = new AtomicInteger();
+        var readers = new ArrayList<Thread>();
+        for (int i = 0; i < READERS; i++) {
+            readers.add(Thread.ofVirtual().start(() -> {
+                while (running.get()) {
+                    opcClient.getAllValues("big", ENV, big, all);
+                    reads.incrementAndGet();
+                }
+            }));
+        }
+
+        for (int i = 0; i < NOTIFICATIONS; i++) {
+            var value = i + 1;
+            server.setValue("model.tag0.pv", value);
+            assertThat(await(() -> valueOf(small) == value)).isTrue();
+        }
+        running.set(false);
+        for (var reader : readers) {
+            reader.join();
+        }
+
+        assertThat(reads.get()).isPositive();
+        // the tag is not in the small model, so it is only read by values/all
+        var sessions = server.reads("model.tag" + (TAGS - 1) + ".pv");
+        var primary = primarySessionId(opcClient);
+        if (bulkSessions > 0) {
+            assertThat(sessions).hasSize(bulkSessions).doesNotContainKey(primary);
+        } else {
+            assertThat(sessions).containsOnlyKeys(primary);
+        }
+    }
+
+    private ModelIndex index(String name, int tags) {
+        var descs = new HashSet<MappingDesc>();
+        for (int i = 0; i < tags; i++) {
+            descs.add(MappingDesc.builder().key("tag-" + i).namespaceIndex(2).tag("model.tag" + i).attribute("pv")
+                    .build());
+        }
+        var index = ModelIndex.compile(name, descs);
+        valueManager.registerMappings(name, ENV, index);
+        return index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int activeSessions(OpcClient opcClient) {
+        var pool = ((Map<String, SessionPool>) ReflectionTestUtils.getField(opcClient, "sessionPools")).get(ENV);
+        return pool == null ? 0 : pool.activeSessions();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static NodeId primarySessionId(OpcClient opcClient) throws Exception {
+        var clients = (Map<String, OpcUaClient>) ReflectionTestUtils.getField(opcClient, "clients");
+        return clients.get(ENV).getSession().get().getSessionId();
+    }
+
+    private double valueOf(ModelIndex index) {
+        var value = valueManager.findModelValues("small", ENV).get(index, index.position("tag-0"));
+        return value == null || value.getValue() == null ? Double.NaN : value.getValue();
+    }
+}
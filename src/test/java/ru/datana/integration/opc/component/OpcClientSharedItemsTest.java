@@ -0,0 +1,118 @@
+package ru.datana.integration.opc.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.datana.integration.opc.component.TestOpcClients.await;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ru.datana.integration.opc.dto.ModelIndex;
+import ru.datana.integration.opc.request.MappingDesc;
+import ru.datana.integration.opc.support.EmbeddedOpcServer;
+
+/**
+ * Models mapping the same tags share monitored items of the environment.
+ */
+class OpcClientSharedItemsTest {
+
+    private static final String ENV = "env";
+    private static final int TAGS = 30;
+
+    private EmbeddedOpcServer server;
+    private OpcClient opcClient;
+    private ValueManager valueManager;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        var tags = IntStream.range(0, TAGS).mapToObj(i -> "model.tag" + i + ".pv").toList();
+        server = new EmbeddedOpcServer(tags).start();
+        valueManager = TestOpcClients.valueManager();
+        opcClient = TestOpcClients.connect(ENV, server.url(), valueManager, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    void itemIsSharedUntilLastModelIsUnsubscribed() throws Exception {
+        var a = subscribe("a", 0, 20);
+        var b = subscribe("b", 10, 30);
+
+        assertThat(subscription().itemCount()).isEqualTo(TAGS);
+        assertThat(server.monitoredItems()).isEqualTo(TAGS);
+        server.setValue("model.tag15.pv", 5);
+        assertThat(await(() -> valueOf("a", a, 15) == 5 && valueOf("b", b, 15) == 5)).isTrue();
+
+        assertThat(opcClient.unsubscribe("a", ENV)).isTrue();
+
+        assertThat(subscription().itemCount()).isEqualTo(20);
+        assertThat(server.monitoredItems()).isEqualTo(20);
+        server.setValue("model.tag15.pv", 6);
+        assertThat(await(() -> valueOf("b", b, 15) == 6)).isTrue();
+
+        assertThat(opcClient.unsubscribe("b", ENV)).isTrue();
+
+        assertThat(subscription().itemCount()).isZero();
+        assertThat(server.monitoredItems()).isZero();
+    }
+
+    @Test
+    void resubscribeKeepsCommonItems() throws Exception {
+        subscribe("a", 0, 20);
+        var handles = clientHandles();
+
+        var a = subscribe("a", 5, 25);
+
+        assertThat(subscription().itemCount()).isEqualTo(20);
+        assertThat(server.monitoredItems()).isEqualTo(20);
+        var common = IntStream.range(5, 20).mapToObj(i -> "model.tag" + i + ".pv").toList();
+        assertThat(clientHandles()).containsAllEntriesOf(
+                handles.entrySet().stream().filter(e -> common.contains(e.getKey()))
+                        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+        server.setValue("model.tag24.pv", 7);
+        assertThat(await(() -> valueOf("a", a, 24) == 7)).isTrue();
+    }
+
+    private ModelIndex subscribe(String name, int from, int to) {
+        var descs = new HashSet<MappingDesc>();
+        for (int i = from; i < to; i++) {
+            descs.add(MappingDesc.builder().key("tag-" + i).namespaceIndex(2).tag("model.tag" + i).attribute("pv")
+                    .build());
+        }
+        var index = ModelIndex.compile(name, descs);
+        valueManager.registerMappings(name, ENV, index);
+        opcClient.subscribe(name, ENV, index, IntStream.range(0, index.size()).toArray());
+        return index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private SharedSubscription subscription() {
+        return ((Map<String, Map<Double, SharedSubscription>>) ReflectionTestUtils.getField(opcClient,
+                "subscriptions")).get(ENV).values().iterator().next();
+    }
+
+    /**
+     * @return node identifier -> client handle of the created monitored items
+     */
+    private Map<String, UInteger> clientHandles() {
+        return subscription().subscription().getDataItems().stream().filter(item -> item.getStatusCode().isGood())
+                .collect(Collectors.toMap(item -> item.getNodeId().getIdentifier().toString(),
+                        item -> item.getMonitoredItem().getClientHandle()));
+    }
+
+    private double valueOf(String name, ModelIndex index, int tag) {
+        var value = valueManager.findModelValues(name, ENV).get(index, index.position("tag-" + tag));
+        return value == null || value.getValue() == null ? Double.NaN : value.getValue();
+    }
+}
@@ -0,0 +1,93 @@
+package ru.datana.integration.opc.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ru.datana.integration.opc.dto.ModelIndex;
+import ru.datana.integration.opc.exception.SubscriptionException;
+import ru.datana.integration.opc.request.MappingDesc;
+import ru.datana.integration.opc.support.EmbeddedOpcServer;
+import ru.datana.integration.opc.support.EmbeddedOpcServer.Limits;
+
+/**
+ * Subscribe time of large models, monitored items are created in chunks of the
+ * server {@code MaxMonitoredItemsPerCall}.
+ */
+class OpcClientSubscribeTest {
+
+    private static final String ENV = "env";
+    private static final int MAX_TAGS = 10_000;
+    private static final int MAX_ITEMS_PER_CALL = 500;
+
+    private static EmbeddedOpcServer server;
+    private static ValueManager valueManager;
+    private static OpcClient opcClient;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        var tags = IntStream.range(0, MAX_TAGS).mapToObj(i -> "model.tag" + i + ".pv").toList();
+        server = new EmbeddedOpcServer(tags, new Limits(0, 0, MAX_ITEMS_PER_CALL)).start();
+        valueManager = TestOpcClients.valueManager();
+        opcClient = TestOpcClients.connect(ENV, server.url(), valueManager, new SimpleMeterRegistry());
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        server.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 100, 1_000, 10_000 })
+    void subscribesLargeModel(int tags) {
+        var name = "model-" + tags;
+        var index = index(name, tags, false);
+        valueManager.registerMappings(name, ENV, index);
+
+        opcClient.subscribe(name, ENV, index, IntStream.range(0, tags).toArray());
+
+        assertThat(subscription().itemCount()).isEqualTo(tags);
+        assertThat(opcClient.unsubscribe(name, ENV)).isTrue();
+        assertThat(subscription().itemCount()).isZero();
+    }
+
+    @Test
+    void itemStatusIsReportedPerMapping() {
+        var name = "model-missing";
+        var index = index(name, 1_200, true);
+        valueManager.registerMappings(name, ENV, index);
+
+        assertThatThrownBy(() -> opcClient.subscribe(name, ENV, index, IntStream.range(0, index.size()).toArray()))
+                .isInstanceOfSatisfying(SubscriptionException.class, e -> assertThat(e.getMessage())
+                        .contains("missing.pv").contains("Bad_NodeIdUnknown").doesNotContain("model.tag"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SharedSubscription subscription() {
+        return ((Map<String, Map<Double, SharedSubscription>>) ReflectionTestUtils.getField(opcClient,
+                "subscriptions")).get(ENV).values().iterator().next();
+    }
+
+    private static ModelIndex index(String name, int tags, boolean withMissing) {
+        var descs = new HashSet<MappingDesc>();
+        for (int i = 0; i < tags; i++) {
+            descs.add(MappingDesc.builder().key("tag-" + i).namespaceIndex(2).tag("model.tag" + i).attribute("pv")
+                    .build());
+        }
+        if (withMissing) {
+            descs.add(MappingDesc.builder().key("missing").namespaceIndex(2).tag("missing").attribute("pv").build());
+        }
+        return ModelIndex.compile(name, descs);
+    }
+}
@@ -0,0 +1,136 @@
+package ru.datana.integration.opc.component;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import ru.datana.integration.opc.component.KeyedSerialExecutor.OverflowPolicy;
+import ru.datana.integration.opc.config.HistoryProperties;
+import ru.datana.integration.opc.config.SnapshotProperties;
+import ru.datana.integration.opc.dto.ModelIndex;
+import ru.datana.integration.opc.service.ControllerUpdateService;
+import ru.datana.integration.opc.support.LoadOpcServer;
+import ru.datana.integration.opc.support.LoadOpcServer.Group;
+import ru.datana.integration.opc.util.TagValues;
+
+/**
+ * End-to-end throughput against {@link LoadOpcServer}: sustained notifications
+ * per second, source-to-cache latency percentiles, heap and GC of the JVM
+ * (client and simulator), logged at the end of the run. Scaled with
+ * {@code -Dload.groups=} (see {@link Group#parse(String)}) and
+ * {@code -Dload.seconds=}. Tagged {@code load}, so it runs with
+ * {@code mvn -Pload test} only.
+ */
+@Slf4j
+@Tag("load")
+class OpcClientThroughputTest {
+
+    private static final String ENV = "env";
+    private static final String NAME = "load";
+    private static final String GROUPS = "NUMERIC:500:SINE:100,STRING:500:RAMP:100,GUID:500:RANDOM:250,OPAQUE:500:STEP:100";
+    private static final long WARMUP_MS = 3_000;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Timer latency = Timer.builder("load.latency").publishPercentiles(0.5, 0.9, 0.99, 0.999)
+            .register(meterRegistry);
+    private volatile boolean measuring;
+
+    @Test
+    void sustainsNotificationRate() throws Exception {
+        var groups = Arrays.stream(System.getProperty("load.groups", GROUPS).split(",")).map(Group::parse).toList();
+        var seconds = Integer.getInteger("load.seconds", 10);
+        try (var server = new LoadOpcServer(groups).start()) {
+            var valueManager = new ValueManager(mock(ControllerUpdateService.class),
+                    new KeyedSerialExecutor(Runnable::run, 16, OverflowPolicy.BLOCK), new HistoryProperties(),
+                    new ValueSnapshot(new SnapshotProperties())) {
+                @Override
+                public void setValue(String name, String env, ModelValues model, int handle, boolean hasValue,
+                        double value, long sourceTime, long serverTime, long status) {
+                    super.setValue(name, env, model, handle, hasValue, value, sourceTime, serverTime, status);
+                    if (measuring && sourceTime != TagValues.NO_TIME) {
+                        // UtcTime ticks are 100 ns
+                        latency.record((DateTime.now().getUtcTime() - sourceTime) * 100, NANOSECONDS);
+                    }
+                }
+            };
+            var opcClient = TestOpcClients.connect(ENV, server.url(), valueManager, meterRegistry);
+            var index = ModelIndex.compile(NAME, server.mappings());
+            valueManager.registerMappings(NAME, ENV, index);
+            opcClient.subscribe(NAME, ENV, index, IntStream.range(0, index.size()).toArray());
+            Thread.sleep(WARMUP_MS);
+
+            measuring = true;
+            var gcCount = gcCount();
+            var gcTimeMs = gcTimeMs();
+            var allocated = allocatedBytes();
+            var start = System.nanoTime();
+            var changes = server.changes();
+            var notifications = notifications();
+            var perSecond = new long[seconds];
+            for (int i = 0; i < seconds; i++) {
+                var previous = notifications();
+                Thread.sleep(1_000);
+                perSecond[i] = (long) (notifications() - previous);
+            }
+            var elapsed = (System.nanoTime() - start) / 1e9;
+            measuring = false;
+            var received = notifications() - notifications;
+
+            var snapshot = latency.takeSnapshot();
+            var percentiles = snapshot.percentileValues();
+            var heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+            log.info("{} nodes {} for {} s", server.size(), groups, seconds);
+            log.info("server changes/s: {}, notifications/s: {} (min {}, max {} per second)",
+                    Math.round((server.changes() - changes) / elapsed), Math.round(received / elapsed),
+                    Arrays.stream(perSecond).min().orElse(0), Arrays.stream(perSecond).max().orElse(0));
+            log.info("source-to-cache latency ms: p50 {}, p90 {}, p99 {}, p99.9 {}, max {}",
+                    millis(percentiles[0].value(NANOSECONDS)), millis(percentiles[1].value(NANOSECONDS)),
+                    millis(percentiles[2].value(NANOSECONDS)), millis(percentiles[3].value(NANOSECONDS)),
+                    millis(snapshot.max(NANOSECONDS)));
+            log.info("heap used {} MB of {} MB, allocated {} MB/s, GC: {} collections, {} ms", heap.getUsed() >> 20,
+                    heap.getCommitted() >> 20, Math.round((allocatedBytes() - allocated) / elapsed / (1 << 20)),
+                    gcCount() - gcCount, gcTimeMs() - gcTimeMs);
+
+            assertThat(received).isPositive();
+            assertThat(snapshot.count()).isPositive();
+        }
+    }
+
+    /**
+     * @return {@code nanos} in milliseconds rounded to 0.1
+     */
+    private static double millis(double nanos) {
+        return Math.round(nanos / 1e5) / 10.0;
+    }
+
+    private double notifications() {
+        var counter = meterRegistry.find("opc.notifications").tag("model", NAME).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount)
+                .sum();
+    }
+
+    private static long gcTimeMs() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime)
+                .sum();
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getTotalThreadAllocatedBytes();
+    }
+}
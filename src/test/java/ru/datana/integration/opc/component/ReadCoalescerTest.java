@@ -0,0 +1,145 @@
+package ru.datana.integration.opc.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.junit.jupiter.api.Test;
+
+import ru.datana.integration.opc.exception.ResourceNotFoundException;
+
+class ReadCoalescerTest {
+
+    private final List<List<NodeId>> reads = new CopyOnWriteArrayList<>();
+
+    @Test
+    void callersWithinWindowShareOneRead() throws Exception {
+        var coalescer = new ReadCoalescer("env", 100, this::values);
+        var callers = 8;
+        var start = new CountDownLatch(1);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var results = new ArrayList<Future<DataValue[]>>();
+            for (int i = 0; i < callers; i++) {
+                // overlapping ranges [i * 5, i * 5 + 10)
+                var nodeIds = nodes(i * 5, i * 5 + 10);
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return coalescer.read(nodeIds);
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < callers; i++) {
+                assertThat(values(results.get(i).get())).containsExactlyElementsOf(
+                        IntStream.range(i * 5, i * 5 + 10).boxed().toList());
+            }
+        }
+        assertThat(reads).hasSize(1);
+        assertThat(reads.get(0)).hasSize((callers - 1) * 5 + 10).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void callerJoinsReadInFlightCoveringItsNodes() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var coalescer = new ReadCoalescer("env", 0, nodeIds -> {
+            started.countDown();
+            await(release);
+            return values(nodeIds);
+        });
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var first = executor.submit(() -> coalescer.read(nodes(0, 100)));
+            started.await();
+            var joined = executor.submit(() -> coalescer.read(nodes(40, 50).reversed()));
+            Thread.sleep(50);
+            release.countDown();
+
+            assertThat(values(first.get())).hasSize(100);
+            assertThat(values(joined.get())).containsExactlyElementsOf(
+                    IntStream.range(40, 50).map(i -> 89 - i).boxed().toList());
+        }
+        assertThat(reads).hasSize(1);
+    }
+
+    @Test
+    void uncoveredCallerIsNotJoined() throws Exception {
+        var coalescer = new ReadCoalescer("env", 0, this::values);
+
+        coalescer.read(nodes(0, 10));
+        coalescer.read(nodes(5, 15));
+
+        assertThat(reads).hasSize(2);
+    }
+
+    @Test
+    void failureIsReportedToEveryCaller() throws Exception {
+        var coalescer = new ReadCoalescer("env", 50, nodeIds -> {
+            throw new TimeoutException("read timed out");
+        });
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var first = executor.submit(() -> catchFailure(coalescer, nodes(0, 10)));
+            var second = executor.submit(() -> catchFailure(coalescer, nodes(5, 15)));
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isInstanceOf(TimeoutException.class);
+            assertThat(second.get(5, TimeUnit.SECONDS)).isInstanceOf(TimeoutException.class);
+        }
+        assertThatThrownBy(() -> coalescer.read(nodes(0, 1))).isInstanceOf(TimeoutException.class)
+                .hasMessage("read timed out");
+    }
+
+    @Test
+    void uncheckedFailureIsNotWrapped() {
+        var coalescer = new ReadCoalescer("env", 0, nodeIds -> {
+            throw new ResourceNotFoundException("ENV", "env");
+        });
+
+        assertThatThrownBy(() -> coalescer.read(nodes(0, 1))).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    private DataValue[] values(List<NodeId> nodeIds) {
+        reads.add(List.copyOf(nodeIds));
+        return nodeIds.stream().map(nodeId -> new DataValue(new Variant(nodeId.getIdentifier())))
+                .toArray(DataValue[]::new);
+    }
+
+    private static List<Integer> values(DataValue[] values) {
+        var res = new ArrayList<Integer>();
+        for (var value : values) {
+            res.add(((Number) value.getValue().getValue()).intValue());
+        }
+        return res;
+    }
+
+    private static List<NodeId> nodes(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> new NodeId(2, i)).toList();
+    }
+
+    private static Exception catchFailure(ReadCoalescer coalescer, List<NodeId> nodeIds) {
+        try {
+            coalescer.read(nodeIds);
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return e;
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ru.datana.integration.opc.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.stack.core.NamespaceTable;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.structured.EndpointDescription;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import ru.datana.integration.opc.component.ServerMetadataCache.OperationLimits;
+import ru.datana.integration.opc.exception.InternalErrorException;
+
+class ServerMetadataCacheTest {
+
+    private static final String URL = "opc.tcp://localhost:4840";
+
+    private final AtomicInteger discoveries = new AtomicInteger();
+    private ServerMetadataCache cache;
+    private OpcUaClient client;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ServerMetadataCache();
+        cache.discovery = url -> {
+            discoveries.incrementAndGet();
+            return CompletableFuture.completedFuture(
+                    List.of(EndpointDescription.builder().endpointUrl(url).build()));
+        };
+        ReflectionTestUtils.setField(cache, "ttlMs", 60_000L);
+        ReflectionTestUtils.setField(cache, "opcTimeoutMs", 1_000L);
+
+        client = mock(OpcUaClient.class);
+        when(client.getNamespaceTable()).thenReturn(new NamespaceTable());
+        when(client.read(anyDouble(), any(), anyList())).thenReturn(CompletableFuture.completedFuture(
+                new ReadResponse(null, new DataValue[] { new DataValue(new Variant(uint(1_000))),
+                        new DataValue(new Variant(uint(0))), new DataValue(StatusCode.BAD) }, null)));
+    }
+
+    @Test
+    void reconnectWithinTtlSkipsDiscoveryAndLimitsRead() {
+        cache.endpoints(URL);
+        assertThat(cache.refresh(URL, client)).isTrue();
+
+        cache.endpoints(URL);
+        assertThat(cache.refresh(URL, client)).isFalse();
+
+        assertThat(discoveries).hasValue(1);
+        verify(client, times(1)).read(anyDouble(), any(), anyList());
+        assertThat(cache.limits(URL)).isEqualTo(new OperationLimits(1_000, 0, 0));
+    }
+
+    @Test
+    void invalidateForcesDiscovery() {
+        cache.endpoints(URL);
+        cache.refresh(URL, client);
+
+        cache.invalidate(URL);
+
+        assertThat(cache.limits(URL)).isEqualTo(OperationLimits.UNLIMITED);
+        cache.endpoints(URL);
+        assertThat(cache.refresh(URL, client)).isTrue();
+        assertThat(discoveries).hasValue(2);
+    }
+
+    @Test
+    void expiredEntryIsDiscoveredAgain() {
+        ReflectionTestUtils.setField(cache, "ttlMs", 0L);
+
+        cache.endpoints(URL);
+        cache.endpoints(URL);
+
+        assertThat(discoveries).hasValue(2);
+    }
+
+    @Test
+    void discoveryFailureIsNotCached() {
+        cache.discovery = url -> CompletableFuture.failedFuture(new IllegalStateException("unreachable"));
+
+        assertThatThrownBy(() -> cache.endpoints(URL)).isInstanceOf(InternalErrorException.class);
+        assertThat(cache.limits(URL)).isEqualTo(OperationLimits.UNLIMITED);
+    }
+}
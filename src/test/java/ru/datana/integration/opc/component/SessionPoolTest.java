@@ -0,0 +1,130 @@
+package ru.datana.integration.opc.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
+import org.eclipse.milo.opcua.sdk.client.SessionActivityListener;
+import org.eclipse.milo.opcua.sdk.client.api.UaClient;
+import org.eclipse.milo.opcua.sdk.client.api.UaSession;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ru.datana.integration.opc.component.SessionPool.Role;
+
+class SessionPoolTest {
+
+    private final OpcUaClient primary = mock(OpcUaClient.class);
+    private final List<OpcUaClient> created = new ArrayList<>();
+    private final Map<OpcUaClient, SessionActivityListener> listeners = new HashMap<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void rolesFallBackToPrimaryUntilSessionsAreActive() {
+        var pool = pool(1, 2);
+
+        assertThat(created).hasSize(3);
+        assertThat(pool.client(Role.INTERACTIVE, primary)).isSameAs(primary);
+        assertThat(pool.client(Role.BULK, primary)).isSameAs(primary);
+
+        created.forEach(this::activate);
+
+        assertThat(pool.activeSessions()).isEqualTo(3);
+        assertThat(meterRegistry.find("opc.session.active").tag("env", "env").gauges())
+                .allSatisfy(gauge -> assertThat(gauge.value()).isEqualTo(1.0));
+        assertThat(pool.client(Role.INTERACTIVE, primary)).isSameAs(created.get(0));
+        var bulk = List.of(pool.client(Role.BULK, primary), pool.client(Role.BULK, primary),
+                pool.client(Role.BULK, primary), pool.client(Role.BULK, primary));
+        assertThat(bulk).containsExactlyInAnyOrder(created.get(1), created.get(1), created.get(2), created.get(2));
+        assertThat(bulk.get(0)).isNotSameAs(bulk.get(1));
+    }
+
+    @Test
+    void bulkReadsSkipInactiveSessions() {
+        var pool = pool(0, 2);
+        activate(created.get(1));
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(pool.client(Role.BULK, primary)).isSameAs(created.get(1));
+        }
+        assertThat(pool.client(Role.INTERACTIVE, primary)).isSameAs(primary);
+    }
+
+    @Test
+    void inactiveSessionIsRecreatedAfterThreshold() {
+        var pool = pool(1, 0);
+        var first = created.get(0);
+        activate(first);
+        listeners.get(first).onSessionInactive(mock(UaSession.class));
+
+        pool.check(60_000);
+        assertThat(created).hasSize(1);
+        assertThat(pool.client(Role.INTERACTIVE, primary)).isSameAs(primary);
+
+        pool.check(-1);
+        assertThat(created).hasSize(2);
+        verify(first).disconnect();
+        activate(created.get(1));
+        assertThat(pool.client(Role.INTERACTIVE, primary)).isSameAs(created.get(1));
+    }
+
+    @Test
+    void concurrentChecksConnectSessionOnce() throws Exception {
+        var entered = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var pool = new SessionPool("env", () -> {
+            if (created.isEmpty()) {
+                entered.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return client();
+        }, 1, 0, 1_000, meterRegistry);
+
+        var first = Thread.ofPlatform().start(() -> pool.check(60_000));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        var second = Thread.ofPlatform().start(() -> pool.check(60_000));
+        var deadline = System.currentTimeMillis() + 5_000;
+        while (second.getState() != Thread.State.WAITING && second.isAlive()
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        first.join();
+        second.join();
+
+        assertThat(created).hasSize(1);
+        verify(created.get(0), never()).disconnect();
+    }
+
+    private SessionPool pool(int interactive, int bulk) {
+        var pool = new SessionPool("env", this::client, interactive, bulk, 1_000, meterRegistry);
+        pool.check(60_000);
+        return pool;
+    }
+
+    private OpcUaClient client() {
+        var client = mock(OpcUaClient.class);
+        when(client.connect()).thenReturn(CompletableFuture.<UaClient>completedFuture(client));
+        doAnswer(invocation -> listeners.put(client, invocation.getArgument(0))).when(client)
+                .addSessionActivityListener(any());
+        created.add(client);
+        return client;
+    }
+
+    private void activate(OpcUaClient client) {
+        listeners.get(client).onSessionActive(mock(UaSession.class));
+    }
+}
@@ -0,0 +1,104 @@
+package ru.datana.integration.opc.component;
+
+import static org.mockito.Mockito.mock;
+
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.datana.integration.opc.component.KeyedSerialExecutor.OverflowPolicy;
+import ru.datana.integration.opc.component.OpcClient.ConnectionState;
+import ru.datana.integration.opc.config.HistoryProperties;
+import ru.datana.integration.opc.config.OpcEndpointsConfiguraiton;
+import ru.datana.integration.opc.config.OpcEndpointsConfiguraiton.OpcEndpoint;
+import ru.datana.integration.opc.config.SnapshotProperties;
+import ru.datana.integration.opc.service.ControllerUpdateService;
+
+/**
+ * {@link OpcClient} connected to a single unsecured environment, configured as
+ * with the application defaults, and the {@link ValueManager} it feeds.
+ */
+public final class TestOpcClients {
+
+    private static final long TIMEOUT_MS = 15_000;
+
+    private TestOpcClients() {
+    }
+
+    /**
+     * @return value cache with inline controller updates to a mock, no history
+     *         and no snapshot file
+     */
+    public static ValueManager valueManager() {
+        return new ValueManager(mock(ControllerUpdateService.class),
+                new KeyedSerialExecutor(Runnable::run, 16, OverflowPolicy.BLOCK), new HistoryProperties(),
+                new ValueSnapshot(new SnapshotProperties()));
+    }
+
+    /**
+     * @return {@code true} once the {@code condition} holds, {@code false} if it
+     *         does not within 15 s
+     */
+    public static boolean await(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(1);
+        }
+        return false;
+    }
+
+    static OpcClient connect(String env, String url, ValueManager valueManager, MeterRegistry meterRegistry)
+            throws Exception {
+        return connect(env, url, valueManager, meterRegistry, opcClient -> {
+        });
+    }
+
+    /**
+     * @param settings applied to the client before it connects
+     * @throws IllegalStateException if the environment is not connected in 15 s
+     */
+    static OpcClient connect(String env, String url, ValueManager valueManager, MeterRegistry meterRegistry,
+            Consumer<OpcClient> settings) throws Exception {
+        var endpoint = new OpcEndpoint();
+        endpoint.setName(env);
+        endpoint.setUrl(url);
+        endpoint.setType("simulator");
+        var config = new OpcEndpointsConfiguraiton();
+        config.setProviders(Set.of(endpoint));
+
+        var metadataCache = new ServerMetadataCache();
+        ReflectionTestUtils.setField(metadataCache, "ttlMs", 60_000L);
+        ReflectionTestUtils.setField(metadataCache, "opcTimeoutMs", 5_000L);
+        var opcClient = new OpcClient(new ObjectMapper(), mock(KeyStoreLoader.class), config, valueManager,
+                meterRegistry, metadataCache);
+        ReflectionTestUtils.setField(opcClient, "subscriptionIntervalInMs", 50);
+        ReflectionTestUtils.setField(opcClient, "envOpcConfig", "");
+        ReflectionTestUtils.setField(opcClient, "opcTimeoutMs", 5_000L);
+        ReflectionTestUtils.setField(opcClient, "opcRequestTimeoutMs", 5_000L);
+        ReflectionTestUtils.setField(opcClient, "disconnectionThresholdSeconds", 30);
+        ReflectionTestUtils.setField(opcClient, "startupDeadlineMs", 10_000L);
+        ReflectionTestUtils.setField(opcClient, "maxItemsPerCall", 1_000);
+        ReflectionTestUtils.setField(opcClient, "parallelCalls", 4);
+        settings.accept(opcClient);
+        opcClient.init();
+        // init connects in background
+        if (!await(() -> isConnected(opcClient, env))) {
+            throw new IllegalStateException("[%s] environment is not connected: %s".formatted(env,
+                    opcClient.getEnvironmentStatuses().get(env)));
+        }
+        return opcClient;
+    }
+
+    private static boolean isConnected(OpcClient opcClient, String env) {
+        var status = opcClient.getEnvironmentStatuses().get(env);
+        return status != null && status.state() == ConnectionState.CONNECTED;
+    }
+}
@@ -0,0 +1,314 @@
+package ru.datana.integration.opc.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import ru.datana.integration.opc.config.HistoryProperties;
+import ru.datana.integration.opc.config.SnapshotProperties;
+import ru.datana.integration.opc.dto.HistoryPoint;
+import ru.datana.integration.opc.dto.ModelIndex;
+import ru.datana.integration.opc.dto.TagValue;
+import ru.datana.integration.opc.request.MappingDesc;
+import ru.datana.integration.opc.service.ControllerUpdateService;
+import ru.datana.integration.opc.util.TagValues;
+
+@ExtendWith(MockitoExtension.class)
+class ValueManagerTest {
+
+    private static final String NAME = "model";
+    private static final String ENV = "env";
+    private static final int TAGS = 500;
+    private static final int WRITERS = 16;
+    private static final int READERS = 4;
+    private static final int ITERATIONS = 20_000;
+
+    @Mock
+    private ControllerUpdateService controllerUpdateService;
+
+    private HistoryProperties history;
+    private ValueManager manager;
+
+    @BeforeEach
+    void setUp() {
+        history = new HistoryProperties();
+        manager = new ValueManager(controllerUpdateService, inline(), history,
+                new ValueSnapshot(new SnapshotProperties()));
+    }
+
+    @Test
+    void initialValueIsNotForwarded() {
+        manager.registerMappings(NAME, ENV, ModelIndex.compile(NAME, Set.of(desc(1, "State.Update"))));
+
+        manager.setValue(NAME, ENV, "1", tagValue(3));
+
+        verify(controllerUpdateService, never()).handleValueChange(anyString(), anyString(), anyString(), any(), any());
+        assertThat(manager.getValues(NAME, ENV)).containsEntry("1", tagValue(3));
+    }
+
+    @Test
+    void changeIsForwardedWithMappingKey() {
+        manager.registerMappings(NAME, ENV, ModelIndex.compile(NAME, Set.of(desc(1, "State.Update"))));
+
+        manager.setValue(NAME, ENV, "1", tagValue(3));
+        manager.setValue(NAME, ENV, "1", tagValue(1));
+
+        verify(controllerUpdateService).handleValueChange(eq(NAME), eq(ENV), eq("State.Update"), eq(tagValue(3)),
+                eq(tagValue(1)));
+    }
+
+    @Test
+    void unchangedValueIsNotForwarded() {
+        manager.registerMappings(NAME, ENV, ModelIndex.compile(NAME, Set.of(desc(1, "Flow.limit_top.Update"))));
+
+        manager.setValue(NAME, ENV, "1", tagValue(3));
+        manager.setValue(NAME, ENV, "1", tagValue(1));
+        manager.setValue(NAME, ENV, "1", tagValue(1));
+
+        verify(controllerUpdateService).handleValueChange(anyString(), anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    void primitiveSampleIsRenderedOnRead() {
+        manager.registerMappings(NAME, ENV, ModelIndex.compile(NAME, Set.of(desc(1, "a"))));
+        var model = manager.getModelValues(NAME, ENV);
+        var sourceTime = new DateTime(Instant.parse("2024-01-01T00:00:00.123Z")).getUtcTime();
+
+        manager.setValue(NAME, ENV, model, model.handle("1"), true, 1.5, sourceTime, TagValues.NO_TIME,
+                StatusCode.UNCERTAIN.getValue());
+
+        assertThat(manager.getValues(NAME, ENV)).containsEntry("1", TagValue.builder().value(1.5)
+                .sourceTimestamp("2024-01-01T00:00:00.123Z").status("Uncertain").build());
+    }
+
+    @Test
+    void valuesSurviveMappingReplacement() {
+        manager.setValue(NAME, ENV, "1", tagValue(1));
+        manager.registerMappings(NAME, ENV, ModelIndex.compile(NAME, Set.of(desc(1, "a"))));
+        manager.setValue(NAME, ENV, "2", tagValue(2));
+        manager.registerMappings(NAME, ENV, ModelIndex.compile(NAME, Set.of(desc(2, "b"))));
+
+        assertThat(manager.getValues(NAME, ENV)).containsEntry("1", tagValue(1)).containsEntry("2", tagValue(2));
+    }
+
+    @Test
+    void writeToReplacedInstanceIsForwarded() {
+        manager.registerMappings(NAME, ENV, ModelIndex.compile(NAME, Set.of(desc(1, "a"), desc(2, "b"))));
+        var replaced = manager.getModelValues(NAME, ENV);
+        manager.registerMappings(NAME, ENV, ModelIndex.compile(NAME, Set.of(desc(1, "a"))));
+
+        manager.setValue(NAME, ENV, replaced, replaced.handle("1"), true, 1, TagValues.NO_TIME, TagValues.NO_TIME,
+                StatusCode.GOOD.getValue());
+        manager.setValue(NAME, ENV, replaced, replaced.handle("2"), true, 2, TagValues.NO_TIME, TagValues.NO_TIME,
+                StatusCode.GOOD.getValue());
+
+        assertThat(manager.getValues(NAME, ENV)).containsEntry("1", tagValue(1)).containsEntry("2", tagValue(2));
+    }
+
+    @Test
+    void noWriteIsLostDuringMappingReplacement() throws Exception {
+        var indexes = new ModelIndex[] { ModelIndex.compile(NAME, Set.of(desc(1, "a"))),
+                ModelIndex.compile(NAME, Set.of(desc(1, "a"), desc(2, "b"))) };
+        manager.registerMappings(NAME, ENV, indexes[0]);
+        var pool = Executors.newFixedThreadPool(2);
+        try {
+            var writer = pool.submit(() -> {
+                for (int i = 1; i <= ITERATIONS; i++) {
+                    manager.setValue(NAME, ENV, "1", tagValue(i));
+                }
+            });
+            var remapper = pool.submit(() -> {
+                for (int i = 0; !writer.isDone(); i++) {
+                    manager.registerMappings(NAME, ENV, indexes[i & 1]);
+                }
+            });
+            writer.get(1, TimeUnit.MINUTES);
+            remapper.get(1, TimeUnit.MINUTES);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(manager.getValues(NAME, ENV)).containsEntry("1", tagValue(ITERATIONS));
+    }
+
+    @Test
+    void clearKeepsRegisteredMappings() {
+        var index = ModelIndex.compile(NAME, Set.of(desc(1, "a"), desc(2, "b")));
+        manager.registerMappings(NAME, ENV, index);
+        manager.setValue(NAME, ENV, "1", tagValue(1));
+
+        manager.clear(NAME, ENV);
+
+        var values = manager.getModelValues(NAME, ENV);
+        assertThat(values.index()).isSameAs(index);
+        assertThat(values.get(index, index.position("a"))).isNull();
+        manager.setValue(NAME, ENV, "2", tagValue(2));
+        assertThat(values.get(index, index.position("b"))).isEqualTo(tagValue(2));
+    }
+
+    @Test
+    void removeReleasesControllerBatch() {
+        manager.registerMappings(NAME, ENV, ModelIndex.compile(NAME, Set.of(desc(1, "State.Update"))));
+
+        manager.remove(NAME, ENV);
+
+        assertThat(manager.findModelValues(NAME, ENV)).isNull();
+        verify(controllerUpdateService).remove(NAME, ENV);
+    }
+
+    @Test
+    void concurrentWritersAndReaders() throws Exception {
+        var store = new ValueManager(mock(ControllerUpdateService.class, withSettings().stubOnly()),
+                inline(), new HistoryProperties(),
+                new ValueSnapshot(new SnapshotProperties()));
+        var descs = new HashSet<MappingDesc>();
+        for (int i = 0; i < TAGS; i++) {
+            descs.add(desc(i, "tag-" + i));
+        }
+        store.registerMappings(NAME, ENV, ModelIndex.compile(NAME, descs));
+
+        var pool = Executors.newFixedThreadPool(WRITERS + READERS);
+        var start = new CountDownLatch(1);
+        var done = new AtomicBoolean();
+        var futures = new ArrayList<Future<?>>();
+        try {
+            for (int w = 0; w < WRITERS; w++) {
+                var writer = w;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        var id = (writer * 31 + i) % TAGS;
+                        var env = (i & 1) == 0 ? ENV : ENV + "-" + writer % 3;
+                        store.setValue(NAME, env, Integer.toString(id), tagValue(i));
+                    }
+                    return null;
+                }));
+            }
+            for (int r = 0; r < READERS; r++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    while (!done.get()) {
+                        assertThat(store.getValues(NAME, ENV)).hasSizeLessThanOrEqualTo(TAGS);
+                        store.getUpdateTS(ENV);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (var future : futures.subList(0, WRITERS)) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+            done.set(true);
+            for (var future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(store.getValues(NAME, ENV)).hasSize(TAGS);
+        assertThat(store.getUpdateTS(ENV)).isAfter(Instant.EPOCH);
+    }
+
+    private static MappingDesc desc(int nodeId, String key) {
+        return MappingDesc.builder().key(key).namespaceIndex(2).nodeId((short) nodeId).build();
+    }
+
+    @Test
+    void historyIsDownsampledPerStep() {
+        history.setCapacity(300);
+        var index = ModelIndex.compile(NAME, Set.of(desc(1, "a")));
+        manager.registerMappings(NAME, ENV, index);
+        var start = Instant.now().truncatedTo(ChronoUnit.SECONDS).minusSeconds(10);
+
+        manager.setValue(NAME, ENV, "1", tagValue(1, start));
+        manager.setValue(NAME, ENV, "1", tagValue(3, start.plusMillis(500)));
+        manager.setValue(NAME, ENV, "1", tagValue(5, start.plusSeconds(1)));
+
+        var values = manager.getModelValues(NAME, ENV);
+        var from = start.toEpochMilli();
+        assertThat(values.history(index, 0, from, Long.MAX_VALUE, 0)).extracting(HistoryPoint::getValue)
+                .containsExactly(1d, 3d, 5d);
+        assertThat(values.history(index, 0, from, Long.MAX_VALUE, 1000))
+                .extracting(HistoryPoint::getMin, HistoryPoint::getMax, HistoryPoint::getAvg, HistoryPoint::getCount)
+                .containsExactly(tuple(1d, 3d, 2d, 2), tuple(5d, 5d, 5d, 1));
+        assertThat(values.history(index, 0, from + 1, from + 1000, 0)).extracting(HistoryPoint::getValue)
+                .containsExactly(3d);
+    }
+
+    @Test
+    void historySkipsRepeatedSamplesAndKeepsTimeOrder() {
+        history.setCapacity(10);
+        var index = ModelIndex.compile(NAME, Set.of(desc(1, "a")));
+        manager.registerMappings(NAME, ENV, index);
+        var start = Instant.now().truncatedTo(ChronoUnit.SECONDS).minusSeconds(10);
+
+        manager.setValue(NAME, ENV, "1", tagValue(1, start));
+        manager.setValue(NAME, ENV, "1", tagValue(1, start));
+        manager.setValue(NAME, ENV, "1", tagValue(2, start.minusSeconds(1)));
+        manager.setValue(NAME, ENV, "1", tagValue(3, start.plusSeconds(1)));
+        manager.setValue(NAME, ENV, "1",
+                TagValue.builder().value(4d).serverTimestamp(start.plusMillis(500).toString()).status("Good").build());
+
+        var values = manager.getModelValues(NAME, ENV);
+        var next = start.plusSeconds(1).toString();
+        assertThat(values.history(index, 0, 0, Long.MAX_VALUE, 0))
+                .extracting(HistoryPoint::getTimestamp, HistoryPoint::getValue)
+                .containsExactly(tuple(start.toString(), 1d), tuple(next, 3d), tuple(next, 4d));
+    }
+
+    @Test
+    void historyKeepsLastSamplesAcrossMappingReplacement() {
+        history.setCapacity(2);
+        manager.registerMappings(NAME, ENV, ModelIndex.compile(NAME, Set.of(desc(1, "a"))));
+        var start = Instant.now().minusSeconds(10);
+        for (int i = 0; i < 5; i++) {
+            manager.setValue(NAME, ENV, "1", tagValue(i, start.plusSeconds(i)));
+        }
+
+        var index = ModelIndex.compile(NAME, Set.of(desc(1, "a"), desc(2, "b")));
+        manager.registerMappings(NAME, ENV, index);
+
+        var values = manager.getModelValues(NAME, ENV);
+        assertThat(values.history(index, index.position("a"), 0, Long.MAX_VALUE, 0)).extracting(HistoryPoint::getValue)
+                .containsExactly(3d, 4d);
+        assertThat(values.history(index, index.position("b"), 0, Long.MAX_VALUE, 0)).isEmpty();
+    }
+
+    private static KeyedSerialExecutor inline() {
+        return new KeyedSerialExecutor(Runnable::run, 16, KeyedSerialExecutor.OverflowPolicy.BLOCK);
+    }
+
+    private static TagValue tagValue(double value, Instant sourceTimestamp) {
+        return TagValue.builder().value(value).sourceTimestamp(sourceTimestamp.toString()).status("Good").build();
+    }
+
+    private static TagValue tagValue(double value) {
+        return TagValue.builder().value(value).status("Good").build();
+    }
+}
@@ -0,0 +1,127 @@
+package ru.datana.integration.opc.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ru.datana.integration.opc.config.HistoryProperties;
+import ru.datana.integration.opc.config.SnapshotProperties;
+import ru.datana.integration.opc.dto.ModelIndex;
+import ru.datana.integration.opc.dto.TagValue;
+import ru.datana.integration.opc.request.MappingDesc;
+import ru.datana.integration.opc.service.ControllerUpdateService;
+
+class ValueSnapshotTest {
+
+    private static final String ENV = "env";
+    private static final ModelIndex INDEX = ModelIndex.compile("a",
+            Set.of(desc(1, "power"), desc(2, "level"), desc(3, "State.Update")));
+    private static final Instant SOURCE_TIME = Instant.parse("2024-05-01T10:00:00Z");
+
+    @TempDir
+    private Path dir;
+    private final ControllerUpdateService controllerUpdateService = mock(ControllerUpdateService.class);
+
+    @Test
+    void restoredValuesAreServedAsSnapshotUntilLiveValue() throws IOException {
+        var before = manager();
+        before.registerMappings("a", ENV, INDEX);
+        before.setValue("a", ENV, "1", tagValue(1.5, "Good"));
+        before.setValue("a", ENV, "2", tagValue(7, "Bad"));
+        before.writeSnapshot();
+
+        var after = manager();
+        after.registerMappings("a", ENV, ModelIndex.compile("a", Set.of(desc(2, "level"), desc(1, "power"))));
+
+        assertThat(after.getValues("a", ENV)).containsOnlyKeys("1", "2");
+        assertThat(after.getValues("a", ENV).get("1")).isEqualTo(TagValue.builder().value(1.5)
+                .sourceTimestamp(SOURCE_TIME.toString()).status("Uncertain").source(TagValue.SOURCE_SNAPSHOT).build());
+        assertThat(after.getValues("a", ENV).get("2").getStatus()).isEqualTo("Bad");
+        var values = after.getModelValues("a", ENV);
+        assertThat(values.getFresh(values.index(), values.index().position("power"),
+                System.currentTimeMillis() - 60_000)).isNull();
+
+        after.setValue("a", ENV, "1", tagValue(2, "Good"));
+
+        assertThat(after.getValues("a", ENV).get("1")).isEqualTo(tagValue(2, "Good"));
+    }
+
+    @Test
+    void restoredUpdateValueIsNotForwarded() throws IOException {
+        var before = manager();
+        before.registerMappings("a", ENV, INDEX);
+        before.setValue("a", ENV, "3", tagValue(1, "Good"));
+        before.writeSnapshot();
+
+        var after = manager();
+        after.registerMappings("a", ENV, INDEX);
+        after.setValue("a", ENV, "3", tagValue(2, "Good"));
+
+        verify(controllerUpdateService, never()).handleValueChange(anyString(), anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    void modelsNotRegisteredYetAreCarriedOver() throws IOException {
+        var before = manager();
+        before.registerMappings("a", ENV, INDEX);
+        before.setValue("a", ENV, "1", tagValue(1, "Good"));
+        before.registerMappings("b", ENV, ModelIndex.compile("b", Set.of(desc(1, "power"))));
+        before.setValue("b", ENV, "1", tagValue(3, "Good"));
+        before.writeSnapshot();
+
+        var restarted = manager();
+        restarted.registerMappings("a", ENV, INDEX);
+        restarted.setValue("a", ENV, "1", tagValue(2, "Good"));
+        restarted.writeSnapshot();
+
+        var after = manager();
+        after.registerMappings("a", ENV, INDEX);
+        after.registerMappings("b", ENV, ModelIndex.compile("b", Set.of(desc(1, "power"))));
+        assertThat(after.getValues("a", ENV).get("1").getValue()).isEqualTo(2);
+        assertThat(after.getValues("b", ENV).get("1").getValue()).isEqualTo(3);
+    }
+
+    @Test
+    void unreadableSnapshotIsSkipped() throws IOException {
+        Files.write(file(), new byte[] { 1, 2, 3 });
+
+        var after = manager();
+        after.registerMappings("a", ENV, INDEX);
+
+        assertThat(after.getValues("a", ENV)).isEmpty();
+    }
+
+    private ValueManager manager() throws IOException {
+        var properties = new SnapshotProperties();
+        properties.setFile(file().toString());
+        var snapshot = new ValueSnapshot(properties);
+        snapshot.open();
+        return new ValueManager(controllerUpdateService,
+                new KeyedSerialExecutor(Runnable::run, 16, KeyedSerialExecutor.OverflowPolicy.BLOCK),
+                new HistoryProperties(), snapshot);
+    }
+
+    private Path file() {
+        return dir.resolve("values.snapshot");
+    }
+
+    private static MappingDesc desc(int nodeId, String key) {
+        return MappingDesc.builder().key(key).namespaceIndex(2).nodeId((short) nodeId).build();
+    }
+
+    private static TagValue tagValue(double value, String status) {
+        return TagValue.builder().value(value).sourceTimestamp(SOURCE_TIME.toString()).status(status).build();
+    }
+}
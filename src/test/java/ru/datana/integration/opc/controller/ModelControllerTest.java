@@ -18,7 +18,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import ru.datana.integration.opc.exception.APIError;
 
-@SpringBootTest
+// no model journal and value snapshot under ./data
+@SpringBootTest(properties = { "opc.registry.journal=", "opc.snapshot.file=" })
 @AutoConfigureMockMvc
 class ModelControllerTest {
 	@Autowired
@@ -32,6 +33,11 @@ class ModelControllerTest {
 				.andExpect(content().string(containsString("ENVIRONMENT")));
 	}
 
+	@Test
+	void streamOfUnknownModel() throws Exception {
+		mvc.perform(get("/models/{name}/{env}/values/stream", "MODEL", "ENV")).andExpect(status().isNotFound());
+	}
+
 	@Test
 	void restClient() {
 		var client = RestClient.builder().requestFactory(new MockMvcClientHttpRequestFactory(mvc)).build();
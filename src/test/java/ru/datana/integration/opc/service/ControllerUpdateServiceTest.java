@@ -1,16 +1,26 @@
 package ru.datana.integration.opc.service;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Map;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ru.datana.integration.opc.config.ControllerApiProperties;
 import ru.datana.integration.opc.dto.TagValue;
 
 @ExtendWith(MockitoExtension.class)
@@ -21,10 +31,21 @@ class ControllerUpdateServiceTest {
 
     @Mock
     private ControllerApiClient client;
+    @Mock
+    private TaskScheduler taskScheduler;
 
-    @InjectMocks
+    private ControllerApiProperties properties;
+    private SimpleMeterRegistry meterRegistry;
     private ControllerUpdateService service;
 
+    @BeforeEach
+    void setUp() {
+        properties = new ControllerApiProperties();
+        properties.setBatchWindow(Duration.ZERO);
+        meterRegistry = new SimpleMeterRegistry();
+        service = new ControllerUpdateService(client, properties, taskScheduler, meterRegistry);
+    }
+
     @Test
     void stateCommandOneStopsController() {
         service.handleValueChange(CONTROLLER_ID, ENV, "State.Update", null, tagValue(1));
@@ -81,6 +102,92 @@ class ControllerUpdateServiceTest {
         verifyNoMoreInteractions(client);
     }
 
+    @Test
+    void updatesWithinWindowAreMergedPerEndpoint() {
+        properties.setBatchWindow(Duration.ofMillis(50));
+
+        service.handleValueChange(CONTROLLER_ID, ENV, "Flow.limit_top.Update", null, tagValue(10));
+        service.handleValueChange(CONTROLLER_ID, ENV, "Flow.limit_bottom.Update", null, tagValue(1));
+        service.handleValueChange(CONTROLLER_ID, ENV, "Temp.limit_top.Update", null, tagValue(90));
+        service.handleValueChange(CONTROLLER_ID, ENV, "Temp.target.Update", null, tagValue(80));
+        service.handleValueChange(CONTROLLER_ID, ENV, "OptimizationState.Update", null, tagValue(2));
+        verifyNoMoreInteractions(client);
+
+        var flush = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler).schedule(flush.capture(), any(Instant.class));
+        flush.getValue().run();
+
+        verify(client).updateLimits(ENV, CONTROLLER_ID,
+                Map.of("Flow", Map.of("limit_top", 10d, "limit_bottom", 1d), "Temp", Map.of("limit_top", 90d)));
+        verify(client).updateOptimization(ENV, CONTROLLER_ID,
+                Map.of("vars", Map.of("Temp", Map.of("target", 80d)), "enabled", true));
+        verifyNoMoreInteractions(client);
+        assertThat(meterRegistry.counter(ControllerUpdateService.SAVED_METRIC, "endpoint", "LIMITS").count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.counter(ControllerUpdateService.SAVED_METRIC, "endpoint", "OPTIMIZATION").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void lifecycleCommandFlushesPendingUpdatesFirst() {
+        properties.setBatchWindow(Duration.ofMillis(50));
+
+        service.handleValueChange(CONTROLLER_ID, ENV, "Flow.limit_top.Update", null, tagValue(10));
+        service.handleValueChange(CONTROLLER_ID, ENV, "State.Update", null, tagValue(3));
+        service.handleValueChange(CONTROLLER_ID, ENV, "Flow.limit_top.Update", null, tagValue(20));
+
+        var order = inOrder(client);
+        order.verify(client).updateLimits(ENV, CONTROLLER_ID, Map.of("Flow", Map.of("limit_top", 10d)));
+        order.verify(client).start(ENV, CONTROLLER_ID);
+        verifyNoMoreInteractions(client);
+
+        var flush = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler, times(2)).schedule(flush.capture(), any(Instant.class));
+        flush.getAllValues().forEach(Runnable::run);
+
+        verify(client).updateLimits(ENV, CONTROLLER_ID, Map.of("Flow", Map.of("limit_top", 20d)));
+        verifyNoMoreInteractions(client);
+    }
+
+    @Test
+    void commandsAreNeverConflated() {
+        assertThat(ControllerUpdateService.conflationKey("State.Update")).isNull();
+        assertThat(ControllerUpdateService.conflationKey("OptimizationState.Update")).isNull();
+        assertThat(ControllerUpdateService.conflationKey("Flow.limit_top.Update")).isEqualTo("Flow.limit_top.Update");
+    }
+
+    @Test
+    void batchesAreSentInArrivalOrder() {
+        properties.setBatchWindow(Duration.ofMillis(50));
+
+        service.handleValueChange(CONTROLLER_ID, ENV, "Temp.target.Update", null, tagValue(80));
+        service.handleValueChange(CONTROLLER_ID, ENV, "Flow.limit_top.Update", null, tagValue(10));
+        service.handleValueChange(CONTROLLER_ID, ENV, "Pump.state.Update", null, tagValue(2));
+
+        var flush = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler).schedule(flush.capture(), any(Instant.class));
+        flush.getValue().run();
+
+        var order = inOrder(client);
+        order.verify(client).updateOptimization(ENV, CONTROLLER_ID, Map.of("vars", Map.of("Temp", Map.of("target", 80d))));
+        order.verify(client).updateLimits(ENV, CONTROLLER_ID, Map.of("Flow", Map.of("limit_top", 10d)));
+        order.verify(client).updateStates(ENV, CONTROLLER_ID, Map.of("Pump", "ON"));
+    }
+
+    @Test
+    void removedControllerSendsPendingUpdates() {
+        properties.setBatchWindow(Duration.ofMillis(50));
+        service.handleValueChange(CONTROLLER_ID, ENV, "Flow.limit_top.Update", null, tagValue(10));
+
+        service.remove(CONTROLLER_ID, ENV);
+
+        verify(client).updateLimits(ENV, CONTROLLER_ID, Map.of("Flow", Map.of("limit_top", 10d)));
+        var flush = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler).schedule(flush.capture(), any(Instant.class));
+        flush.getValue().run();
+        verifyNoMoreInteractions(client);
+    }
+
     private static TagValue tagValue(double value) {
         return TagValue.builder().value(value).build();
     }
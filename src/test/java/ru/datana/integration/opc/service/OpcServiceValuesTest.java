@@ -0,0 +1,192 @@
+package ru.datana.integration.opc.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ru.datana.integration.opc.component.ModelJournal;
+import ru.datana.integration.opc.component.OpcClient;
+import ru.datana.integration.opc.component.TestOpcClients;
+import ru.datana.integration.opc.component.ValueManager;
+import ru.datana.integration.opc.config.RegistryProperties;
+import ru.datana.integration.opc.dto.ColumnarValues;
+import ru.datana.integration.opc.dto.ModelIndex;
+import ru.datana.integration.opc.dto.TagValue;
+import ru.datana.integration.opc.request.MappingDesc;
+
+/**
+ * {@code values/all} serves values younger than {@code maxAgeMs} from the
+ * cache and reads the rest in one batch; both value endpoints have a columnar
+ * layout.
+ */
+@ExtendWith(MockitoExtension.class)
+class OpcServiceValuesTest {
+
+    private static final String NAME = "model";
+    private static final String ENV = "env";
+
+    @Mock
+    private OpcClient client;
+
+    private ValueManager valueManager;
+    private OpcService service;
+    private ModelIndex index;
+
+    @BeforeEach
+    void setUp() {
+        valueManager = TestOpcClients.valueManager();
+        service = new OpcService(client, valueManager, Runnable::run,
+                new ModelJournal(new ObjectMapper(), new RegistryProperties()), new SimpleMeterRegistry());
+        when(client.isEnvironmentDeclared(ENV)).thenReturn(true);
+        var descs = new HashSet<MappingDesc>();
+        for (int i = 0; i < 3; i++) {
+            descs.add(MappingDesc.builder().key("tag-" + i).namespaceIndex(2).tag("model.tag" + i).attribute("pv")
+                    .build());
+        }
+        service.replaceMappings(NAME, ENV, descs);
+        index = ModelIndex.compile(NAME, descs);
+        lenient().when(client.getAllValues(eq(NAME), eq(ENV), any(), any())).thenAnswer(invocation -> {
+            ModelIndex index = invocation.getArgument(2);
+            int[] positions = invocation.getArgument(3);
+            var res = new HashMap<String, TagValue>();
+            for (var position : positions) {
+                res.put(index.key(position), TagValue.builder().value(2.0).status("Good")
+                        .source(TagValue.SOURCE_SERVER).build());
+            }
+            return res;
+        });
+    }
+
+    @Test
+    void freshValuesAreServedFromCache() {
+        received("tag-0", 1.0);
+
+        var values = service.getKeysValues(NAME, ENV, Set.of("tag-0", "tag-1", "tag-2"), 60_000L);
+
+        assertThat(values.get("tag-0").getValue()).isEqualTo(1.0);
+        assertThat(values.get("tag-0").getSource()).isEqualTo(TagValue.SOURCE_CACHE);
+        assertThat(values.get("tag-1").getSource()).isEqualTo(TagValue.SOURCE_SERVER);
+        assertThat(values.get("tag-2").getSource()).isEqualTo(TagValue.SOURCE_SERVER);
+        assertThat(readKeys()).containsExactlyInAnyOrder("tag-1", "tag-2");
+    }
+
+    @Test
+    void allCachedValuesNeedNoRead() {
+        received("tag-0", 1.0);
+        received("tag-1", 1.0);
+
+        var values = service.getKeysValues(NAME, ENV, Set.of("tag-0", "tag-1"), 60_000L);
+
+        assertThat(values).hasSize(2).allSatisfy((key, value) -> assertThat(value.getSource()).isEqualTo("cache"));
+        verify(client, never()).getAllValues(any(), any(), any(), any());
+    }
+
+    @Test
+    void staleValuesAreRead() throws InterruptedException {
+        received("tag-0", 1.0);
+        Thread.sleep(20);
+
+        var values = service.getKeysValues(NAME, ENV, Set.of("tag-0"), 10L);
+
+        assertThat(values.get("tag-0").getValue()).isEqualTo(2.0);
+        assertThat(values.get("tag-0").getSource()).isEqualTo(TagValue.SOURCE_SERVER);
+    }
+
+    @Test
+    void withoutMaxAgeAllKeysAreRead() {
+        received("tag-0", 1.0);
+
+        var values = service.getKeysValues(NAME, ENV, Set.of("tag-0", "tag-1"), null);
+
+        assertThat(values.values()).allSatisfy(value -> assertThat(value.getSource()).isEqualTo("server"));
+        assertThat(readKeys()).containsExactlyInAnyOrder("tag-0", "tag-1");
+    }
+
+    @Test
+    void columnarValuesFollowKeys() {
+        received("tag-1", 1.0);
+
+        var values = service.getColumnarValues(NAME, ENV, null);
+
+        assertThat(values.getKeys()).containsExactlyInAnyOrder("tag-0", "tag-1", "tag-2");
+        var column = values.getKeys().indexOf("tag-1");
+        for (int i = 0; i < values.getKeys().size(); i++) {
+            if (i == column) {
+                assertThat(values.getValues()[i]).isEqualTo(1.0);
+                assertThat(values.getStatuses()[i]).isEqualTo(ColumnarValues.GOOD);
+            } else {
+                assertThat(values.getValues()[i]).isNaN();
+                assertThat(values.getStatuses()[i]).isEqualTo(ColumnarValues.NO_STATUS);
+                assertThat(values.getSourceTimestamps()[i]).isZero();
+            }
+        }
+    }
+
+    @Test
+    void columnarValuesDoNotRegisterValueSlots() {
+        valueManager.remove(NAME, ENV);
+
+        var values = service.getColumnarValues(NAME, ENV, null);
+
+        assertThat(values.getValues()).containsOnly(Double.NaN).hasSize(3);
+        assertThat(values.getStatuses()).containsOnly(ColumnarValues.NO_STATUS);
+        assertThat(valueManager.findModelValues(NAME, ENV)).isNull();
+    }
+
+    @Test
+    void columnarKeysAreOmittedForCurrentSchema() {
+        var schema = service.getColumnarValues(NAME, ENV, null).getSchema();
+
+        assertThat(service.getColumnarValues(NAME, ENV, schema).getKeys()).isNull();
+        assertThat(service.getColumnarValues(NAME, ENV, "0000000000000000").getKeys()).isNotNull();
+        assertThat(schema).isEqualTo(ColumnarValues.schema(service.getColumnarValues(NAME, ENV, null).getKeys()));
+    }
+
+    @Test
+    void columnarKeysValuesAreSortedWithSource() {
+        received("tag-2", 1.0);
+
+        var values = service.getColumnarKeysValues(NAME, ENV, Set.of("tag-2", "tag-0"), 60_000L, null);
+
+        assertThat(values.getKeys()).isEqualTo(List.of("tag-0", "tag-2"));
+        assertThat(values.getValues()).containsExactly(2.0, 1.0);
+        assertThat(values.getStatuses()).containsExactly(
+                (byte) (ColumnarValues.GOOD | ColumnarValues.SOURCE_SERVER),
+                (byte) (ColumnarValues.GOOD | ColumnarValues.SOURCE_CACHE));
+    }
+
+    private void received(String key, double value) {
+        valueManager.setValue(NAME, ENV, index.address(index.position(key)),
+                TagValue.builder().value(value).status("Good").build());
+    }
+
+    private Set<String> readKeys() {
+        var index = ArgumentCaptor.forClass(ModelIndex.class);
+        var positions = ArgumentCaptor.forClass(int[].class);
+        verify(client).getAllValues(eq(NAME), eq(ENV), index.capture(), positions.capture());
+        var keys = new HashSet<String>();
+        for (var position : positions.getValue()) {
+            keys.add(index.getValue().key(position));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,113 @@
+package ru.datana.integration.opc.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import ru.datana.integration.opc.component.TestOpcClients;
+import ru.datana.integration.opc.component.ValueManager;
+import ru.datana.integration.opc.dto.ModelIndex;
+import ru.datana.integration.opc.dto.TagValue;
+import ru.datana.integration.opc.exception.ServiceUnavailableException;
+import ru.datana.integration.opc.request.MappingDesc;
+
+/**
+ * A subscriber gets a full snapshot, then the changed keys only.
+ */
+@ExtendWith(MockitoExtension.class)
+class ValueStreamServiceTest {
+
+    private static final String NAME = "model";
+    private static final String ENV = "env";
+
+    @Mock
+    private OpcService opcService;
+
+    private ValueManager valueManager;
+    private ValueStreamService service;
+
+    @BeforeEach
+    void setUp() {
+        valueManager = TestOpcClients.valueManager();
+        service = new ValueStreamService(opcService, valueManager);
+        ReflectionTestUtils.setField(service, "defaultConflationMs", 10L);
+        ReflectionTestUtils.setField(service, "minConflationMs", 1L);
+        ReflectionTestUtils.setField(service, "keepAliveMs", 60_000L);
+        ReflectionTestUtils.setField(service, "maxSubscribers", 1);
+        valueManager.registerMappings(NAME, ENV, ModelIndex.compile(NAME, Set.of(desc(1, "a"), desc(2, "b"))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        // completes the streams
+        valueManager.remove(NAME, ENV);
+    }
+
+    @Test
+    void snapshotIsFollowedByChangedKeysOnly() throws InterruptedException {
+        valueManager.setValue(NAME, ENV, "1", tagValue(1));
+        valueManager.setValue(NAME, ENV, "2", tagValue(2));
+        var emitter = new RecordingEmitter();
+
+        service.stream(NAME, ENV, null, emitter);
+
+        assertThat(emitter.next()).isEqualTo(Map.entry("snapshot", Map.of("a", tagValue(1), "b", tagValue(2))));
+        valueManager.setValue(NAME, ENV, "2", tagValue(3));
+        assertThat(emitter.next()).isEqualTo(Map.entry("update", Map.of("b", tagValue(3))));
+    }
+
+    @Test
+    void subscribersOverLimitAreRejected() {
+        service.stream(NAME, ENV, null, new RecordingEmitter());
+
+        assertThatThrownBy(() -> service.stream(NAME, ENV, null, new RecordingEmitter()))
+                .isInstanceOf(ServiceUnavailableException.class);
+    }
+
+    private static MappingDesc desc(int nodeId, String key) {
+        return MappingDesc.builder().key(key).namespaceIndex(2).nodeId((short) nodeId).build();
+    }
+
+    private static TagValue tagValue(double value) {
+        return TagValue.builder().value(value).status("Good").build();
+    }
+
+    /**
+     * Keeps event name -> data of every sent event
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+        private final BlockingQueue<Map.Entry<String, Object>> events = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            String name = null;
+            Object data = null;
+            for (var part : builder.build()) {
+                if (!(part.getData() instanceof String text)) {
+                    data = part.getData();
+                } else if (text.startsWith("event:")) {
+                    name = text.substring("event:".length(), text.indexOf('\n'));
+                }
+            }
+            events.add(Map.entry(name, data));
+        }
+
+        Map.Entry<String, Object> next() throws InterruptedException {
+            return events.poll(5, TimeUnit.SECONDS);
+        }
+    }
+}
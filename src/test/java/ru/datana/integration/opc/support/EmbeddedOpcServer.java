@@ -0,0 +1,277 @@
+package ru.datana.integration.opc.support;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.milo.opcua.sdk.core.AccessLevel;
+import org.eclipse.milo.opcua.sdk.server.OpcUaServer;
+import org.eclipse.milo.opcua.sdk.server.api.DataItem;
+import org.eclipse.milo.opcua.sdk.server.api.ManagedNamespaceWithLifecycle;
+import org.eclipse.milo.opcua.sdk.server.api.MonitoredItem;
+import org.eclipse.milo.opcua.sdk.server.api.services.AttributeServices.ReadContext;
+import org.eclipse.milo.opcua.sdk.server.api.config.OpcUaServerConfig;
+import org.eclipse.milo.opcua.sdk.server.api.config.OpcUaServerConfigLimits;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.sdk.server.util.SubscriptionModel;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.security.DefaultCertificateManager;
+import org.eclipse.milo.opcua.stack.core.security.DefaultTrustListManager;
+import org.eclipse.milo.opcua.stack.core.security.SecurityPolicy;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.MessageSecurityMode;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.eclipse.milo.opcua.stack.server.EndpointConfiguration;
+import org.eclipse.milo.opcua.stack.server.security.DefaultServerCertificateValidator;
+
+/**
+ * Anonymous, unsecured OPC UA server with {@code Float} variables
+ * {@code ns=2;s=<tag>} for tests, as written by the service. Can be stopped and started again at the same
+ * port, variable values survive a restart.
+ */
+public final class EmbeddedOpcServer implements AutoCloseable {
+	private static final String NAMESPACE_URI = "urn:datana:integration:opc:test";
+
+	private final int port;
+	private final List<String> tags;
+	private final Limits limits;
+	private final Map<String, Float> values = new ConcurrentHashMap<>();
+	private final AtomicInteger monitoredItems = new AtomicInteger();
+	private final Map<String, Map<NodeId, AtomicInteger>> reads = new ConcurrentHashMap<>();
+	private volatile OpcUaServer server;
+	private volatile TagNamespace namespace;
+
+	/**
+	 * Server operation limits, {@code 0} means no limit
+	 */
+	public static record Limits(int maxNodesPerRead, int maxNodesPerWrite, int maxMonitoredItemsPerCall) {
+		public static final Limits NONE = new Limits(0, 0, 0);
+	}
+
+	public EmbeddedOpcServer(List<String> tags) {
+		this(tags, Limits.NONE);
+	}
+
+	public EmbeddedOpcServer(List<String> tags, Limits limits) {
+		this.port = freePort();
+		this.tags = List.copyOf(tags);
+		this.limits = limits;
+		tags.forEach(tag -> values.put(tag, 0f));
+	}
+
+	public String url() {
+		return "opc.tcp://localhost:%d/test".formatted(port);
+	}
+
+	public EmbeddedOpcServer start() throws InterruptedException, ExecutionException {
+		var endpoint = EndpointConfiguration.newBuilder().setBindAddress("localhost").setHostname("localhost")
+				.setBindPort(port).setPath("/test").setSecurityPolicy(SecurityPolicy.None)
+				.setSecurityMode(MessageSecurityMode.None).addTokenPolicy(OpcUaServerConfig.USER_TOKEN_POLICY_ANONYMOUS)
+				.build();
+		var trustListManager = trustListManager();
+		var config = OpcUaServerConfig.builder().setApplicationUri(NAMESPACE_URI + ":server")
+				.setApplicationName(LocalizedText.english("embedded test server")).setProductUri(NAMESPACE_URI)
+				.setEndpoints(Set.of(endpoint)).setCertificateManager(new DefaultCertificateManager())
+				.setTrustListManager(trustListManager)
+				.setCertificateValidator(new DefaultServerCertificateValidator(trustListManager))
+				.setLimits(new ConfigLimits(limits)).build();
+		var created = new OpcUaServer(config);
+		var createdNamespace = new TagNamespace(created);
+		createdNamespace.startup();
+		created.startup().get();
+		namespace = createdNamespace;
+		server = created;
+		return this;
+	}
+
+	public void stop() throws InterruptedException, ExecutionException {
+		var current = server;
+		if (current != null) {
+			server = null;
+			monitoredItems.set(0);
+			namespace.shutdown();
+			current.shutdown().get();
+		}
+	}
+
+	public void restart() throws InterruptedException, ExecutionException {
+		stop();
+		start();
+	}
+
+	/**
+	 * Sets the value, subscribers are notified at the next sampling
+	 */
+	public void setValue(String tag, double value) {
+		values.put(tag, (float) value);
+		var current = namespace;
+		if (current != null) {
+			current.setValue(tag, value);
+		}
+	}
+
+	/**
+	 * @return number of client sessions
+	 */
+	public int sessions() {
+		var current = server;
+		return current == null ? 0 : current.getSessionManager().getCurrentSessionCount().intValue();
+	}
+
+	/**
+	 * @return number of monitored items sampling the variables
+	 */
+	public int monitoredItems() {
+		return monitoredItems.get();
+	}
+
+	/**
+	 * @return number of reads of the {@code tag} value by client session
+	 *         identifier, subscription sampling included
+	 */
+	public Map<NodeId, Integer> reads(String tag) {
+		var res = new HashMap<NodeId, Integer>();
+		reads.getOrDefault(tag, Map.of()).forEach((session, count) -> res.put(session, count.get()));
+		return res;
+	}
+
+	@Override
+	public void close() throws InterruptedException, ExecutionException {
+		stop();
+	}
+
+	static DefaultTrustListManager trustListManager() {
+		try {
+			var dir = Files.createTempDirectory("embedded-opc-pki").toFile();
+			dir.deleteOnExit();
+			return new DefaultTrustListManager(dir);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static int freePort() {
+		try (var socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private final class TagNamespace extends ManagedNamespaceWithLifecycle {
+		private final SubscriptionModel subscriptionModel;
+		private final Map<String, UaVariableNode> nodes = new ConcurrentHashMap<>();
+
+		private TagNamespace(OpcUaServer server) {
+			super(server, NAMESPACE_URI);
+			subscriptionModel = new SubscriptionModel(server, this);
+			getLifecycleManager().addLifecycle(subscriptionModel);
+			getLifecycleManager().addStartupTask(this::createNodes);
+		}
+
+		private void createNodes() {
+			for (var tag : tags) {
+				var node = new UaVariableNode.UaVariableNodeBuilder(getNodeContext()).setNodeId(newNodeId(tag))
+						.setAccessLevel(AccessLevel.READ_WRITE).setUserAccessLevel(AccessLevel.READ_WRITE)
+						.setBrowseName(newQualifiedName(tag)).setDisplayName(LocalizedText.english(tag))
+						.setDataType(Identifiers.Float).setTypeDefinition(Identifiers.BaseDataVariableType).build();
+				node.setValue(new DataValue(new Variant(values.get(tag))));
+				getNodeManager().addNode(node);
+				nodes.put(tag, node);
+			}
+		}
+
+		private void setValue(String tag, double value) {
+			var node = nodes.get(tag);
+			if (node != null) {
+				node.setValue(new DataValue(new Variant((float) value)));
+			}
+		}
+
+		@Override
+		public void read(ReadContext context, Double maxAge, TimestampsToReturn timestamps,
+				List<ReadValueId> readValueIds) {
+			context.getSession().ifPresent(session -> readValueIds.forEach(id -> {
+				if (id.getNodeId().getIdentifier() instanceof String tag && nodes.containsKey(tag)) {
+					reads.computeIfAbsent(tag, __ -> new ConcurrentHashMap<>())
+							.computeIfAbsent(session.getSessionId(), __ -> new AtomicInteger()).incrementAndGet();
+				}
+			}));
+			super.read(context, maxAge, timestamps, readValueIds);
+		}
+
+		@Override
+		public void onDataItemsCreated(List<DataItem> dataItems) {
+			monitoredItems.addAndGet(dataItems.size());
+			subscriptionModel.onDataItemsCreated(dataItems);
+		}
+
+		@Override
+		public void onDataItemsModified(List<DataItem> dataItems) {
+			subscriptionModel.onDataItemsModified(dataItems);
+		}
+
+		@Override
+		public void onDataItemsDeleted(List<DataItem> dataItems) {
+			monitoredItems.addAndGet(-dataItems.size());
+			subscriptionModel.onDataItemsDeleted(dataItems);
+		}
+
+		@Override
+		public void onMonitoringModeChanged(List<MonitoredItem> monitoredItems) {
+			subscriptionModel.onMonitoringModeChanged(monitoredItems);
+		}
+	}
+
+	static final class ConfigLimits implements OpcUaServerConfigLimits {
+		private final Limits limits;
+
+		ConfigLimits(Limits limits) {
+			this.limits = limits;
+		}
+
+		@Override
+		public UInteger getMaxNodesPerRead() {
+			return limit(limits.maxNodesPerRead(), OpcUaServerConfigLimits.super.getMaxNodesPerRead());
+		}
+
+		@Override
+		public UInteger getMaxNodesPerWrite() {
+			return limit(limits.maxNodesPerWrite(), OpcUaServerConfigLimits.super.getMaxNodesPerWrite());
+		}
+
+		@Override
+		public UInteger getMaxMonitoredItemsPerCall() {
+			return limit(limits.maxMonitoredItemsPerCall(),
+					OpcUaServerConfigLimits.super.getMaxMonitoredItemsPerCall());
+		}
+
+		@Override
+		public UInteger getMaxMonitoredItems() {
+			return uint(Integer.MAX_VALUE);
+		}
+
+		@Override
+		public UInteger getMaxMonitoredItemsPerSession() {
+			return uint(Integer.MAX_VALUE);
+		}
+
+		private static UInteger limit(int limit, UInteger defaultLimit) {
+			return limit > 0 ? uint(limit) : defaultLimit;
+		}
+	}
+}
@@ -0,0 +1,351 @@
+package ru.datana.integration.opc.support;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.uint;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.milo.opcua.sdk.core.AccessLevel;
+import org.eclipse.milo.opcua.sdk.server.OpcUaServer;
+import org.eclipse.milo.opcua.sdk.server.api.DataItem;
+import org.eclipse.milo.opcua.sdk.server.api.ManagedNamespaceWithLifecycle;
+import org.eclipse.milo.opcua.sdk.server.api.MonitoredItem;
+import org.eclipse.milo.opcua.sdk.server.api.config.OpcUaServerConfig;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.sdk.server.util.SubscriptionModel;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.security.DefaultCertificateManager;
+import org.eclipse.milo.opcua.stack.core.security.SecurityPolicy;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ByteString;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.MessageSecurityMode;
+import org.eclipse.milo.opcua.stack.server.EndpointConfiguration;
+import org.eclipse.milo.opcua.stack.server.security.DefaultServerCertificateValidator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ru.datana.integration.opc.request.MappingDesc;
+import ru.datana.integration.opc.support.EmbeddedOpcServer.ConfigLimits;
+import ru.datana.integration.opc.support.EmbeddedOpcServer.Limits;
+
+/**
+ * Anonymous, unsecured OPC UA simulator with groups of {@code Double}
+ * variables changing by a pattern at a fixed period, a stand-in for the IoT
+ * hub without network.
+ * <p>
+ * A group uses one node identifier type: numeric {@code ns=2;i=<n>}, string
+ * {@code ns=2;s=load.<group>.<i>.pv}, GUID or opaque. Every change carries the
+ * source time it was made at. Standalone:
+ *
+ * <pre>
+ * mvn -Psimulator verify -DskipTests [-Dsimulator.port=4841]
+ *         [-Dsimulator.nodes=NUMERIC:1000:SINE:100,STRING:1000:RANDOM:1000]
+ *         [-Dsimulator.mappings=target/simulator-mappings.json]
+ * </pre>
+ */
+public final class LoadOpcServer implements AutoCloseable {
+	private static final String NAMESPACE_URI = "urn:datana:integration:opc:simulator";
+	private static final int FIRST_NUMERIC_ID = 1_000;
+
+	/**
+	 * Node identifier type of a group
+	 */
+	public enum IdType {
+		NUMERIC, STRING, GUID, OPAQUE
+	}
+
+	/**
+	 * Value of node {@code i} at tick {@code n} of its group
+	 */
+	public enum Pattern {
+		/**
+		 * Sine of amplitude 100 and a period of 100 ticks, phase shifted by node
+		 */
+		SINE,
+		/**
+		 * Saw tooth 0..999, shifted by node
+		 */
+		RAMP,
+		/**
+		 * Uniform in [0, 100)
+		 */
+		RANDOM,
+		/**
+		 * Square wave 0 / 100 switching every 10 ticks, nodes change in bursts
+		 */
+		STEP;
+
+		double value(int i, long n) {
+			return switch (this) {
+			case SINE -> 100 * Math.sin(2 * Math.PI * (n + i) / 100);
+			case RAMP -> (n + i) % 1_000;
+			case RANDOM -> ThreadLocalRandom.current().nextDouble(100);
+			case STEP -> (n / 10 + i) % 2 == 0 ? 0 : 100;
+			};
+		}
+	}
+
+	/**
+	 * {@code count} nodes changing every {@code periodMs}
+	 */
+	public static record Group(IdType idType, int count, Pattern pattern, long periodMs) {
+
+		/**
+		 * @param spec {@code <idType>:<count>:<pattern>:<periodMs>}
+		 */
+		public static Group parse(String spec) {
+			var parts = spec.trim().split(":");
+			if (parts.length != 4) {
+				throw new IllegalArgumentException("Group is <idType>:<count>:<pattern>:<periodMs>: " + spec);
+			}
+			return new Group(IdType.valueOf(parts[0].toUpperCase()), Integer.parseInt(parts[1]),
+					Pattern.valueOf(parts[2].toUpperCase()), Long.parseLong(parts[3]));
+		}
+	}
+
+	private final int port;
+	private final List<Group> groups;
+	private final LongAdder changes = new LongAdder();
+	private volatile OpcUaServer server;
+	private volatile SimulatorNamespace namespace;
+	private volatile ScheduledExecutorService ticker;
+
+	public LoadOpcServer(List<Group> groups) {
+		this(0, groups);
+	}
+
+	/**
+	 * @param port listening port, a free one if {@code 0}
+	 */
+	public LoadOpcServer(int port, List<Group> groups) {
+		this.port = port > 0 ? port : EmbeddedOpcServer.freePort();
+		this.groups = List.copyOf(groups);
+		var numeric = groups.stream().filter(group -> group.idType() == IdType.NUMERIC).mapToInt(Group::count).sum();
+		if (FIRST_NUMERIC_ID + numeric > Short.MAX_VALUE) {
+			// numeric mappings are limited to Short identifiers
+			throw new IllegalArgumentException("At most %d numeric nodes".formatted(Short.MAX_VALUE - FIRST_NUMERIC_ID));
+		}
+	}
+
+	public String url() {
+		return "opc.tcp://localhost:%d/simulator".formatted(port);
+	}
+
+	/**
+	 * @return total number of nodes
+	 */
+	public int size() {
+		return groups.stream().mapToInt(Group::count).sum();
+	}
+
+	/**
+	 * @return mappings of all nodes at namespace index 2, keys
+	 *         {@code <group>.<i>}
+	 */
+	public Set<MappingDesc> mappings() {
+		var res = new LinkedHashSet<MappingDesc>();
+		var numeric = FIRST_NUMERIC_ID;
+		for (int g = 0; g < groups.size(); g++) {
+			var group = groups.get(g);
+			for (int i = 0; i < group.count(); i++) {
+				var desc = MappingDesc.builder().key(g + "." + i).namespaceIndex(2);
+				switch (group.idType()) {
+				case NUMERIC -> desc.nodeId((short) numeric++);
+				case STRING -> desc.tag(tag(g, i)).attribute("pv");
+				case GUID -> desc.uuid(uuid(g, i));
+				case OPAQUE -> desc.bytes(tag(g, i));
+				}
+				res.add(desc.build());
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * @return values written since start, {@link Pattern#STEP} writes unchanged
+	 *         values too
+	 */
+	public long changes() {
+		return changes.sum();
+	}
+
+	public LoadOpcServer start() throws InterruptedException, ExecutionException {
+		var endpoint = EndpointConfiguration.newBuilder().setBindAddress("localhost").setHostname("localhost")
+				.setBindPort(port).setPath("/simulator").setSecurityPolicy(SecurityPolicy.None)
+				.setSecurityMode(MessageSecurityMode.None).addTokenPolicy(OpcUaServerConfig.USER_TOKEN_POLICY_ANONYMOUS)
+				.build();
+		var trustListManager = EmbeddedOpcServer.trustListManager();
+		var config = OpcUaServerConfig.builder().setApplicationUri(NAMESPACE_URI + ":server")
+				.setApplicationName(LocalizedText.english("embedded load simulator")).setProductUri(NAMESPACE_URI)
+				.setEndpoints(Set.of(endpoint)).setCertificateManager(new DefaultCertificateManager())
+				.setTrustListManager(trustListManager)
+				.setCertificateValidator(new DefaultServerCertificateValidator(trustListManager))
+				.setLimits(new ConfigLimits(Limits.NONE)).build();
+		var created = new OpcUaServer(config);
+		var createdNamespace = new SimulatorNamespace(created);
+		createdNamespace.startup();
+		created.startup().get();
+		namespace = createdNamespace;
+		server = created;
+		var scheduler = Executors.newScheduledThreadPool(1, Thread.ofPlatform().name("simulator-", 0).daemon().factory());
+		for (int g = 0; g < groups.size(); g++) {
+			var group = g;
+			var ticks = new long[1];
+			scheduler.scheduleAtFixedRate(() -> createdNamespace.tick(group, ticks[0]++), groups.get(g).periodMs(),
+					groups.get(g).periodMs(), TimeUnit.MILLISECONDS);
+		}
+		ticker = scheduler;
+		return this;
+	}
+
+	public void stop() throws InterruptedException, ExecutionException {
+		var current = server;
+		if (current != null) {
+			server = null;
+			ticker.shutdownNow();
+			ticker.awaitTermination(10, TimeUnit.SECONDS);
+			namespace.shutdown();
+			current.shutdown().get();
+		}
+	}
+
+	@Override
+	public void close() throws InterruptedException, ExecutionException {
+		stop();
+	}
+
+	/**
+	 * @param args {@code <port> <group>[,<group>...] [<mappings.json>]}, see
+	 *             {@link Group#parse(String)}
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: LoadOpcServer <port> <idType>:<count>:<pattern>:<periodMs>[,...] [mappings.json]");
+			System.exit(1);
+		}
+		var groups = Arrays.stream(args[1].split(",")).map(Group::parse).toList();
+		var simulator = new LoadOpcServer(Integer.parseInt(args[0]), groups).start();
+		if (args.length > 2) {
+			var file = Path.of(args[2]);
+			writeMappings(simulator.mappings(), file);
+			System.out.printf("Mappings written to %s%n", file.toAbsolutePath());
+		}
+		System.out.printf("Simulating %d nodes %s at %s%n", simulator.size(), groups, simulator.url());
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				simulator.stop();
+			} catch (Exception e) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		var start = System.nanoTime();
+		var previous = 0L;
+		for (;;) {
+			TimeUnit.SECONDS.sleep(10);
+			var current = simulator.changes();
+			System.out.printf("%d s: %d changes/s, sessions: %d%n", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start),
+					(current - previous) / 10, simulator.server.getSessionManager().getCurrentSessionCount());
+			previous = current;
+		}
+	}
+
+	private static void writeMappings(Set<MappingDesc> mappings, Path file) throws IOException {
+		var parent = file.toAbsolutePath().getParent();
+		if (parent != null) {
+			parent.toFile().mkdirs();
+		}
+		new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file.toFile(), mappings);
+	}
+
+	private static String tag(int group, int i) {
+		return "load.%d.%d".formatted(group, i);
+	}
+
+	private static UUID uuid(int group, int i) {
+		return new UUID(0x5157_4c4fL << 32 | group, i);
+	}
+
+	private final class SimulatorNamespace extends ManagedNamespaceWithLifecycle {
+		private final SubscriptionModel subscriptionModel;
+		private final List<UaVariableNode[]> nodes = new ArrayList<>();
+
+		private SimulatorNamespace(OpcUaServer server) {
+			super(server, NAMESPACE_URI);
+			subscriptionModel = new SubscriptionModel(server, this);
+			getLifecycleManager().addLifecycle(subscriptionModel);
+			getLifecycleManager().addStartupTask(this::createNodes);
+		}
+
+		private void createNodes() {
+			var numeric = FIRST_NUMERIC_ID;
+			for (int g = 0; g < groups.size(); g++) {
+				var group = groups.get(g);
+				var groupNodes = new UaVariableNode[group.count()];
+				for (int i = 0; i < group.count(); i++) {
+					var nodeId = switch (group.idType()) {
+					case NUMERIC -> new NodeId(getNamespaceIndex(), uint(numeric++));
+					case STRING -> newNodeId(tag(g, i) + ".pv");
+					case GUID -> new NodeId(getNamespaceIndex(), uuid(g, i));
+					case OPAQUE -> new NodeId(getNamespaceIndex(), ByteString.of(tag(g, i).getBytes()));
+					};
+					var name = tag(g, i);
+					var node = new UaVariableNode.UaVariableNodeBuilder(getNodeContext()).setNodeId(nodeId)
+							.setAccessLevel(AccessLevel.READ_WRITE).setUserAccessLevel(AccessLevel.READ_WRITE)
+							.setBrowseName(newQualifiedName(name)).setDisplayName(LocalizedText.english(name))
+							.setDataType(Identifiers.Double).setTypeDefinition(Identifiers.BaseDataVariableType).build();
+					node.setValue(new DataValue(new Variant(group.pattern().value(i, 0))));
+					getNodeManager().addNode(node);
+					groupNodes[i] = node;
+				}
+				nodes.add(groupNodes);
+			}
+		}
+
+		private void tick(int group, long n) {
+			var pattern = groups.get(group).pattern();
+			var groupNodes = nodes.get(group);
+			var now = DateTime.now();
+			for (int i = 0; i < groupNodes.length; i++) {
+				groupNodes[i].setValue(new DataValue(new Variant(pattern.value(i, n + 1)), StatusCode.GOOD, now, now));
+			}
+			changes.add(groupNodes.length);
+		}
+
+		@Override
+		public void onDataItemsCreated(List<DataItem> dataItems) {
+			subscriptionModel.onDataItemsCreated(dataItems);
+		}
+
+		@Override
+		public void onDataItemsModified(List<DataItem> dataItems) {
+			subscriptionModel.onDataItemsModified(dataItems);
+		}
+
+		@Override
+		public void onDataItemsDeleted(List<DataItem> dataItems) {
+			subscriptionModel.onDataItemsDeleted(dataItems);
+		}
+
+		@Override
+		public void onMonitoringModeChanged(List<MonitoredItem> monitoredItems) {
+			subscriptionModel.onMonitoringModeChanged(monitoredItems);
+		}
+	}
+}